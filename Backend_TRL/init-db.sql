@@ -78,11 +78,47 @@ CREATE TABLE IF NOT EXISTS evidencia (
     idproyecto INTEGER NOT NULL,
     archivo_nombre VARCHAR(255) NOT NULL,
     archivo_tipo VARCHAR(100),
-    archivo_datos BYTEA, -- Almacenamiento binario directo
+    archivo_datos BYTEA, -- Legado: el contenido se migra al BlobStore (blob_key)
+    blob_key VARCHAR(128),
+    tamano_bytes BIGINT,
+    checksum VARCHAR(64),
     descripcion VARCHAR(255) NOT NULL,
     fecha_carga DATE NOT NULL,
     estadoevidencia VARCHAR(20) NOT NULL,
-    FOREIGN KEY (idproyecto) REFERENCES proyecto(idproyecto)
+    idcriterio INTEGER,
+    FOREIGN KEY (idproyecto) REFERENCES proyecto(idproyecto),
+    FOREIGN KEY (idcriterio) REFERENCES criterios(idcriterio) ON DELETE SET NULL
+);
+
+-- Puntaje TRL materializado: evidencias activas por criterio y puntaje por nivel
+CREATE TABLE IF NOT EXISTS puntaje_proyecto_criterio (
+    id SERIAL PRIMARY KEY,
+    idproyecto INTEGER NOT NULL,
+    idcriterio INTEGER NOT NULL,
+    evidencias_activas INTEGER NOT NULL,
+    CONSTRAINT uk_puntaje_proyecto_criterio UNIQUE (idproyecto, idcriterio),
+    FOREIGN KEY (idproyecto) REFERENCES proyecto(idproyecto) ON DELETE CASCADE,
+    FOREIGN KEY (idcriterio) REFERENCES criterios(idcriterio) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS puntaje_proyecto_nivel (
+    id SERIAL PRIMARY KEY,
+    idproyecto INTEGER NOT NULL,
+    idnivel INTEGER NOT NULL,
+    puntaje INTEGER NOT NULL,
+    fecha_actualizacion TIMESTAMP NOT NULL,
+    CONSTRAINT uk_puntaje_proyecto_nivel UNIQUE (idproyecto, idnivel),
+    FOREIGN KEY (idproyecto) REFERENCES proyecto(idproyecto) ON DELETE CASCADE,
+    FOREIGN KEY (idnivel) REFERENCES niveltrl(idnivel) ON DELETE CASCADE
+);
+
+-- Estado del recálculo completo de puntajes TRL (una sola fila, id = 1)
+CREATE TABLE IF NOT EXISTS puntaje_trl_recalculo (
+    id INTEGER PRIMARY KEY,
+    etag VARCHAR(64),
+    iniciado TIMESTAMP,
+    etag_completado VARCHAR(64),
+    completado TIMESTAMP
 );
 
 -- Nueva tabla para reportes PDF generados por la IA
@@ -91,11 +127,55 @@ CREATE TABLE IF NOT EXISTS reporte_proyecto (
     idproyecto INTEGER NOT NULL,
     nombre_archivo VARCHAR(255) NOT NULL,
     tipo_archivo VARCHAR(50) DEFAULT 'application/pdf',
-    archivo_datos BYTEA,
+    archivo_datos BYTEA, -- Legado: el contenido se migra al BlobStore (blob_key)
+    blob_key VARCHAR(128),
+    tamano_bytes BIGINT,
+    checksum VARCHAR(64),
     fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (idproyecto) REFERENCES proyecto(idproyecto) ON DELETE CASCADE
 );
 
+-- Trabajos asíncronos de análisis global de proyectos
+CREATE TABLE IF NOT EXISTS analisis_proyecto_job (
+    idjob VARCHAR(36) PRIMARY KEY,
+    idproyecto INTEGER NOT NULL,
+    estado VARCHAR(20) NOT NULL,
+    mensaje TEXT,
+    nodo VARCHAR(100),
+    trace_id VARCHAR(32),
+    fecha_creacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_inicio TIMESTAMP,
+    fecha_fin TIMESTAMP,
+    heartbeat_at TIMESTAMP,
+    cancelacion_solicitada BOOLEAN NOT NULL DEFAULT FALSE,
+    version BIGINT NOT NULL DEFAULT 0,
+    FOREIGN KEY (idproyecto) REFERENCES proyecto(idproyecto) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_analisis_job_proyecto ON analisis_proyecto_job(idproyecto, estado);
+
+-- Respuestas guardadas por Idempotency-Key (se eliminan al vencer fecha_expiracion)
+CREATE TABLE IF NOT EXISTS clave_idempotencia (
+    clave VARCHAR(64) PRIMARY KEY,
+    huella VARCHAR(64) NOT NULL,
+    estado VARCHAR(20) NOT NULL,
+    codigo_estado INTEGER,
+    cabeceras TEXT,
+    cuerpo BYTEA,
+    fecha_creacion TIMESTAMP NOT NULL,
+    fecha_expiracion TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_clave_idempotencia_expiracion ON clave_idempotencia(fecha_expiracion);
+
+-- Limitador de llamadas a Gemini compartido entre nodos (una sola fila, id = 1)
+CREATE TABLE IF NOT EXISTS cuota_gemini (
+    id INTEGER PRIMARY KEY,
+    solicitudes DOUBLE PRECISION NOT NULL,
+    tokens DOUBLE PRECISION NOT NULL,
+    factor DOUBLE PRECISION NOT NULL,
+    pausa_hasta TIMESTAMP,
+    actualizado TIMESTAMP NOT NULL
+);
+
 -- =============================================================================
 -- TABLAS DE TRL_Version2 (PROCESAMIENTO DE DOCUMENTOS)
 -- =============================================================================
@@ -103,18 +183,30 @@ CREATE TABLE IF NOT EXISTS reporte_proyecto (
 CREATE TABLE IF NOT EXISTS documents (
     id SERIAL PRIMARY KEY,
     filename VARCHAR(255) NOT NULL,
+    original_filename VARCHAR(255),
     original_path VARCHAR(500),
+    blob_key VARCHAR(128),
     file_type VARCHAR(50),
     file_size INTEGER,
     title VARCHAR(500),
     author VARCHAR(255),
     created_date TIMESTAMP,
     modified_date TIMESTAMP,
+    content_hash VARCHAR(64),
+    analysis_model VARCHAR(100),
+    prompt_version VARCHAR(50),
     text_content TEXT,
     metadata_json JSONB,
+    analysis_result TEXT,
     status VARCHAR(50) DEFAULT 'pending',
     processing_started_at TIMESTAMP,
     processing_completed_at TIMESTAMP,
+    locked_by VARCHAR(100),
+    heartbeat_at TIMESTAMP,
+    attempts INTEGER DEFAULT 0,
+    cancel_requested BOOLEAN NOT NULL DEFAULT FALSE,
+    submitted_by INTEGER,
+    trace_id VARCHAR(32),
     error_message TEXT,
     page_count INTEGER,
     word_count INTEGER,
@@ -187,5 +279,14 @@ ON CONFLICT DO NOTHING;
 
 -- Índices de optimización
 CREATE INDEX IF NOT EXISTS idx_documents_status ON documents(status);
+CREATE INDEX IF NOT EXISTS idx_documents_content_hash ON documents(content_hash, analysis_model, prompt_version);
+CREATE INDEX IF NOT EXISTS idx_documents_pending_queue ON documents(created_at, id) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_documents_processing_heartbeat ON documents(heartbeat_at) WHERE status = 'PROCESSING';
+CREATE INDEX IF NOT EXISTS idx_documents_created_id ON documents(created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_documents_status_created_id ON documents(status, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_documents_original_filename_prefix ON documents(original_filename text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_documents_blob_key ON documents(blob_key);
+CREATE INDEX IF NOT EXISTS idx_evidencia_blob_key ON evidencia(blob_key);
+CREATE INDEX IF NOT EXISTS idx_evidencia_proyecto_criterio ON evidencia(idproyecto, idcriterio);
 CREATE INDEX IF NOT EXISTS idx_usuario_correo ON usuario(correo);
 CREATE INDEX IF NOT EXISTS idx_proyecto_usuario ON proyecto(idusuario);
@@ -2,31 +2,26 @@ import sys
 import argparse
 from pathlib import Path
 from src.processors.document_processor import DocumentProcessor
-from src.processors.trl_analyzer import TRLAnalyzer
+from src.processors.trl_analyzer import TRLAnalyzer, es_cuota_agotada, EXIT_CUOTA_AGOTADA
 from config.settings import OUTPUT_DIR, LOG_DIR
 from src.utils.logger import setup_logger
 from loguru import logger
 
-def main():
-    parser = argparse.ArgumentParser()
-    parser.add_argument('--file', required=True, help='Ruta al archivo PDF')
-    parser.add_argument('--doc_id', required=False, help='ID del documento en la DB (opcional)')
-    args = parser.parse_args()
-
+def run(file, doc_id=None):
+    """Ejecuta el an\u00e1lisis TRL de un PDF. Devuelve el c\u00f3digo de salida (0 = \u00e9xito)."""
     setup_logger()
-    pdf_path = Path(args.file)
+    pdf_path = Path(file)
     
     if not pdf_path.exists():
         logger.error(f"Archivo {pdf_path} no encontrado")
-        sys.exit(1)
+        return 1
 
     try:
         # 1. Procesamiento b\u00e1sico (Extracci\u00f3n de texto e im\u00e1genes)
         logger.info("Fase 1: Procesamiento de documento y extracci\u00f3n de recursos...")
         processor = DocumentProcessor()
-        # Si no nos pasaron doc_id, el processor crear\u00e1 uno nuevo.
-        # Si ya existe (pasado por Java), el processor podr\u00eda actualizarlo (esto requerir\u00eda ajustar el processor).
-        document_id = processor.process_document(pdf_path)
+        # Con doc_id (cola de Java) se completa esa fila; sin \u00e9l se crea una nueva
+        document_id = processor.process_document(pdf_path, document_id=int(doc_id) if doc_id else None)
         logger.info(f"Documento procesado con ID interno: {document_id}")
 
         # 2. An\u00e1lisis TRL con Gemini
@@ -35,18 +30,31 @@ def main():
         resultado = analyzer.analizar_pdf(pdf_path)
         
         # 3. Guardar resultado
+        logger.info("Fase 3: Guardando resultado del análisis...")
         output_file = OUTPUT_DIR / f"analisis_{document_id}.txt"
         output_file.write_text(resultado, encoding='utf-8')
+        processor.guardar_resultado(document_id, resultado)
         
         logger.info(f"SUCCESS: An\u00e1lisis completado. Resultado en: {output_file}")
         
         # Imprimir el ID para que Java pueda capturarlo si es necesario
-        print(f"DOC_ID:{document_id}")
-        sys.exit(0)
+        print(f"DOC_ID:{document_id}", flush=True)
+        return 0
         
     except Exception as e:
+        if es_cuota_agotada(e):
+            logger.warning(f"Cuota de Gemini agotada: {e}")
+            return EXIT_CUOTA_AGOTADA
         logger.exception(f"Error durante el procesamiento/an\u00e1lisis: {e}")
-        sys.exit(1)
+        return 1
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument('--file', required=True, help='Ruta al archivo PDF')
+    parser.add_argument('--doc_id', required=False, help='ID del documento en la DB (opcional)')
+    args = parser.parse_args()
+
+    sys.exit(run(args.file, args.doc_id))
 
 if __name__ == "__main__":
     main()
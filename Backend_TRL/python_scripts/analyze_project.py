@@ -3,19 +3,15 @@ import argparse
 import shutil
 from pathlib import Path
 from loguru import logger
-from src.processors.trl_analyzer import TRLAnalyzer
+from src.processors.trl_analyzer import TRLAnalyzer, es_cuota_agotada, EXIT_CUOTA_AGOTADA
 from src.storage.db_manager import db_manager
 from config.settings import OUTPUT_DIR, TEMP_DIR
 from src.utils.logger import setup_logger
 from google.genai import types
 
-def main():
-    parser = argparse.ArgumentParser()
-    parser.add_argument('--project_id', required=True, type=int, help='ID del proyecto en la DB')
-    args = parser.parse_args()
-
+def run(project_id):
+    """Ejecuta el análisis global de un proyecto. Devuelve el código de salida (0 = éxito)."""
     setup_logger()
-    project_id = args.project_id
     
     # Crear carpeta temporal para las evidencias del proyecto
     project_temp_dir = TEMP_DIR / f"project_{project_id}"
@@ -24,7 +20,7 @@ def main():
     project_temp_dir.mkdir(parents=True)
 
     try:
-        logger.info(f"Iniciando análisis global para el Proyecto ID: {project_id}")
+        logger.info(f"Fase 1: Iniciando análisis global para el Proyecto ID: {project_id}")
         
         # 1. Obtener evidencias desde la DB
         evidencias = db_manager.get_project_evidences(project_id)
@@ -33,7 +29,7 @@ def main():
             # Crear un TXT indicando que no hay evidencias
             output_file = OUTPUT_DIR / f"analisis_proyecto_{project_id}.txt"
             output_file.write_text(f"El proyecto {project_id} no tiene evidencias cargadas para analizar.", encoding='utf-8')
-            sys.exit(0)
+            return 0
 
         logger.info(f"Se encontraron {len(evidencias)} evidencias para procesar.")
 
@@ -78,13 +74,14 @@ Instrucciones adicionales:
                 logger.warning(f"Tipo de archivo {tipo} no soportado para análisis directo, se ignora: {nombre}")
 
         # 3. Enviar a Gemini
-        logger.info("Enviando conjunto de evidencias a Google Gemini...")
+        logger.info("Fase 2: Enviando conjunto de evidencias a Google Gemini...")
         response = analyzer.client.models.generate_content(
             model=analyzer.model_id,
             contents=gemini_contents
         )
 
         # 4. Guardar resultado final en PDF
+        logger.info("Fase 3: Generando informe PDF...")
         output_file_pdf = OUTPUT_DIR / f"analisis_proyecto_{project_id}.pdf"
         
         from fpdf import FPDF
@@ -229,14 +226,25 @@ Instrucciones adicionales:
         pdf.output(str(output_file_pdf))
         
         logger.info(f"SUCCESS: Análisis de proyecto completado. Informe PDF generado en: {output_file_pdf}")
+        return 0
         
     except Exception as e:
+        if es_cuota_agotada(e):
+            logger.warning(f"Cuota de Gemini agotada: {e}")
+            return EXIT_CUOTA_AGOTADA
         logger.exception(f"Error durante el análisis del proyecto: {e}")
-        sys.exit(1)
+        return 1
     finally:
         # Limpiar archivos temporales (con ignore_errors para evitar dramas en Windows)
         if project_temp_dir.exists():
             shutil.rmtree(project_temp_dir, ignore_errors=True)
 
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument('--project_id', required=True, type=int, help='ID del proyecto en la DB')
+    args = parser.parse_args()
+
+    sys.exit(run(args.project_id))
+
 if __name__ == "__main__":
     main()
@@ -33,6 +33,10 @@ OUTPUT_DIR = STORAGE_DIR / 'analysis'
 TEMP_DIR = STORAGE_DIR / 'temp'
 LOG_DIR = PYTHON_BASE_DIR / 'logs'
 
+# Almacén de archivos de evidencias/reportes (debe coincidir con blob-store.* del backend)
+BLOB_STORE_TYPE = os.getenv('BLOB_STORE_TYPE', 'filesystem')
+BLOB_STORE_DIR = Path(os.getenv('BLOB_STORE_DIR', str(STORAGE_DIR / 'blobs')))
+
 # Crear directorios si no existen
 for directory in [INPUT_DIR, OUTPUT_DIR, TEMP_DIR, LOG_DIR]:
     directory.mkdir(parents=True, exist_ok=True)
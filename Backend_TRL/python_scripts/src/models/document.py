@@ -32,6 +32,7 @@ class Document(Base):
     modified_date = Column(DateTime)
     text_content = Column(Text)
     metadata_json = Column(JSON)
+    analysis_result = Column(Text)
     status = Column(Enum(ProcessingStatus), default=ProcessingStatus.PENDING)
     processing_started_at = Column(DateTime)
     processing_completed_at = Column(DateTime)
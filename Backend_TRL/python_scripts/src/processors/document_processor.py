@@ -19,12 +19,15 @@ class DocumentProcessor:
             return DocumentType.PDF
         raise ValueError(f"Tipo de archivo no soportado: {ext}")
     
-    def process_document(self, file_path: Path, extract_images: bool = True) -> int:
+    def process_document(self, file_path: Path, extract_images: bool = True, document_id: Optional[int] = None) -> int:
         file_path = Path(file_path)
         ext = file_path.suffix.lower()
         if ext not in self.extractors:
             raise ValueError(f"Tipo de archivo no soportado: {ext}")
         
+        if document_id is not None:
+            return self._completar_documento(document_id, file_path, ext, extract_images)
+
         document_type = self.get_document_type(file_path)
         
         with db_manager.get_session() as session:
@@ -71,3 +74,39 @@ class DocumentProcessor:
                 raise
             
             return document_id
+
+    def _completar_documento(self, document_id: int, file_path: Path, ext: str, extract_images: bool) -> int:
+        """Completa la fila que creó Java (cola de análisis) con el contenido extraído.
+
+        El estado, el nombre y el tipo de archivo los administra Java, por eso se actualizan
+        solo las columnas de contenido sin cargar la fila en el modelo.
+        """
+        extractor = self.extractors[ext](file_path)
+        text_content = extractor.extract_text()
+        metadata = extractor.extract_metadata()
+
+        with db_manager.get_session() as session:
+            actualizadas = session.query(Document).filter(Document.id == document_id).update({
+                Document.text_content: text_content,
+                Document.metadata_json: metadata,
+                Document.title: metadata.get('title', ''),
+                Document.author: metadata.get('author', ''),
+                Document.word_count: len(text_content.split()),
+                Document.character_count: len(text_content),
+                Document.page_count: metadata.get('page_count'),
+            }, synchronize_session=False)
+            if actualizadas == 0:
+                raise ValueError(f"Documento {document_id} no encontrado")
+
+            if extract_images:
+                image_dir = TEMP_DIR / f"doc_{document_id}_images"
+                for img_path in extractor.extract_images(image_dir):
+                    session.add(ExtractedImage(document_id=document_id, image_path=img_path))
+
+        return document_id
+
+    def guardar_resultado(self, document_id: int, resultado: str):
+        """Guarda el informe TRL en la fila del documento; Java lo reutiliza para el mismo contenido."""
+        with db_manager.get_session() as session:
+            session.query(Document).filter(Document.id == document_id).update(
+                {Document.analysis_result: resultado}, synchronize_session=False)
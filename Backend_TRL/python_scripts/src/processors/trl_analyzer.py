@@ -6,6 +6,15 @@ from loguru import logger
 from config.settings import GEMINI_API_KEY, MODEL_ID, PROJECT_ID, REGION
 from src.storage.db_manager import db_manager
 
+# Código de salida cuando Gemini rechaza la llamada por cuota (429 / RESOURCE_EXHAUSTED).
+# Java lo usa para frenar su limitador y reencolar el trabajo en lugar de marcarlo fallido.
+EXIT_CUOTA_AGOTADA = 75
+
+def es_cuota_agotada(error):
+    """True si la excepción de google-genai corresponde a un límite de cuota o de tasa."""
+    # google.genai.errors.APIError expone el código HTTP en .code
+    return getattr(error, "code", None) == 429 or "RESOURCE_EXHAUSTED" in str(error)
+
 class TRLAnalyzer:
     def __init__(self):
         # Determinar si usar Vertex AI o AI Studio
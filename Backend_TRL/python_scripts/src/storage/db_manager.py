@@ -1,5 +1,5 @@
 import psycopg2
-from config.settings import DATABASE_CONFIG
+from config.settings import DATABASE_CONFIG, BLOB_STORE_TYPE, BLOB_STORE_DIR
 
 class DBManager:
     def __init__(self):
@@ -13,13 +13,29 @@ class DBManager:
         conn = self.get_connection()
         cur = conn.cursor()
         
-        cur.execute("SELECT idevidencia, archivo_nombre, archivo_tipo, archivo_datos FROM evidencia WHERE idproyecto = %s", (project_id,))
-        evidencias = cur.fetchall()
-        
+        # archivo_datos solo existe en filas aún no migradas al almacén de blobs
+        cur.execute("SELECT idevidencia, archivo_nombre, archivo_tipo, blob_key, archivo_datos FROM evidencia WHERE idproyecto = %s", (project_id,))
+        evidencias = []
+        for idevidencia, nombre, tipo, blob_key, datos in cur.fetchall():
+            if blob_key:
+                datos = self.read_blob(conn, blob_key)
+            evidencias.append((idevidencia, nombre, tipo, datos))
+
+        conn.commit()
         cur.close()
         conn.close()
         return evidencias
 
+    def read_blob(self, conn, blob_key):
+        """Lee un archivo del almacén de blobs configurado en el backend"""
+        if BLOB_STORE_TYPE == 'postgres':
+            lobj = conn.lobject(int(blob_key), 'rb')
+            try:
+                return lobj.read()
+            finally:
+                lobj.close()
+        return (BLOB_STORE_DIR / blob_key[:2] / blob_key[2:4] / blob_key).read_bytes()
+
     def get_trl_criteria(self):
         """Obtiene la matriz de criterios (Niveles y Evidencias) desde la DB"""
         conn = self.get_connection()
@@ -1,19 +1,26 @@
+import os
 import sys
 from loguru import logger
 from pathlib import Path
 from config.settings import LOG_FILE, LOG_LEVEL
 
+def trace_id():
+    """traceId del TRACEPARENT (formato W3C) que Java pasa a cada análisis, o '-' si no hay."""
+    parts = os.environ.get("TRACEPARENT", "").split("-")
+    return parts[1] if len(parts) == 4 else "-"
+
 def setup_logger():
     logger.remove()
+    logger.configure(extra={"trace_id": trace_id()})
     logger.add(
         sys.stdout,
-        format="<green>{time:YYYY-MM-DD HH:mm:ss}</green> | <level>{level: <8}</level> | <cyan>{name}</cyan>:<cyan>{function}</cyan>:<cyan>{line}</cyan> - <level>{message}</level>",
+        format="<green>{time:YYYY-MM-DD HH:mm:ss}</green> | <level>{level: <8}</level> | <cyan>{name}</cyan>:<cyan>{function}</cyan>:<cyan>{line}</cyan> [{extra[trace_id]}] - <level>{message}</level>",
         level=LOG_LEVEL,
-        colorize=True
+        colorize=sys.stdout.isatty()
     )
     logger.add(
         LOG_FILE,
-        format="{time:YYYY-MM-DD HH:mm:ss} | {level: <8} | {name}:{function}:{line} - {message}",
+        format="{time:YYYY-MM-DD HH:mm:ss} | {level: <8} | {name}:{function}:{line} [{extra[trace_id]}] - {message}",
         level=LOG_LEVEL,
         rotation="10 MB",
         retention="30 days",
@@ -0,0 +1,76 @@
+"""
+Worker persistente para el pool de análisis de Java (PythonWorkerPool).
+
+Protocolo: una petición JSON por línea en stdin y una respuesta JSON por línea en stdout.
+    {"id": "...", "type": "trl_analysis", "args": {"file": "...", "doc_id": "...", "traceparent": "00-..."}}
+    {"id": "...", "type": "project_analysis", "args": {"project_id": 7}}
+    {"id": "...", "type": "ping"}
+Respuesta:
+    {"id": "...", "ok": true, "exitCode": 0, "error": null}
+
+stdout queda reservado para el protocolo; los logs (loguru, print) se envían a stderr,
+que Java lee y asocia al trabajo en curso.
+"""
+import os
+import sys
+import json
+
+# Reservar stdout para el protocolo antes de importar módulos que configuran loguru
+protocol_out = sys.stdout
+sys.stdout = sys.stderr
+
+# Importaciones pesadas una sola vez por proceso (google-genai, PDF, DB manager)
+import analyze_main
+import analyze_project
+
+
+def handle(request):
+    request_type = request.get("type")
+    args = request.get("args") or {}
+
+    if request_type == "ping":
+        return 0
+
+    # Mismo contrato que el modo proceso: la traza del trabajo llega en TRACEPARENT
+    if args.get("traceparent"):
+        os.environ["TRACEPARENT"] = args["traceparent"]
+    else:
+        os.environ.pop("TRACEPARENT", None)
+
+    if request_type == "trl_analysis":
+        return analyze_main.run(args["file"], args.get("doc_id"))
+    if request_type == "project_analysis":
+        return analyze_project.run(int(args["project_id"]))
+    raise ValueError(f"Tipo de petición desconocido: {request_type}")
+
+
+def respond(request_id, exit_code, error=None):
+    response = {"id": request_id, "ok": exit_code == 0, "exitCode": exit_code, "error": error}
+    protocol_out.write(json.dumps(response) + "\n")
+    protocol_out.flush()
+
+
+def main():
+    # Señal de arranque: Java espera este mensaje antes de enviar peticiones
+    respond("ready", 0)
+
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+
+        request_id = None
+        try:
+            request = json.loads(line)
+            request_id = request.get("id")
+            exit_code = handle(request)
+            respond(request_id, exit_code)
+        except SystemExit as e:
+            respond(request_id, e.code if isinstance(e.code, int) else 1)
+        except Exception as e:
+            print(f"Error en worker: {e}", file=sys.stderr, flush=True)
+            respond(request_id, 1, str(e))
+
+
+if __name__ == "__main__":
+    main()
@@ -1,15 +1,16 @@
 package trl.TRL.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import trl.TRL.dto.CriterioRequest;
 import trl.TRL.dto.CriterioResponse;
+import trl.TRL.service.CatalogoTRL;
+import trl.TRL.service.CatalogoTRLService;
 import trl.TRL.service.CriterioService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/criterios")
 @RequiredArgsConstructor
@@ -17,6 +18,7 @@ import java.util.List;
 public class CriterioController {
 
     private final CriterioService criterioService;
+    private final CatalogoTRLService catalogoTRLService;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -32,8 +34,11 @@ public class CriterioController {
     @GetMapping
     public ResponseEntity<?> obtenerTodosLosCriterios() {
         try {
-            List<CriterioResponse> criterios = criterioService.obtenerTodosLosCriterios();
-            return ResponseEntity.ok(criterios);
+            CatalogoTRL catalogo = catalogoTRLService.actual();
+            return ResponseEntity.ok()
+                    .eTag(catalogo.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(catalogo.getCriterios());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -42,8 +47,11 @@ public class CriterioController {
     @GetMapping("/nivel/{idNivel}")
     public ResponseEntity<?> obtenerCriteriosPorNivel(@PathVariable Integer idNivel) {
         try {
-            List<CriterioResponse> criterios = criterioService.obtenerCriteriosPorNivel(idNivel);
-            return ResponseEntity.ok(criterios);
+            CatalogoTRL catalogo = catalogoTRLService.actual();
+            return ResponseEntity.ok()
+                    .eTag(catalogo.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(catalogo.getCriteriosPorNivel(idNivel));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -52,8 +60,12 @@ public class CriterioController {
     @GetMapping("/{id}")
     public ResponseEntity<?> obtenerCriterioPorId(@PathVariable Integer id) {
         try {
-            CriterioResponse criterio = criterioService.obtenerCriterioPorId(id);
-            return ResponseEntity.ok(criterio);
+            CatalogoTRL catalogo = catalogoTRLService.actual();
+            CriterioResponse criterio = catalogo.getCriterio(id);
+            return ResponseEntity.ok()
+                    .eTag(catalogo.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(criterio);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -0,0 +1,74 @@
+package trl.TRL.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import trl.TRL.diagnostics.JfrRecordingService;
+import trl.TRL.dto.JfrRecordingStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Control de grabaciones JFR del nodo que atiende la petición.
+ */
+@RestController
+@RequestMapping("/api/admin/jfr")
+@RequiredArgsConstructor
+@CrossOrigin(origins = { "http://localhost:5173", "http://localhost:5174" })
+@PreAuthorize("hasRole('ADMIN')")
+public class DiagnosticoController {
+
+    private final JfrRecordingService jfrRecordingService;
+
+    @GetMapping
+    public ResponseEntity<?> obtenerEstado() {
+        return ResponseEntity.ok(jfrRecordingService.estado());
+    }
+
+    @PostMapping("/start")
+    public ResponseEntity<?> iniciar(@RequestParam(value = "settings", required = false) String settings) {
+        try {
+            JfrRecordingStatus estado = jfrRecordingService.iniciar(settings);
+            return ResponseEntity.ok(estado);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<?> detener() {
+        try {
+            JfrRecordingStatus estado = jfrRecordingService.detener();
+            return ResponseEntity.ok(estado);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/dump")
+    public void volcar(HttpServletResponse response) throws IOException {
+        Path archivo;
+        try {
+            archivo = jfrRecordingService.volcar();
+        } catch (Exception e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        try {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(archivo.getFileName().toString()).build().toString());
+            response.setContentLengthLong(Files.size(archivo));
+            Files.copy(archivo, response.getOutputStream());
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package trl.TRL.controller;
 
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import trl.TRL.dto.EvidenciaRequest;
 import trl.TRL.dto.EvidenciaResponse;
 import trl.TRL.service.EvidenciaService;
+import trl.TRL.storage.BlobDownload;
+import trl.TRL.storage.BlobResponseWriter;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -16,16 +22,18 @@ import java.util.List;
 public class EvidenciaController {
 
     private final EvidenciaService evidenciaService;
+    private final BlobResponseWriter blobResponseWriter;
 
     @PostMapping("/proyectos/{idProyecto}/evidencias")
     public ResponseEntity<?> subirEvidencia(
             @PathVariable Integer idProyecto,
             @RequestParam("file") MultipartFile file,
             @RequestParam("descripcion") String descripcion,
-            @RequestParam("estadoEvidencia") String estadoEvidencia) {
+            @RequestParam("estadoEvidencia") String estadoEvidencia,
+            @RequestParam(value = "idCriterio", required = false) Integer idCriterio) {
         try {
             EvidenciaResponse response = evidenciaService.subirEvidencia(idProyecto, file, descripcion,
-                    estadoEvidencia);
+                    estadoEvidencia, idCriterio);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -52,6 +60,16 @@ public class EvidenciaController {
         }
     }
 
+    @PutMapping("/evidencias/{id}")
+    public ResponseEntity<?> actualizarEvidencia(@PathVariable Integer id, @RequestBody EvidenciaRequest request) {
+        try {
+            EvidenciaResponse evidencia = evidenciaService.actualizarEvidencia(id, request);
+            return ResponseEntity.ok(evidencia);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/evidencias/{id}")
     public ResponseEntity<?> eliminarEvidencia(@PathVariable Integer id) {
         try {
@@ -63,16 +81,15 @@ public class EvidenciaController {
     }
 
     @GetMapping("/evidencias/{id}/archivo")
-    public ResponseEntity<byte[]> descargarEvidencia(@PathVariable Integer id) {
+    public void descargarEvidencia(@PathVariable Integer id, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        BlobDownload descarga;
         try {
-            trl.TRL.model.Evidencia evidencia = evidenciaService.obtenerArchivoEvidencia(id);
-            return ResponseEntity.ok()
-                    .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + evidencia.getArchivoNombre() + "\"")
-                    .contentType(org.springframework.http.MediaType.parseMediaType(evidencia.getArchivoTipo()))
-                    .body(evidencia.getArchivoDatos());
+            descarga = evidenciaService.obtenerDescargaEvidencia(id);
         } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
         }
+        blobResponseWriter.write(descarga, request, response);
     }
 }
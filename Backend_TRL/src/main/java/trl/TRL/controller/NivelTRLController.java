@@ -1,15 +1,16 @@
 package trl.TRL.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import trl.TRL.dto.NivelTRLRequest;
 import trl.TRL.dto.NivelTRLResponse;
+import trl.TRL.service.CatalogoTRL;
+import trl.TRL.service.CatalogoTRLService;
 import trl.TRL.service.NivelTRLService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/niveles-trl")
 @RequiredArgsConstructor
@@ -17,6 +18,7 @@ import java.util.List;
 public class NivelTRLController {
 
     private final NivelTRLService nivelTRLService;
+    private final CatalogoTRLService catalogoTRLService;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -32,8 +34,11 @@ public class NivelTRLController {
     @GetMapping
     public ResponseEntity<?> obtenerTodosLosNiveles() {
         try {
-            List<NivelTRLResponse> niveles = nivelTRLService.obtenerTodosLosNiveles();
-            return ResponseEntity.ok(niveles);
+            CatalogoTRL catalogo = catalogoTRLService.actual();
+            return ResponseEntity.ok()
+                    .eTag(catalogo.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(catalogo.getNiveles());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -42,8 +47,12 @@ public class NivelTRLController {
     @GetMapping("/{id}")
     public ResponseEntity<?> obtenerNivelPorId(@PathVariable Integer id) {
         try {
-            NivelTRLResponse nivel = nivelTRLService.obtenerNivelPorId(id);
-            return ResponseEntity.ok(nivel);
+            CatalogoTRL catalogo = catalogoTRLService.actual();
+            NivelTRLResponse nivel = catalogo.getNivel(id);
+            return ResponseEntity.ok()
+                    .eTag(catalogo.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(nivel);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -1,12 +1,22 @@
 package trl.TRL.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import trl.TRL.dto.AnalisisProyectoJobResponse;
 import trl.TRL.dto.ProyectoRequest;
 import trl.TRL.dto.ProyectoResponse;
+import trl.TRL.dto.PuntajeTRLResponse;
+import trl.TRL.service.AnalisisProyectoService;
+import trl.TRL.service.AnalysisQueueFullException;
 import trl.TRL.service.ProyectoService;
+import trl.TRL.service.PuntajeTRLService;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -16,6 +26,8 @@ import java.util.List;
 public class ProyectoController {
 
     private final ProyectoService proyectoService;
+    private final AnalisisProyectoService analisisProyectoService;
+    private final PuntajeTRLService puntajeTRLService;
 
     @PostMapping
     public ResponseEntity<?> crearProyecto(@RequestBody ProyectoRequest request) {
@@ -67,20 +79,76 @@ public class ProyectoController {
         }
     }
 
-    private final trl.TRL.service.PythonIntegrationService pythonService;
+    /**
+     * Puntaje TRL calculado a partir de las evidencias activas vinculadas a criterios, sin IA.
+     */
+    @GetMapping("/{id}/puntaje-trl")
+    public ResponseEntity<?> obtenerPuntajeTRL(@PathVariable Integer id) {
+        try {
+            PuntajeTRLResponse puntaje = puntajeTRLService.obtenerPuntaje(id);
+            return ResponseEntity.ok(puntaje);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
     @PostMapping("/{id}/analizar")
     public ResponseEntity<?> analizarProyecto(@PathVariable Integer id) {
         try {
-            boolean success = pythonService.executeProjectAnalysis(id);
-            if (success) {
-                return ResponseEntity
-                        .ok("Análisis iniciado correctamente. El resultado se guardará en storage/analysis.");
-            } else {
-                return ResponseEntity.internalServerError().body("Error al ejecutar el análisis.");
-            }
+            AnalisisProyectoJobResponse job = analisisProyectoService.iniciarAnalisis(id);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/proyectos/" + id + "/analisis/" + job.getIdJob()))
+                    .eTag(etag(job))
+                    .body(job);
+        } catch (AnalysisQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Estado de un trabajo de análisis. Con If-None-Match y un ETag vigente responde 304 sin cuerpo.
+     */
+    @GetMapping("/{id}/analisis/{idJob}")
+    public ResponseEntity<?> obtenerEstadoAnalisis(@PathVariable Integer id, @PathVariable String idJob) {
+        try {
+            AnalisisProyectoJobResponse job = analisisProyectoService.obtenerEstado(id, idJob);
+            return ResponseEntity.ok()
+                    .eTag(etag(job))
+                    .cacheControl(CacheControl.noCache())
+                    .body(job);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/analisis/{idJob}/cancel")
+    public ResponseEntity<?> cancelarAnalisis(@PathVariable Integer id, @PathVariable String idJob) {
+        try {
+            return ResponseEntity.accepted().body(analisisProyectoService.cancelar(id, idJob));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    /**
+     * Progreso del trabajo por Server-Sent Events; reemplaza el sondeo de obtenerEstadoAnalisis.
+     */
+    @GetMapping("/{id}/analisis/{idJob}/events")
+    public ResponseEntity<SseEmitter> observarAnalisis(@PathVariable Integer id, @PathVariable String idJob) {
+        try {
+            return ResponseEntity.ok(analisisProyectoService.observar(id, idJob));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private String etag(AnalisisProyectoJobResponse job) {
+        return "\"" + job.getIdJob() + "-" + job.getVersion() + "\"";
+    }
 }
@@ -1,14 +1,16 @@
 package trl.TRL.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import trl.TRL.dto.ReporteProyectoResponse;
-import trl.TRL.model.ReporteProyecto;
 import trl.TRL.service.ReporteProyectoService;
+import trl.TRL.storage.BlobDownload;
+import trl.TRL.storage.BlobResponseWriter;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -18,6 +20,7 @@ import java.util.List;
 public class ReporteProyectoController {
 
     private final ReporteProyectoService reporteService;
+    private final BlobResponseWriter blobResponseWriter;
 
     @GetMapping("/proyecto/{idProyecto}")
     public ResponseEntity<List<ReporteProyectoResponse>> listarReportes(@PathVariable Integer idProyecto) {
@@ -25,16 +28,15 @@ public class ReporteProyectoController {
     }
 
     @GetMapping("/{id}/descargar")
-    public ResponseEntity<byte[]> descargarReporte(@PathVariable Integer id) {
+    public void descargarReporte(@PathVariable Integer id, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        BlobDownload descarga;
         try {
-            ReporteProyecto reporte = reporteService.obtenerArchivoReporte(id);
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + reporte.getNombreArchivo() + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .body(reporte.getArchivoDatos());
+            descarga = reporteService.obtenerDescargaReporte(id);
         } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        blobResponseWriter.write(descarga, request, response);
     }
 }
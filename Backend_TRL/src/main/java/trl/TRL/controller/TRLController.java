@@ -1,13 +1,26 @@
 package trl.TRL.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import trl.TRL.diagnostics.JobLogBuffer;
+import trl.TRL.diagnostics.JobLogRegistry;
+import trl.TRL.dto.AnalysisCacheStats;
+import trl.TRL.dto.AnalysisExecutorStats;
+import trl.TRL.dto.DocumentPage;
 import trl.TRL.model.Document;
+import trl.TRL.service.AnalysisJobExecutor;
+import trl.TRL.service.AnalysisQueueFullException;
 import trl.TRL.service.DocumentProcessingService;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/trl")
@@ -15,16 +28,45 @@ import java.io.IOException;
 public class TRLController {
 
     private final DocumentProcessingService documentProcessingService;
+    private final AnalysisJobExecutor analysisJobExecutor;
+    private final JobLogRegistry jobLogRegistry;
 
     @PostMapping("/analyze")
-    public ResponseEntity<Document> analyzeDocument(@RequestParam("file") MultipartFile file) throws IOException {
-        Document doc = documentProcessingService.processNewDocument(file);
-        return ResponseEntity.ok(doc);
+    public ResponseEntity<?> analyzeDocument(@RequestParam("file") MultipartFile file) throws IOException {
+        try {
+            Document doc = documentProcessingService.processNewDocument(file);
+            return ResponseEntity.ok(doc);
+        } catch (AnalysisQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/executor")
+    public ResponseEntity<AnalysisExecutorStats> getExecutorStats() {
+        return ResponseEntity.ok(analysisJobExecutor.getStats());
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<AnalysisCacheStats> getCacheStats() {
+        return ResponseEntity.ok(documentProcessingService.getCacheStats());
     }
 
     @GetMapping("/documents")
-    public ResponseEntity<java.util.List<Document>> getAllDocuments() {
-        return ResponseEntity.ok(documentProcessingService.getAllDocuments());
+    public ResponseEntity<?> getDocuments(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String filenamePrefix,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields) {
+        try {
+            DocumentPage page = documentProcessingService.listarDocumentos(status, filenamePrefix, cursor, limit,
+                    fields);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/documents/{id}")
@@ -35,4 +77,79 @@ public class TRLController {
         }
         return ResponseEntity.notFound().build();
     }
+
+    /**
+     * Cancela el análisis del documento (solo quien lo subió o un ADMIN); el resultado final
+     * (FAILED) llega también por /events.
+     */
+    @PostMapping("/documents/{id}/cancel")
+    public ResponseEntity<?> cancelDocumentAnalysis(@PathVariable Integer id) {
+        try {
+            documentProcessingService.verificarAccesoAnalisis(id);
+            documentProcessingService.cancelarAnalisis(id);
+            return ResponseEntity.accepted().build();
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Progreso del análisis por Server-Sent Events (evento "estado"): el estado actual al conectar
+     * y luego cada cambio de fase o de estado. La conexión se cierra al terminar el análisis.
+     */
+    @GetMapping("/documents/{id}/events")
+    public ResponseEntity<SseEmitter> streamDocumentEvents(@PathVariable Integer id) {
+        try {
+            return ResponseEntity.ok(documentProcessingService.observarDocumento(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Salida de Python del análisis del documento como text/plain, solo para quien lo subió o un
+     * ADMIN. Con follow=true la respuesta queda abierta y envía las líneas nuevas hasta que el
+     * análisis termine, sin ocupar un hilo del servidor mientras espera.
+     *
+     * Los logs viven en el nodo que ejecutó el análisis (buffer en memoria y storage/logs/jobs):
+     * consultado a otro nodo, el endpoint responde 404.
+     */
+    @GetMapping("/documents/{id}/logs")
+    public ResponseEntity<?> getDocumentLogs(@PathVariable Integer id,
+            @RequestParam(defaultValue = "200") int tail,
+            @RequestParam(defaultValue = "false") boolean follow) throws IOException {
+        try {
+            documentProcessingService.verificarAccesoAnalisis(id);
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        int lineas = Math.max(0, Math.min(tail, 10_000));
+
+        Optional<JobLogBuffer> buffer = jobLogRegistry.buscar(JobLogRegistry.DOCUMENTO, id);
+        List<String> archivo = buffer.isPresent() ? null
+                : jobLogRegistry.leerArchivo(JobLogRegistry.DOCUMENTO, id, lineas);
+        if (buffer.isEmpty() && archivo == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("El documento no tiene logs de análisis en este nodo");
+        }
+
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .contentType(JobLogRegistry.TEXTO)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (buffer.isPresent() && follow) {
+            try {
+                return respuesta.body(jobLogRegistry.seguir(buffer.get(), lineas));
+            } catch (IllegalStateException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+            }
+        }
+        List<String> texto = buffer.isPresent() ? buffer.get().ultimas(lineas).lineas() : archivo;
+        return respuesta.body(texto.isEmpty() ? "" : String.join("\n", texto) + "\n");
+    }
 }
@@ -0,0 +1,74 @@
+package trl.TRL.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Abre y cierra las trazas de los trabajos de análisis. Mientras el trabajo corre, traceId y
+ * spanId quedan en el MDC del hilo; al terminar se registra un timer trl.analysis.phase por fase
+ * y una sola línea de resumen con la fase que dominó la latencia.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnalysisTracer {
+
+    public static final String MDC_TRACE_ID = "traceId";
+    public static final String MDC_SPAN_ID = "spanId";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param traceId  traza generada al encolar el trabajo; si es nula se genera una nueva
+     * @param encolado momento en que el trabajo entró a la cola, para medir la espera
+     */
+    public JobTrace iniciar(String tipo, Object objetivo, String traceId, LocalDateTime encolado) {
+        Duration espera = encolado == null ? Duration.ZERO : Duration.between(encolado, LocalDateTime.now());
+        JobTrace traza = new JobTrace(tipo, objetivo, TraceContext.continuar(traceId), espera);
+        MDC.put(MDC_TRACE_ID, traza.getContexto().traceId());
+        MDC.put(MDC_SPAN_ID, traza.getContexto().spanId());
+        traza.fase(JobTrace.FASE_PREPARACION);
+        return traza;
+    }
+
+    public void terminar(JobTrace traza, boolean exito) {
+        try {
+            Map<String, Long> duraciones = traza.cerrar();
+            long total = 0;
+            String dominante = null;
+            StringJoiner detalle = new StringJoiner(" ");
+            for (Map.Entry<String, Long> fase : duraciones.entrySet()) {
+                Timer.builder("trl.analysis.phase")
+                        .description("Duración de cada fase de los trabajos de análisis")
+                        .tag("tipo", traza.getTipo())
+                        .tag("fase", fase.getKey())
+                        .register(meterRegistry)
+                        .record(fase.getValue(), TimeUnit.NANOSECONDS);
+
+                total += fase.getValue();
+                if (dominante == null || fase.getValue() > duraciones.get(dominante)) {
+                    dominante = fase.getKey();
+                }
+                detalle.add(fase.getKey() + "=" + TimeUnit.NANOSECONDS.toMillis(fase.getValue()) + "ms");
+            }
+
+            log.info("Traza {} {} {} {}: {} total={}ms (fase dominante: {}){}", traza.getContexto().traceId(),
+                    traza.getTipo(), traza.getObjetivo(), exito ? "completado" : "fallido", detalle,
+                    TimeUnit.NANOSECONDS.toMillis(total), dominante,
+                    traza.getDocIdPython() != null ? " DOC_ID " + traza.getDocIdPython() : "");
+        } finally {
+            MDC.remove(MDC_TRACE_ID);
+            MDC.remove(MDC_SPAN_ID);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package trl.TRL.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Descarga de un blob (evidencia o reporte) hacia el cliente.
+ */
+@Name("trl.BlobRead")
+@Label("Lectura de blob")
+@Category({ "TRL", "Archivos" })
+@Description("Envío de un blob en los controladores de descarga")
+@StackTrace(false)
+public class BlobReadEvent extends Event {
+
+    @Label("Clave del blob")
+    public String blobKey;
+
+    @Label("Estado HTTP")
+    public int status;
+
+    @Label("Bytes enviados")
+    @DataAmount
+    public long bytes;
+}
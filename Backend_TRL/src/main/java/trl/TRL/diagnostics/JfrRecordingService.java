@@ -0,0 +1,116 @@
+package trl.TRL.diagnostics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import trl.TRL.dto.JfrRecordingStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Grabación de Java Flight Recorder controlada desde el endpoint de administración. Solo hay
+ * una grabación a la vez; los eventos trl.* se registran junto a los de la JVM.
+ */
+@Service
+@Slf4j
+public class JfrRecordingService {
+
+    @Value("${diagnostics.jfr.settings:default}")
+    private String defaultSettings;
+
+    @Value("${diagnostics.jfr.max-age-minutes:30}")
+    private long maxAgeMinutes;
+
+    @Value("${diagnostics.jfr.max-size-mb:250}")
+    private long maxSizeMb;
+
+    @Value("${diagnostics.jfr.start-on-boot:false}")
+    private boolean startOnBoot;
+
+    private Recording recording;
+
+    @PostConstruct
+    void init() {
+        if (startOnBoot) {
+            try {
+                iniciar(null);
+            } catch (Exception e) {
+                log.warn("No se pudo iniciar la grabación JFR al arrancar: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param settings "default" (bajo costo, apto para producción) o "profile"
+     */
+    public synchronized JfrRecordingStatus iniciar(String settings) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("Ya hay una grabación JFR en curso");
+        }
+        cerrar();
+
+        String configuracion = settings == null || settings.isBlank() ? defaultSettings : settings;
+        Recording nueva = new Recording(Configuration.getConfiguration(configuracion));
+        nueva.setName("trl");
+        nueva.setToDisk(true);
+        nueva.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+        nueva.setMaxSize(maxSizeMb * 1024 * 1024);
+        nueva.enable(PythonProcessEvent.class);
+        nueva.enable(UploadEvent.class);
+        nueva.enable(BlobReadEvent.class);
+        nueva.enable(JwtVerificationEvent.class);
+        nueva.start();
+        recording = nueva;
+
+        log.info("Grabación JFR iniciada (configuración {}, máx. {} min / {} MB)", configuracion, maxAgeMinutes,
+                maxSizeMb);
+        return estado();
+    }
+
+    public synchronized JfrRecordingStatus detener() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("No hay una grabación JFR en curso");
+        }
+        recording.stop();
+        log.info("Grabación JFR detenida");
+        return estado();
+    }
+
+    /**
+     * Vuelca la grabación (en curso o detenida) a un archivo temporal que el llamador debe borrar.
+     */
+    public synchronized Path volcar() throws IOException {
+        if (recording == null || recording.getState() == RecordingState.NEW
+                || recording.getState() == RecordingState.CLOSED) {
+            throw new IllegalStateException("No hay una grabación JFR para volcar");
+        }
+        Path destino = Files.createTempFile("trl-", ".jfr");
+        recording.dump(destino);
+        return destino;
+    }
+
+    public synchronized JfrRecordingStatus estado() {
+        if (recording == null) {
+            return new JfrRecordingStatus("SIN_GRABACION", null, null, 0);
+        }
+        return new JfrRecordingStatus(recording.getState().name(), recording.getStartTime(),
+                recording.getStopTime(), recording.getSize());
+    }
+
+    @PreDestroy
+    synchronized void cerrar() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
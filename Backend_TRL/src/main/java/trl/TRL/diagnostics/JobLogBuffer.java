@@ -0,0 +1,68 @@
+package trl.TRL.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Salida de un trabajo de análisis en un buffer circular de tamaño fijo. Cada línea recibe un
+ * número de secuencia creciente; cuando el buffer se llena se pierden las más antiguas (la copia
+ * completa queda en el archivo que escribe {@link JobLogRegistry}).
+ */
+public class JobLogBuffer {
+
+    private final String clave;
+    private final String[] lineas;
+    private long siguiente;
+    private boolean cerrado;
+    private long cerradoEn;
+
+    JobLogBuffer(String clave, int capacidad) {
+        this.clave = clave;
+        this.lineas = new String[Math.max(1, capacidad)];
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    synchronized void agregar(String linea) {
+        lineas[(int) (siguiente % lineas.length)] = linea;
+        siguiente++;
+    }
+
+    synchronized void cerrar() {
+        cerrado = true;
+        cerradoEn = System.currentTimeMillis();
+    }
+
+    /**
+     * Líneas desde la secuencia indicada; si ya salieron del buffer se devuelve desde la más
+     * antigua disponible.
+     */
+    public synchronized Lectura leer(long desde) {
+        long inicio = Math.max(desde, Math.max(0, siguiente - lineas.length));
+        List<String> resultado = new ArrayList<>((int) Math.max(0, siguiente - inicio));
+        for (long i = inicio; i < siguiente; i++) {
+            resultado.add(lineas[(int) (i % lineas.length)]);
+        }
+        return new Lectura(resultado, siguiente, cerrado);
+    }
+
+    public Lectura ultimas(int cantidad) {
+        return leer(getSiguiente() - Math.max(0, cantidad));
+    }
+
+    public synchronized long getSiguiente() {
+        return siguiente;
+    }
+
+    synchronized boolean expirado(long retencionMillis) {
+        return cerrado && System.currentTimeMillis() - cerradoEn > retencionMillis;
+    }
+
+    /**
+     * @param siguiente secuencia desde la que debe continuar una lectura posterior
+     */
+    public record Lectura(List<String> lineas, long siguiente, boolean cerrado) {
+    }
+}
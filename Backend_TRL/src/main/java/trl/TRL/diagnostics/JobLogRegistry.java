@@ -0,0 +1,361 @@
+package trl.TRL.diagnostics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Captura la salida de Python de cada trabajo fuera del log principal.
+ *
+ * Cada trabajo tiene un {@link JobLogBuffer} en memoria para consultas y seguimiento en vivo;
+ * un hilo escritor vuelca las mismas líneas de forma asíncrona a storage/logs/jobs/{clave}.log.
+ * Si la cola del escritor se llena, las líneas solo quedan en el buffer y se cuentan en
+ * trl.joblogs.dropped; el análisis nunca se bloquea por el disco. El escritor cierra los archivos
+ * que llevan un rato sin líneas, aunque nunca llegue la marca de fin del trabajo.
+ *
+ * Buffers y archivos son locales al nodo que ejecutó el trabajo; los demás nodos no los ven.
+ */
+@Service
+@Slf4j
+public class JobLogRegistry {
+
+    public static final String DOCUMENTO = "documento";
+    public static final String PROYECTO = "proyecto";
+
+    public static final MediaType TEXTO = new MediaType("text", "plain", StandardCharsets.UTF_8);
+
+    private static final Linea FIN_ESCRITOR = new Linea(null, null, false);
+    private static final long INACTIVIDAD_ARCHIVO_MS = 60_000;
+    private static final long INTERVALO_SEGUIMIENTO_MS = 500;
+
+    @Value("${logs.jobs.dir:storage/logs/jobs}")
+    private String directorio;
+
+    @Value("${logs.jobs.buffer-lines:2000}")
+    private int lineasPorBuffer;
+
+    @Value("${logs.jobs.retention-minutes:30}")
+    private long retencionMinutos;
+
+    @Value("${logs.jobs.file-retention-days:7}")
+    private long retencionArchivosDias;
+
+    @Value("${logs.jobs.follow-timeout-seconds:300}")
+    private long seguimientoMaxSegundos;
+
+    @Value("${logs.jobs.follow-max:200}")
+    private int maxSeguimientos;
+
+    private final Map<String, JobLogBuffer> buffers = new ConcurrentHashMap<>();
+    private final BlockingQueue<Linea> pendientes;
+    private final Counter descartadas;
+    private final ScheduledExecutorService seguimiento;
+    private final AtomicInteger seguimientosActivos = new AtomicInteger();
+    private Thread escritor;
+
+    public JobLogRegistry(MeterRegistry meterRegistry, @Value("${logs.jobs.spill-queue-size:10000}") int tamanoCola,
+            @Value("${logs.jobs.follow-threads:2}") int hilosSeguimiento) {
+        this.pendientes = new ArrayBlockingQueue<>(tamanoCola);
+        // Los seguimientos sondean su buffer cada medio segundo; ningún hilo queda esperando líneas
+        AtomicInteger numero = new AtomicInteger();
+        this.seguimiento = Executors.newScheduledThreadPool(Math.max(1, hilosSeguimiento), runnable -> {
+            Thread thread = new Thread(runnable, "job-log-follow-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.descartadas = Counter.builder("trl.joblogs.dropped")
+                .description("Líneas de trabajos que no alcanzaron a escribirse en disco")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciarEscritor() throws IOException {
+        Files.createDirectories(Paths.get(directorio));
+        escritor = new Thread(this::escribirPendientes, "job-log-writer");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Abre un buffer nuevo para el trabajo; un reintento reemplaza el buffer anterior y continúa
+     * el mismo archivo.
+     */
+    public JobLogBuffer abrir(String tipo, Object objetivo, String traceId) {
+        String clave = tipo + "-" + objetivo;
+        JobLogBuffer buffer = new JobLogBuffer(clave, lineasPorBuffer);
+        buffers.put(clave, buffer);
+        registrar(buffer, "--- Análisis iniciado " + LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS)
+                + " (traza " + traceId + ") ---");
+        return buffer;
+    }
+
+    public void registrar(JobLogBuffer buffer, String linea) {
+        buffer.agregar(linea);
+        encolar(new Linea(buffer.getClave(), linea, false));
+    }
+
+    public void cerrar(JobLogBuffer buffer) {
+        buffer.cerrar();
+        // La marca de fin no se descarta con la cola llena: sin ella el archivo queda abierto hasta la inactividad
+        try {
+            if (!pendientes.offer(new Linea(buffer.getClave(), null, true), 1, TimeUnit.SECONDS)) {
+                descartadas.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Optional<JobLogBuffer> buscar(String tipo, Object objetivo) {
+        return Optional.ofNullable(buffers.get(tipo + "-" + objetivo));
+    }
+
+    /**
+     * Envía las últimas {@code cantidad} líneas y luego las nuevas hasta que el trabajo termine
+     * o se alcance logs.jobs.follow-timeout-seconds. El emisor se completa de forma asíncrona.
+     *
+     * @throws IllegalStateException si ya hay logs.jobs.follow-max seguimientos abiertos
+     */
+    public ResponseBodyEmitter seguir(JobLogBuffer buffer, int cantidad) {
+        if (seguimientosActivos.incrementAndGet() > maxSeguimientos) {
+            seguimientosActivos.decrementAndGet();
+            throw new IllegalStateException("Demasiados seguimientos de logs abiertos");
+        }
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter((seguimientoMaxSegundos + 30) * 1000);
+        Seguimiento tarea = new Seguimiento(buffer, emitter, buffer.getSiguiente() - Math.max(0, cantidad),
+                System.currentTimeMillis() + seguimientoMaxSegundos * 1000);
+        emitter.onCompletion(tarea::terminar);
+        emitter.onTimeout(tarea::terminar);
+        emitter.onError(error -> tarea.terminar());
+        seguimiento.execute(tarea);
+        return emitter;
+    }
+
+    private final class Seguimiento implements Runnable {
+
+        private final JobLogBuffer buffer;
+        private final ResponseBodyEmitter emitter;
+        private final long limite;
+        private final AtomicBoolean terminado = new AtomicBoolean();
+        private long desde;
+
+        Seguimiento(JobLogBuffer buffer, ResponseBodyEmitter emitter, long desde, long limite) {
+            this.buffer = buffer;
+            this.emitter = emitter;
+            this.desde = desde;
+            this.limite = limite;
+        }
+
+        @Override
+        public void run() {
+            if (terminado.get()) {
+                return;
+            }
+            JobLogBuffer.Lectura lectura = buffer.leer(desde);
+            desde = lectura.siguiente();
+            try {
+                if (!lectura.lineas().isEmpty()) {
+                    emitter.send(String.join("\n", lectura.lineas()) + "\n", TEXTO);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // El cliente se desconectó
+                terminar();
+                return;
+            }
+            if (lectura.cerrado() || System.currentTimeMillis() >= limite) {
+                terminar();
+                emitter.complete();
+                return;
+            }
+            try {
+                seguimiento.schedule(this, INTERVALO_SEGUIMIENTO_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                terminar();
+                emitter.complete();
+            }
+        }
+
+        void terminar() {
+            if (terminado.compareAndSet(false, true)) {
+                seguimientosActivos.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Últimas líneas del archivo de un trabajo que ya no está en memoria.
+     */
+    public List<String> leerArchivo(String tipo, Object objetivo, int cantidad) throws IOException {
+        Path archivo = Paths.get(directorio, tipo + "-" + objetivo + ".log");
+        if (!Files.exists(archivo)) {
+            return null;
+        }
+        ArrayDeque<String> ultimas = new ArrayDeque<>(Math.max(1, cantidad));
+        try (BufferedReader reader = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                if (ultimas.size() == cantidad) {
+                    ultimas.pollFirst();
+                }
+                if (cantidad > 0) {
+                    ultimas.addLast(linea);
+                }
+            }
+        }
+        return new ArrayList<>(ultimas);
+    }
+
+    private void encolar(Linea linea) {
+        if (!pendientes.offer(linea)) {
+            descartadas.increment();
+        }
+    }
+
+    private void escribirPendientes() {
+        Map<String, ArchivoAbierto> abiertos = new HashMap<>();
+        List<Linea> lote = new ArrayList<>();
+        try {
+            while (true) {
+                Linea primera = pendientes.poll(INACTIVIDAD_ARCHIVO_MS, TimeUnit.MILLISECONDS);
+                if (primera != null) {
+                    lote.add(primera);
+                    pendientes.drainTo(lote);
+                }
+                for (Linea linea : lote) {
+                    if (linea == FIN_ESCRITOR) {
+                        return;
+                    }
+                    try {
+                        escribir(abiertos, linea);
+                    } catch (IOException e) {
+                        descartadas.increment();
+                        log.warn("No se pudo escribir el log del trabajo {}: {}", linea.clave(), e.getMessage());
+                    }
+                }
+                lote.clear();
+                for (ArchivoAbierto archivo : abiertos.values()) {
+                    try {
+                        archivo.writer().flush();
+                    } catch (IOException e) {
+                        log.warn("No se pudo vaciar un log de trabajo: {}", e.getMessage());
+                    }
+                }
+                // Trabajos cuya marca de fin se perdió (cola llena, nodo interrumpido a mitad)
+                long inactivoDesde = System.currentTimeMillis() - INACTIVIDAD_ARCHIVO_MS;
+                abiertos.values().removeIf(archivo -> {
+                    if (archivo.ultimoUso() >= inactivoDesde) {
+                        return false;
+                    }
+                    cerrarSilenciosamente(archivo.writer());
+                    return true;
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            abiertos.values().forEach(archivo -> cerrarSilenciosamente(archivo.writer()));
+        }
+    }
+
+    private void escribir(Map<String, ArchivoAbierto> abiertos, Linea linea) throws IOException {
+        if (linea.fin()) {
+            ArchivoAbierto archivo = abiertos.remove(linea.clave());
+            if (archivo != null) {
+                archivo.writer().close();
+            }
+            return;
+        }
+        ArchivoAbierto archivo = abiertos.get(linea.clave());
+        BufferedWriter writer = archivo != null ? archivo.writer()
+                : Files.newBufferedWriter(Paths.get(directorio, linea.clave() + ".log"), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        abiertos.put(linea.clave(), new ArchivoAbierto(writer, System.currentTimeMillis()));
+        writer.write(linea.texto());
+        writer.newLine();
+    }
+
+    private void cerrarSilenciosamente(BufferedWriter writer) {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.debug("No se pudo cerrar un log de trabajo: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${logs.jobs.cleanup-interval-ms:300000}")
+    public void limpiar() {
+        long retencion = retencionMinutos * 60_000;
+        buffers.values().removeIf(buffer -> buffer.expirado(retencion));
+
+        Instant limite = Instant.now().minus(retencionArchivosDias, ChronoUnit.DAYS);
+        try (Stream<Path> archivos = Files.list(Paths.get(directorio))) {
+            archivos.filter(archivo -> {
+                try {
+                    return Files.getLastModifiedTime(archivo).toInstant().isBefore(limite);
+                } catch (IOException e) {
+                    return false;
+                }
+            }).forEach(archivo -> {
+                try {
+                    Files.deleteIfExists(archivo);
+                } catch (IOException e) {
+                    log.warn("No se pudo eliminar el log de trabajo {}: {}", archivo, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("No se pudo limpiar el directorio de logs de trabajos {}: {}", directorio, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void detenerEscritor() throws InterruptedException {
+        seguimiento.shutdownNow();
+        // Se encola al final para que el escritor vacíe lo pendiente antes de terminar
+        if (pendientes.offer(FIN_ESCRITOR, 5, TimeUnit.SECONDS)) {
+            escritor.join(5000);
+        } else {
+            escritor.interrupt();
+        }
+    }
+
+    private record Linea(String clave, String texto, boolean fin) {
+    }
+
+    private record ArchivoAbierto(BufferedWriter writer, long ultimoUso) {
+    }
+}
@@ -0,0 +1,126 @@
+package trl.TRL.diagnostics;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Línea de tiempo de un trabajo de análisis dividida en fases consecutivas (cola, preparacion,
+ * cuota, extraccion, llm, persistencia). Al abrir una fase se cierra la anterior; las fases de Python
+ * se detectan en su salida con {@link #observar(String)}.
+ *
+ * Los métodos son sincronizados porque la salida de Python puede leerse en otro hilo.
+ */
+public class JobTrace {
+
+    public static final String FASE_COLA = "cola";
+    public static final String FASE_PREPARACION = "preparacion";
+    // Espera en el limitador de Gemini antes de lanzar Python
+    public static final String FASE_CUOTA = "cuota";
+    public static final String FASE_EXTRACCION = "extraccion";
+    public static final String FASE_LLM = "llm";
+    public static final String FASE_PERSISTENCIA = "persistencia";
+
+    private static final String PREFIJO_DOC_ID = "DOC_ID:";
+
+    private final String tipo;
+    private final Object objetivo;
+    private final TraceContext contexto;
+    private final Map<String, Long> duraciones = new LinkedHashMap<>();
+
+    private String faseActual;
+    private TraceContext spanActual;
+    private long inicioFase;
+    private String docIdPython;
+    private Consumer<String> alCambiarFase = fase -> {
+    };
+
+    JobTrace(String tipo, Object objetivo, TraceContext contexto, Duration espera) {
+        this.tipo = tipo;
+        this.objetivo = objetivo;
+        this.contexto = contexto;
+        duraciones.put(FASE_COLA, Math.max(0, espera.toNanos()));
+    }
+
+    public void fase(String nombre) {
+        Consumer<String> observador;
+        synchronized (this) {
+            if (nombre.equals(faseActual)) {
+                return;
+            }
+            long ahora = System.nanoTime();
+            cerrarFase(ahora);
+            faseActual = nombre;
+            spanActual = contexto.hijo();
+            inicioFase = ahora;
+            observador = alCambiarFase;
+        }
+        // Fuera del lock: el observador puede publicar eventos o tocar la BD
+        observador.accept(nombre);
+    }
+
+    /**
+     * Se invoca con el nombre de cada fase nueva (desde el hilo que la detecta).
+     */
+    public synchronized void alCambiarFase(Consumer<String> observador) {
+        this.alCambiarFase = observador;
+    }
+
+    /**
+     * Interpreta una línea de la salida de Python: los logs "Fase N:" abren la fase
+     * correspondiente y "DOC_ID:" informa el id interno del documento procesado.
+     */
+    public void observar(String linea) {
+        if (linea == null) {
+            return;
+        }
+        if (linea.contains("Fase 1:")) {
+            fase(FASE_EXTRACCION);
+        } else if (linea.contains("Fase 2:")) {
+            fase(FASE_LLM);
+        } else if (linea.contains("Fase 3:")) {
+            fase(FASE_PERSISTENCIA);
+        } else if (linea.startsWith(PREFIJO_DOC_ID)) {
+            synchronized (this) {
+                docIdPython = linea.substring(PREFIJO_DOC_ID.length()).trim();
+            }
+        }
+    }
+
+    synchronized Map<String, Long> cerrar() {
+        cerrarFase(System.nanoTime());
+        faseActual = null;
+        return new LinkedHashMap<>(duraciones);
+    }
+
+    private void cerrarFase(long ahora) {
+        if (faseActual != null) {
+            duraciones.merge(faseActual, ahora - inicioFase, Long::sum);
+        }
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public Object getObjetivo() {
+        return objetivo;
+    }
+
+    public TraceContext getContexto() {
+        return contexto;
+    }
+
+    public synchronized String getFaseActual() {
+        return faseActual;
+    }
+
+    public synchronized TraceContext getSpanActual() {
+        return spanActual;
+    }
+
+    public synchronized String getDocIdPython() {
+        return docIdPython;
+    }
+}
@@ -0,0 +1,23 @@
+package trl.TRL.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Verificación de un token JWT (caché o parseo completo con la firma HMAC).
+ */
+@Name("trl.JwtVerification")
+@Label("Verificación JWT")
+@Category({ "TRL", "Seguridad" })
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+
+    @Label("Desde caché")
+    public boolean cache;
+
+    @Label("Válido")
+    public boolean valido;
+}
@@ -0,0 +1,31 @@
+package trl.TRL.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Ejecución de un análisis en Python (proceso nuevo o worker del pool).
+ */
+@Name("trl.PythonProcess")
+@Label("Proceso Python")
+@Category({ "TRL", "Análisis" })
+@Description("Duración y resultado de executeTRLAnalysis / executeProjectAnalysis")
+@StackTrace(false)
+public class PythonProcessEvent extends Event {
+
+    @Label("Script")
+    public String script;
+
+    @Label("Id del documento o proyecto")
+    public int objetivo;
+
+    @Label("Modo")
+    public String modo;
+
+    @Label("Código de salida")
+    public int exitCode;
+}
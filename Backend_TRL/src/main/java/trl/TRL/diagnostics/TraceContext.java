@@ -0,0 +1,39 @@
+package trl.TRL.diagnostics;
+
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Identificadores de traza con el formato de W3C Trace Context: traceId de 16 bytes y spanId de
+ * 8 bytes en hexadecimal. Python los recibe en la variable de entorno TRACEPARENT.
+ */
+public record TraceContext(String traceId, String spanId) {
+
+    public static TraceContext nuevo() {
+        return new TraceContext(aleatorio(16), aleatorio(8));
+    }
+
+    /**
+     * Continúa una traza ya generada (por ejemplo la guardada con el documento al subirlo).
+     */
+    public static TraceContext continuar(String traceId) {
+        if (traceId == null || traceId.length() != 32) {
+            return nuevo();
+        }
+        return new TraceContext(traceId, aleatorio(8));
+    }
+
+    public TraceContext hijo() {
+        return new TraceContext(traceId, aleatorio(8));
+    }
+
+    public String traceparent() {
+        return "00-" + traceId + "-" + spanId + "-01";
+    }
+
+    private static String aleatorio(int bytes) {
+        byte[] valor = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(valor);
+        return HexFormat.of().formatHex(valor);
+    }
+}
@@ -0,0 +1,30 @@
+package trl.TRL.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Copia de un archivo multipart al BlobStore.
+ */
+@Name("trl.Upload")
+@Label("Carga de archivo")
+@Category({ "TRL", "Archivos" })
+@Description("Ingesta multipart en DocumentProcessingService y EvidenciaService")
+@StackTrace(false)
+public class UploadEvent extends Event {
+
+    @Label("Tipo")
+    public String tipo;
+
+    @Label("Tamaño")
+    @DataAmount
+    public long bytes;
+
+    @Label("Clave del blob")
+    public String blobKey;
+}
@@ -0,0 +1,25 @@
+package trl.TRL.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cambio de estado o de fase de un análisis, enviado por SSE a quienes lo observan.
+ *
+ * tipo es "documento" (id = id del documento) o "proyecto" (id = idJob del trabajo).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalisisEvento {
+    private String tipo;
+    private String id;
+    private String estado;
+    private String fase;
+    private String mensaje;
+    private boolean terminado;
+    private LocalDateTime fecha;
+}
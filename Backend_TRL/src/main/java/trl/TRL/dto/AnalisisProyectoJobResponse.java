@@ -0,0 +1,21 @@
+package trl.TRL.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalisisProyectoJobResponse {
+    private String idJob;
+    private Integer idProyecto;
+    private String estado;
+    private String mensaje;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+    private Long version;
+}
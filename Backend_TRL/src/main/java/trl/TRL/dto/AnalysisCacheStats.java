@@ -0,0 +1,14 @@
+package trl.TRL.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisCacheStats {
+    private long hits;
+    private long misses;
+    private double hitRatio;
+}
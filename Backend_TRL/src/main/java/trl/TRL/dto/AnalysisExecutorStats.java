@@ -0,0 +1,31 @@
+package trl.TRL.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisExecutorStats {
+    private int workers;
+    private int activeWorkers;
+    private int queueDepth;
+    private int queueCapacity;
+    private double utilisation;
+    private long completedJobs;
+    private long rejectedJobs;
+    private Map<String, LaneStats> lanes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LaneStats {
+        private int maxConcurrency;
+        private int active;
+        private int queued;
+        private int waitingUsers;
+    }
+}
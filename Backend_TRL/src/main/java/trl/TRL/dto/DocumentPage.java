@@ -0,0 +1,18 @@
+package trl.TRL.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de documentos. nextCursor es null cuando no hay más resultados.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentPage {
+    private List<DocumentSummary> items;
+    private String nextCursor;
+}
@@ -0,0 +1,39 @@
+package trl.TRL.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vista resumida de un documento para listados. textContent y metadataJson solo se
+ * incluyen cuando el cliente los pide con el parámetro fields.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSummary {
+    private Integer id;
+    private String filename;
+    private String fileType;
+    private Integer fileSize;
+    private String title;
+    private String author;
+    private String status;
+    private String errorMessage;
+    private Integer pageCount;
+    private Integer wordCount;
+    private Integer characterCount;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime processingStartedAt;
+    private LocalDateTime processingCompletedAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String textContent;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String metadataJson;
+}
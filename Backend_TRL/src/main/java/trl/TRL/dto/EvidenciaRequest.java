@@ -10,4 +10,5 @@ import lombok.NoArgsConstructor;
 public class EvidenciaRequest {
     private String descripcion;
     private String estadoEvidencia;
+    private Integer idCriterio;
 }
@@ -13,6 +13,7 @@ public class EvidenciaResponse {
     private Integer idEvidencia;
     private Integer idProyecto;
     private String nombreProyecto;
+    private Integer idCriterio;
     private String archivoNombre;
     private String descripcion;
     private LocalDate fechaCarga;
@@ -0,0 +1,17 @@
+package trl.TRL.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JfrRecordingStatus {
+    private String estado;
+    private Instant inicio;
+    private Instant fin;
+    private long tamanoBytes;
+}
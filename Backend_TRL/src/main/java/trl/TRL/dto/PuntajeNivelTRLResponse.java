@@ -0,0 +1,18 @@
+package trl.TRL.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PuntajeNivelTRLResponse {
+    private Integer idNivel;
+    private Integer numNivel;
+    private String nomNivel;
+    private Integer puntaje;
+    private Integer puntajeAcumulado;
+    private Integer puntajeMinimo;
+    private boolean validado;
+}
@@ -0,0 +1,18 @@
+package trl.TRL.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PuntajeTRLResponse {
+    private Integer idProyecto;
+    // Último nivel validado de forma consecutiva desde TRL 1 (0 si ninguno)
+    private Integer nivelAlcanzado;
+    private Integer puntajeTotal;
+    private List<PuntajeNivelTRLResponse> niveles;
+}
@@ -0,0 +1,76 @@
+package trl.TRL.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "analisis_proyecto_job", indexes = {
+        @Index(name = "idx_analisis_job_proyecto", columnList = "idproyecto, estado")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalisisProyectoJob {
+
+    public static final String ESTADO_PENDIENTE = "PENDIENTE";
+    public static final String ESTADO_EN_PROCESO = "EN_PROCESO";
+    public static final String ESTADO_COMPLETADO = "COMPLETADO";
+    public static final String ESTADO_FALLIDO = "FALLIDO";
+
+    @Id
+    @Column(name = "idjob", length = 36)
+    private String idJob;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "idproyecto", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Proyecto proyecto;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado;
+
+    @Column(name = "mensaje", columnDefinition = "TEXT")
+    private String mensaje;
+
+    @Column(name = "nodo", length = 100)
+    private String nodo;
+
+    @Column(name = "trace_id", length = 32)
+    private String traceId;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_inicio")
+    private LocalDateTime fechaInicio;
+
+    @Column(name = "fecha_fin")
+    private LocalDateTime fechaFin;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "cancelacion_solicitada", nullable = false,
+            columnDefinition = "BOOLEAN NOT NULL DEFAULT FALSE")
+    private boolean cancelacionSolicitada;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        heartbeatAt = fechaCreacion;
+    }
+
+    public boolean isTerminado() {
+        return ESTADO_COMPLETADO.equals(estado) || ESTADO_FALLIDO.equals(estado);
+    }
+}
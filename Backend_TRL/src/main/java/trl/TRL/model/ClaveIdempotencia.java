@@ -0,0 +1,51 @@
+package trl.TRL.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Respuesta guardada para un Idempotency-Key. La clave es el SHA-256 de usuario + clave enviada
+ * y la huella el SHA-256 de la petición, así la fila ocupa lo mismo sea cual sea la clave.
+ */
+@Entity
+@Table(name = "clave_idempotencia", indexes = {
+        @Index(name = "idx_clave_idempotencia_expiracion", columnList = "fecha_expiracion")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaveIdempotencia {
+
+    public static final String ESTADO_EN_CURSO = "EN_CURSO";
+    public static final String ESTADO_COMPLETADO = "COMPLETADO";
+
+    @Id
+    @Column(name = "clave", length = 64)
+    private String clave;
+
+    @Column(name = "huella", nullable = false, length = 64)
+    private String huella;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado;
+
+    @Column(name = "codigo_estado")
+    private Integer codigoEstado;
+
+    // Cabeceras de la respuesta que se repiten (Content-Type, Location, ETag) en JSON
+    @Column(name = "cabeceras", columnDefinition = "TEXT")
+    private String cabeceras;
+
+    @Column(name = "cuerpo")
+    private byte[] cuerpo;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_expiracion", nullable = false)
+    private LocalDateTime fechaExpiracion;
+}
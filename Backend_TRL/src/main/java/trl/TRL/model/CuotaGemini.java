@@ -0,0 +1,41 @@
+package trl.TRL.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado compartido del limitador de llamadas a Gemini (una sola fila, id = 1): los dos cubos
+ * de tokens y el factor de frenado, comunes a todos los nodos porque la cuota es una sola.
+ */
+@Entity
+@Table(name = "cuota_gemini")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CuotaGemini {
+
+    @Id
+    private Integer id;
+
+    // Solicitudes disponibles (cubo de solicitudes por minuto)
+    @Column(name = "solicitudes", nullable = false)
+    private Double solicitudes;
+
+    // Tokens estimados disponibles (cubo de tokens por minuto)
+    @Column(name = "tokens", nullable = false)
+    private Double tokens;
+
+    // Fracción del presupuesto configurado que se repone; baja con cada 429 y se recupera con los éxitos
+    @Column(name = "factor", nullable = false)
+    private Double factor;
+
+    @Column(name = "pausa_hasta")
+    private LocalDateTime pausaHasta;
+
+    @Column(name = "actualizado", nullable = false)
+    private LocalDateTime actualizado;
+}
@@ -10,7 +10,11 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "documents")
+@Table(name = "documents", indexes = {
+        @Index(name = "idx_documents_content_hash", columnList = "content_hash, analysis_model, prompt_version"),
+        @Index(name = "idx_documents_created_id", columnList = "created_at DESC, id DESC"),
+        @Index(name = "idx_documents_status_created_id", columnList = "status, created_at DESC, id DESC")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,6 +27,10 @@ public class Document {
     @Column(nullable = false)
     private String filename;
 
+    // Nombre con el que se subió, sin el prefijo de tiempo de filename; lo usa el filtro por prefijo
+    @Column(name = "original_filename")
+    private String originalFilename;
+
     @Column(name = "original_path", length = 500)
     private String originalPath;
 
@@ -41,6 +49,19 @@ public class Document {
     @Column(name = "modified_date")
     private LocalDateTime modifiedDate;
 
+    // Clave del archivo en el BlobStore; original_path queda solo para filas antiguas
+    @Column(name = "blob_key", length = 128)
+    private String blobKey;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "analysis_model", length = 100)
+    private String analysisModel;
+
+    @Column(name = "prompt_version", length = 50)
+    private String promptVersion;
+
     @Column(name = "text_content", columnDefinition = "TEXT")
     private String textContent;
 
@@ -48,6 +69,10 @@ public class Document {
     @Column(name = "metadata_json", columnDefinition = "jsonb")
     private String metadataJson;
 
+    // Informe TRL de Gemini; lo escribe el motor de análisis en la fila de la cola
+    @Column(name = "analysis_result", columnDefinition = "TEXT")
+    private String analysisResult;
+
     @Column(length = 50)
     private String status;
 
@@ -57,6 +82,28 @@ public class Document {
     @Column(name = "processing_completed_at")
     private LocalDateTime processingCompletedAt;
 
+    @Column(name = "locked_by", length = 100)
+    private String lockedBy;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "attempts")
+    private Integer attempts;
+
+    // Cancelación pedida mientras el documento estaba en PROCESSING; el nodo que lo analiza la
+    // detecta en su heartbeat y mata el proceso de Python
+    @Column(name = "cancel_requested", nullable = false, columnDefinition = "BOOLEAN NOT NULL DEFAULT FALSE")
+    private boolean cancelRequested;
+
+    // Usuario que subió el documento (null si fue anónimo); reparte los turnos de la cola por usuario
+    @Column(name = "submitted_by")
+    private Integer submittedBy;
+
+    // Traza W3C generada al subir el documento; la retoma el nodo que ejecute el análisis
+    @Column(name = "trace_id", length = 32)
+    private String traceId;
+
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
 
@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
 import java.time.LocalDate;
 
@@ -14,6 +16,9 @@ import java.time.LocalDate;
 @AllArgsConstructor
 public class Evidencia {
 
+    // Solo las evidencias activas vinculadas a un criterio suman al puntaje TRL del proyecto
+    public static final String ESTADO_ACTIVA = "Activa";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "idevidencia")
@@ -23,15 +28,26 @@ public class Evidencia {
     @JoinColumn(name = "idproyecto", nullable = false)
     private Proyecto proyecto;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "idcriterio")
+    @OnDelete(action = OnDeleteAction.SET_NULL)
+    private Criterio criterio;
+
     @Column(name = "archivo_nombre", nullable = false)
     private String archivoNombre;
 
     @Column(name = "archivo_tipo")
     private String archivoTipo;
 
-    @Column(name = "archivo_datos")
-    @org.hibernate.annotations.JdbcTypeCode(org.hibernate.type.SqlTypes.BINARY)
-    private byte[] archivoDatos;
+    // El contenido vive en el BlobStore; la fila solo guarda su referencia
+    @Column(name = "blob_key", length = 128)
+    private String blobKey;
+
+    @Column(name = "tamano_bytes")
+    private Long tamanoBytes;
+
+    @Column(name = "checksum", length = 64)
+    private String checksum;
 
     @Column(name = "descripcion", nullable = false)
     private String descripcion;
@@ -0,0 +1,40 @@
+package trl.TRL.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Número de evidencias activas de un proyecto vinculadas a cada criterio. Un criterio se
+ * considera cumplido mientras el contador sea mayor que cero.
+ */
+@Entity
+@Table(name = "puntaje_proyecto_criterio", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_puntaje_proyecto_criterio", columnNames = { "idproyecto", "idcriterio" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PuntajeProyectoCriterio {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "idproyecto", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Proyecto proyecto;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "idcriterio", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Criterio criterio;
+
+    @Column(name = "evidencias_activas", nullable = false)
+    private Integer evidenciasActivas;
+}
@@ -0,0 +1,45 @@
+package trl.TRL.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Puntaje materializado de un proyecto en un nivel TRL: suma de los puntajes de los criterios
+ * cumplidos de ese nivel.
+ */
+@Entity
+@Table(name = "puntaje_proyecto_nivel", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_puntaje_proyecto_nivel", columnNames = { "idproyecto", "idnivel" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PuntajeProyectoNivel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "idproyecto", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Proyecto proyecto;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "idnivel", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private NivelTRL nivelTRL;
+
+    @Column(name = "puntaje", nullable = false)
+    private Integer puntaje;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+}
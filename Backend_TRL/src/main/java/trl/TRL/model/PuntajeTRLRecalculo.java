@@ -0,0 +1,37 @@
+package trl.TRL.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado del recálculo completo de puntajes TRL (una sola fila, id = 1): la versión del catálogo
+ * (ETag) que se está recalculando y la última que se terminó. Se recalcula cada vez que el catálogo
+ * vigente difiere de la última versión terminada, aunque vuelva a una versión anterior.
+ */
+@Entity
+@Table(name = "puntaje_trl_recalculo")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PuntajeTRLRecalculo {
+
+    @Id
+    private Integer id;
+
+    // Versión reclamada por el nodo que está recalculando; null si no hay recálculo en curso
+    @Column(name = "etag", length = 64)
+    private String etag;
+
+    @Column(name = "iniciado")
+    private LocalDateTime iniciado;
+
+    @Column(name = "etag_completado", length = 64)
+    private String etagCompletado;
+
+    @Column(name = "completado")
+    private LocalDateTime completado;
+}
@@ -4,8 +4,6 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 
@@ -31,9 +29,14 @@ public class ReporteProyecto {
     @Column(name = "tipo_archivo")
     private String tipoArchivo;
 
-    @Column(name = "archivo_datos")
-    @JdbcTypeCode(SqlTypes.BINARY)
-    private byte[] archivoDatos;
+    @Column(name = "blob_key", length = 128)
+    private String blobKey;
+
+    @Column(name = "tamano_bytes")
+    private Long tamanoBytes;
+
+    @Column(name = "checksum", length = 64)
+    private String checksum;
 
     @Column(name = "fecha_creacion", updatable = false)
     private LocalDateTime fechaCreacion;
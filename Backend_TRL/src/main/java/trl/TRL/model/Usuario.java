@@ -4,9 +4,11 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import trl.TRL.security.UsuarioCacheListener;
 
 @Entity
 @Table(name = "usuario")
+@EntityListeners(UsuarioCacheListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,90 @@
+package trl.TRL.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import trl.TRL.model.AnalisisProyectoJob;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalisisProyectoJobRepository extends JpaRepository<AnalisisProyectoJob, String> {
+
+    Optional<AnalisisProyectoJob> findByIdJobAndProyecto_IdProyectoAndProyecto_Usuario_IdUsuario(
+            String idJob, Integer idProyecto, Integer idUsuario);
+
+    Optional<AnalisisProyectoJob> findFirstByProyecto_IdProyectoAndEstadoInOrderByFechaCreacionDesc(
+            Integer idProyecto, Collection<String> estados);
+
+    /**
+     * Bloqueo consultivo por proyecto hasta el fin de la transacción actual; serializa entre
+     * todos los nodos la decisión de crear un trabajo o unirse al que ya está en curso.
+     */
+    @Query(value = """
+            SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(hashtext('analisis_proyecto'), :idProyecto)) bloqueo
+            """, nativeQuery = true)
+    long bloquearProyecto(@Param("idProyecto") Integer idProyecto);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE analisis_proyecto_job SET heartbeat_at = now() WHERE idjob IN (:ids)",
+            nativeQuery = true)
+    int renovarHeartbeat(@Param("ids") Collection<String> ids);
+
+    /**
+     * Pasa el trabajo a EN_PROCESO solo si sigue PENDIENTE (pudo cancelarse mientras esperaba).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE analisis_proyecto_job
+               SET estado = 'EN_PROCESO', mensaje = NULL, fecha_inicio = now(), version = version + 1
+             WHERE idjob = :idJob AND estado = 'PENDIENTE'
+            """, nativeQuery = true)
+    int iniciar(@Param("idJob") String idJob);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE analisis_proyecto_job
+               SET estado = 'FALLIDO', mensaje = :mensaje, fecha_fin = now(), version = version + 1
+             WHERE idjob = :idJob AND estado = 'PENDIENTE'
+            """, nativeQuery = true)
+    int cancelarPendiente(@Param("idJob") String idJob, @Param("mensaje") String mensaje);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE analisis_proyecto_job SET cancelacion_solicitada = TRUE
+             WHERE idjob = :idJob AND estado = 'EN_PROCESO'
+            """, nativeQuery = true)
+    int solicitarCancelacion(@Param("idJob") String idJob);
+
+    /**
+     * Trabajos de este nodo cuya cancelación se pidió (posiblemente desde otro nodo).
+     */
+    @Query(value = """
+            SELECT idjob FROM analisis_proyecto_job
+             WHERE idjob IN (:ids) AND estado = 'EN_PROCESO' AND cancelacion_solicitada
+            """, nativeQuery = true)
+    List<String> findCancelacionSolicitada(@Param("ids") Collection<String> ids);
+
+    /**
+     * Marca como fallidos los trabajos cuyo nodo dejó de enviar heartbeat (nodo caído).
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE analisis_proyecto_job
+               SET estado = 'FALLIDO', mensaje = 'Análisis interrumpido: el nodo dejó de responder',
+                   fecha_fin = now(), version = version + 1
+             WHERE estado IN ('PENDIENTE', 'EN_PROCESO')
+               AND heartbeat_at < now() - make_interval(secs => :staleSeconds)
+            RETURNING idjob
+            """, nativeQuery = true)
+    List<String> marcarAbandonados(@Param("staleSeconds") long staleSeconds);
+}
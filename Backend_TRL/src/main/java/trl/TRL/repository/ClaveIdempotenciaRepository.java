@@ -0,0 +1,60 @@
+package trl.TRL.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import trl.TRL.model.ClaveIdempotencia;
+
+@Repository
+public interface ClaveIdempotenciaRepository extends JpaRepository<ClaveIdempotencia, String> {
+
+    /**
+     * Reserva la clave para la petición en curso. Devuelve 0 si otra petición ya la tiene.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO clave_idempotencia (clave, huella, estado, fecha_creacion, fecha_expiracion)
+            VALUES (:clave, :huella, 'EN_CURSO', now(), now() + make_interval(secs => :ttlSeconds))
+            ON CONFLICT (clave) DO NOTHING
+            """, nativeQuery = true)
+    int reservar(@Param("clave") String clave, @Param("huella") String huella,
+            @Param("ttlSeconds") long ttlSeconds);
+
+    /**
+     * Retoma una reserva EN_CURSO cuyo nodo no la completó (caído a mitad de la petición).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE clave_idempotencia SET fecha_creacion = now()
+             WHERE clave = :clave AND huella = :huella AND estado = 'EN_CURSO'
+               AND fecha_creacion < now() - make_interval(secs => :staleSeconds)
+            """, nativeQuery = true)
+    int retomar(@Param("clave") String clave, @Param("huella") String huella,
+            @Param("staleSeconds") long staleSeconds);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE clave_idempotencia
+               SET estado = 'COMPLETADO', codigo_estado = :codigoEstado, cabeceras = :cabeceras, cuerpo = :cuerpo
+             WHERE clave = :clave
+            """, nativeQuery = true)
+    int completar(@Param("clave") String clave, @Param("codigoEstado") int codigoEstado,
+            @Param("cabeceras") String cabeceras, @Param("cuerpo") byte[] cuerpo);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM clave_idempotencia WHERE clave = :clave AND estado = 'EN_CURSO'",
+            nativeQuery = true)
+    int liberar(@Param("clave") String clave);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM clave_idempotencia WHERE fecha_expiracion < now()", nativeQuery = true)
+    int eliminarExpiradas();
+}
@@ -1,6 +1,7 @@
 package trl.TRL.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import trl.TRL.model.Criterio;
 
@@ -11,5 +12,8 @@ public interface CriterioRepository extends JpaRepository<Criterio, Integer> {
 
     List<Criterio> findByNivelTRL_IdNivel(Integer idNivel);
 
+    @Query("SELECT c FROM Criterio c JOIN FETCH c.nivelTRL ORDER BY c.nivelTRL.numNivel, c.idCriterio")
+    List<Criterio> findAllConNivel();
+
     boolean existsByNombreCriterioAndNivelTRL_IdNivel(String nombreCriterio, Integer idNivel);
 }
@@ -0,0 +1,85 @@
+package trl.TRL.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import trl.TRL.model.CuotaGemini;
+
+import java.util.List;
+
+/**
+ * Cubos de tokens del limitador de Gemini. La reposición y el consumo se calculan en una sola
+ * sentencia sobre la fila: si dos nodos compiten, el segundo reevalúa la condición con la versión
+ * ya actualizada, así el presupuesto nunca se gasta dos veces.
+ */
+@Repository
+public interface CuotaGeminiRepository extends JpaRepository<CuotaGemini, Integer> {
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO cuota_gemini (id, solicitudes, tokens, factor, actualizado)
+            VALUES (1, :rpm, :tpm, 1, clock_timestamp())
+            ON CONFLICT (id) DO NOTHING
+            """, nativeQuery = true)
+    int inicializar(@Param("rpm") double rpm, @Param("tpm") double tpm);
+
+    /**
+     * Repone los cubos según el tiempo transcurrido (a la tasa configurada por el factor actual) y
+     * consume una solicitud y {@code tokens} tokens si alcanzan.
+     *
+     * @return el factor vigente si se concedió el permiso; vacío si hay que esperar
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE cuota_gemini
+               SET solicitudes = LEAST(:rpm, solicitudes
+                       + :rpm * factor * EXTRACT(EPOCH FROM (clock_timestamp() - actualizado)) / 60) - 1,
+                   tokens = LEAST(:tpm, tokens
+                       + :tpm * factor * EXTRACT(EPOCH FROM (clock_timestamp() - actualizado)) / 60) - :tokens,
+                   actualizado = clock_timestamp()
+             WHERE id = 1
+               AND (pausa_hasta IS NULL OR pausa_hasta < clock_timestamp())
+               AND LEAST(:rpm, solicitudes
+                       + :rpm * factor * EXTRACT(EPOCH FROM (clock_timestamp() - actualizado)) / 60) >= 1
+               AND LEAST(:tpm, tokens
+                       + :tpm * factor * EXTRACT(EPOCH FROM (clock_timestamp() - actualizado)) / 60) >= :tokens
+            RETURNING factor
+            """, nativeQuery = true)
+    List<Double> consumir(@Param("rpm") double rpm, @Param("tpm") double tpm, @Param("tokens") double tokens);
+
+    /**
+     * Frenado multiplicativo tras un 429 y pausa de todos los nodos. Los 429 que llegan durante la
+     * pausa vienen de la misma ráfaga y no vuelven a reducir el factor. La reposición se reanuda al
+     * terminar la pausa ({@code actualizado = pausa_hasta}), así no se acumula crédito mientras dura.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE cuota_gemini
+               SET factor = CASE WHEN pausa_hasta IS NULL OR pausa_hasta < clock_timestamp()
+                                 THEN GREATEST(:factorMinimo, factor * :reduccion) ELSE factor END,
+                   pausa_hasta = GREATEST(pausa_hasta, p.fin),
+                   actualizado = GREATEST(pausa_hasta, p.fin),
+                   solicitudes = LEAST(solicitudes, 0),
+                   tokens = LEAST(tokens, 0)
+              FROM (SELECT clock_timestamp() + make_interval(secs => :pausaSegundos) AS fin) p
+             WHERE id = 1
+            RETURNING factor
+            """, nativeQuery = true)
+    List<Double> frenar(@Param("factorMinimo") double factorMinimo, @Param("reduccion") double reduccion,
+            @Param("pausaSegundos") double pausaSegundos);
+
+    /**
+     * Recuperación aditiva tras una llamada exitosa.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE cuota_gemini SET factor = LEAST(1, factor + :paso)
+             WHERE id = 1
+            RETURNING factor
+            """, nativeQuery = true)
+    List<Double> recuperar(@Param("paso") double paso);
+}
@@ -1,14 +1,255 @@
 package trl.TRL.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import trl.TRL.model.Document;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, Integer> {
+public interface DocumentRepository extends JpaRepository<Document, Integer>, DocumentRepositoryCustom {
     List<Document> findByStatus(String status);
 
     List<Document> findByFilenameContaining(String filename);
+
+    long countByStatus(String status);
+
+    boolean existsByIdAndSubmittedBy(Integer id, Integer submittedBy);
+
+    /**
+     * Estado del documento sin cargar la entidad completa (text_content, metadata_json).
+     */
+    @Query("SELECT d.status AS status, d.errorMessage AS errorMessage FROM Document d WHERE d.id = :id")
+    Optional<EstadoDocumento> findEstadoById(@Param("id") Integer id);
+
+    /**
+     * Último análisis reutilizable del mismo contenido. Las filas completadas sin informe (anteriores
+     * a analysis_result) no sirven como caché.
+     */
+    Optional<Document> findFirstByContentHashAndAnalysisModelAndPromptVersionAndStatusAndAnalysisResultIsNotNullOrderByIdDesc(
+            String contentHash, String analysisModel, String promptVersion, String status);
+
+    /**
+     * Reclama hasta {@code limit} documentos PENDING para este nodo. SKIP LOCKED permite
+     * que varios nodos reclamen en paralelo sin bloquearse ni tomar la misma fila.
+     *
+     * De los documentos con el mismo contenido (hash, modelo y prompt) solo se reclama uno a la
+     * vez: los demás esperan en PENDING y reciben su resultado con {@link #completeTwins}. El
+     * bloqueo consultivo por hash evita que dos nodos reclamen copias distintas en paralelo; se
+     * pide solo sobre las filas ya bloqueadas dentro del límite (CTE {@code candidatos}), para no
+     * retener hashes de filas que la consulta descarta. Si el bloqueo no se concede la fila se
+     * queda en PENDING y el reclamo devuelve menos de {@code limit}.
+     *
+     * Los turnos se reparten por usuario: primero el documento más antiguo de cada usuario, luego
+     * el segundo de cada uno, etc. Así quien sube 30 documentos no deja esperando a los demás.
+     */
+    @Transactional
+    @Query(value = """
+            WITH candidatos AS (
+                     SELECT d.id, d.content_hash FROM documents d
+                       JOIN (SELECT id, row_number() OVER (PARTITION BY submitted_by ORDER BY created_at, id) AS turno
+                               FROM documents
+                              WHERE status = 'PENDING') f ON f.id = d.id
+                      WHERE d.status = 'PENDING'
+                        AND (d.content_hash IS NULL OR (
+                             NOT EXISTS (SELECT 1 FROM documents p
+                                          WHERE p.status = 'PROCESSING'
+                                            AND p.content_hash = d.content_hash
+                                            AND p.analysis_model = d.analysis_model
+                                            AND p.prompt_version = d.prompt_version)
+                             AND d.id = (SELECT MIN(t.id) FROM documents t
+                                          WHERE t.status = 'PENDING'
+                                            AND t.content_hash = d.content_hash
+                                            AND t.analysis_model = d.analysis_model
+                                            AND t.prompt_version = d.prompt_version)))
+                      ORDER BY f.turno, d.created_at, d.id
+                      LIMIT :limit
+                      FOR UPDATE OF d SKIP LOCKED),
+                 reclamables AS (
+                     SELECT id FROM candidatos
+                      WHERE content_hash IS NULL
+                         OR pg_try_advisory_xact_lock(hashtext('documento'), hashtext(content_hash)))
+            UPDATE documents
+               SET status = 'PROCESSING', locked_by = :nodeId, heartbeat_at = now(), cancel_requested = FALSE,
+                   processing_started_at = now(), attempts = COALESCE(attempts, 0) + 1, updated_at = now()
+             WHERE id IN (SELECT id FROM reclamables)
+            RETURNING id AS "id", submitted_by AS "submittedBy"
+            """, nativeQuery = true)
+    List<DocumentoReclamado> claimPending(@Param("nodeId") String nodeId, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE documents SET heartbeat_at = now()
+             WHERE id IN (:ids) AND locked_by = :nodeId AND status = 'PROCESSING'
+            """, nativeQuery = true)
+    int renewLeases(@Param("nodeId") String nodeId, @Param("ids") Collection<Integer> ids);
+
+    /**
+     * Documentos de este nodo cuya cancelación se pidió (posiblemente desde otro nodo).
+     */
+    @Query(value = """
+            SELECT id FROM documents
+             WHERE id IN (:ids) AND locked_by = :nodeId AND status = 'PROCESSING' AND cancel_requested
+            """, nativeQuery = true)
+    List<Integer> findCancelRequested(@Param("nodeId") String nodeId, @Param("ids") Collection<Integer> ids);
+
+    /**
+     * Cancela un documento que aún no se empezó a analizar.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE documents
+               SET status = 'FAILED', error_message = :errorMessage, processing_completed_at = now(),
+                   updated_at = now()
+             WHERE id = :id AND status = 'PENDING'
+            """, nativeQuery = true)
+    int cancelPending(@Param("id") Integer id, @Param("errorMessage") String errorMessage);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE documents SET cancel_requested = TRUE, updated_at = now()
+             WHERE id = :id AND status = 'PROCESSING'
+            """, nativeQuery = true)
+    int requestCancel(@Param("id") Integer id);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE documents
+               SET status = :status, error_message = :errorMessage, locked_by = NULL, heartbeat_at = NULL,
+                   processing_completed_at = now(), updated_at = now()
+             WHERE id = :id AND locked_by = :nodeId AND status = 'PROCESSING'
+            """, nativeQuery = true)
+    int completeClaimed(@Param("id") Integer id, @Param("nodeId") String nodeId,
+            @Param("status") String status, @Param("errorMessage") String errorMessage);
+
+    /**
+     * Copia el resultado de {@code sourceId} (COMPLETED), incluido el informe, a los documentos
+     * PENDING con el mismo contenido, modelo y prompt, que esperaban a que terminara. Si el origen
+     * no tiene informe no copia nada: los gemelos siguen en PENDING y se analizan por su cuenta.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE documents d
+               SET title = s.title, author = s.author, created_date = s.created_date,
+                   modified_date = s.modified_date, text_content = s.text_content,
+                   metadata_json = s.metadata_json, page_count = s.page_count, word_count = s.word_count,
+                   character_count = s.character_count, analysis_result = s.analysis_result,
+                   status = 'COMPLETED', error_message = NULL, processing_started_at = now(), processing_completed_at = now(), updated_at = now()
+              FROM documents s
+             WHERE s.id = :sourceId AND s.status = 'COMPLETED' AND s.analysis_result IS NOT NULL
+               AND d.id <> s.id AND d.status = 'PENDING'
+               AND d.content_hash = s.content_hash
+               AND d.analysis_model = s.analysis_model
+               AND d.prompt_version = s.prompt_version
+            RETURNING d.id
+            """, nativeQuery = true)
+    List<Integer> completeTwins(@Param("sourceId") Integer sourceId);
+
+    /**
+     * Completa un documento recién reclamado con el resultado de otro con el mismo contenido que
+     * terminó después de que este se subiera. Solo sirve un origen con informe.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE documents d
+               SET title = s.title, author = s.author, created_date = s.created_date,
+                   modified_date = s.modified_date, text_content = s.text_content,
+                   metadata_json = s.metadata_json, page_count = s.page_count, word_count = s.word_count,
+                   character_count = s.character_count, analysis_result = s.analysis_result,
+                   status = 'COMPLETED', error_message = NULL, locked_by = NULL, heartbeat_at = NULL, processing_completed_at = now(), updated_at = now()
+              FROM documents s
+             WHERE d.id = :id AND d.locked_by = :nodeId AND d.status = 'PROCESSING'
+               AND s.id = (SELECT MAX(c.id) FROM documents c
+                            WHERE c.status = 'COMPLETED' AND c.analysis_result IS NOT NULL
+                              AND c.content_hash = d.content_hash
+                              AND c.analysis_model = d.analysis_model
+                              AND c.prompt_version = d.prompt_version)
+            """, nativeQuery = true)
+    int completeFromTwin(@Param("id") Integer id, @Param("nodeId") String nodeId);
+
+    /**
+     * Guarda el informe de un análisis hecho fuera de los scripts de Python (que lo escriben ellos
+     * mismos), para que sirva de caché y se copie a los gemelos.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE documents SET analysis_result = :resultado, updated_at = now()
+             WHERE id = :id AND status = 'PROCESSING'
+            """, nativeQuery = true)
+    int saveAnalysisResult(@Param("id") Integer id, @Param("resultado") String resultado);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE documents SET status = 'PENDING', locked_by = NULL, heartbeat_at = NULL, updated_at = now()
+             WHERE id IN (:ids) AND locked_by = :nodeId AND status = 'PROCESSING'
+            """, nativeQuery = true)
+    int releaseClaimed(@Param("nodeId") String nodeId, @Param("ids") Collection<Integer> ids);
+
+    /**
+     * Como {@link #releaseClaimed} pero descuenta el intento que sumó {@link #claimPending}: el
+     * documento vuelve a la cola sin haber llegado al servicio de análisis.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE documents
+               SET status = 'PENDING', locked_by = NULL, heartbeat_at = NULL,
+                   attempts = GREATEST(COALESCE(attempts, 0) - 1, 0), updated_at = now()
+             WHERE id = :id AND locked_by = :nodeId AND status = 'PROCESSING'
+            """, nativeQuery = true)
+    int releaseClaimedUncounted(@Param("nodeId") String nodeId, @Param("id") Integer id);
+
+    /**
+     * Devuelve a PENDING los trabajos cuyo lease expiró (nodo caído o colgado). Los que tenían una
+     * cancelación pedida no se reintentan: los marca FAILED {@link #failExhausted}.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE documents SET status = 'PENDING', locked_by = NULL, heartbeat_at = NULL, updated_at = now()
+             WHERE status = 'PROCESSING'
+               AND heartbeat_at < now() - make_interval(secs => :leaseSeconds)
+               AND COALESCE(attempts, 0) < :maxAttempts
+               AND NOT cancel_requested
+            RETURNING id
+            """, nativeQuery = true)
+    List<Integer> requeueStale(@Param("leaseSeconds") long leaseSeconds, @Param("maxAttempts") int maxAttempts);
+
+    @Transactional
+    @Query(value = """
+            UPDATE documents
+               SET status = 'FAILED',
+                   error_message = CASE WHEN cancel_requested THEN 'Análisis cancelado por el usuario'
+                                        ELSE 'Análisis abandonado tras agotar los reintentos' END,
+                   locked_by = NULL, heartbeat_at = NULL, updated_at = now()
+             WHERE status = 'PROCESSING'
+               AND heartbeat_at < now() - make_interval(secs => :leaseSeconds)
+               AND (COALESCE(attempts, 0) >= :maxAttempts OR cancel_requested)
+            RETURNING id
+            """, nativeQuery = true)
+    List<Integer> failExhausted(@Param("leaseSeconds") long leaseSeconds, @Param("maxAttempts") int maxAttempts);
+
+    interface DocumentoReclamado {
+        Integer getId();
+
+        Integer getSubmittedBy();
+    }
+
+    interface EstadoDocumento {
+        String getStatus();
+
+        String getErrorMessage();
+    }
 }
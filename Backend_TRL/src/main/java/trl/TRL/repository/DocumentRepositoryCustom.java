@@ -0,0 +1,21 @@
+package trl.TRL.repository;
+
+import trl.TRL.dto.DocumentSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface DocumentRepositoryCustom {
+
+    /**
+     * Página de documentos ordenada por (created_at, id) descendente usando paginación por
+     * clave: el costo no depende de cuántas páginas se hayan recorrido.
+     *
+     * @param filenamePrefix prefijo del nombre original del archivo (original_filename), sin el
+     *                       prefijo de tiempo que lleva filename
+     * @param afterCreatedAt created_at del último elemento de la página anterior, o null para la primera
+     * @param afterId        id del último elemento de la página anterior, o null para la primera
+     */
+    List<DocumentSummary> buscarPagina(String status, String filenamePrefix, LocalDateTime afterCreatedAt,
+            Integer afterId, int limit, boolean includeText, boolean includeMetadata);
+}
@@ -0,0 +1,73 @@
+package trl.TRL.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import trl.TRL.dto.DocumentSummary;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class DocumentRepositoryCustomImpl implements DocumentRepositoryCustom {
+
+    private static final String COLUMNAS = "id, filename, file_type, file_size, title, author, status, "
+            + "error_message, page_count, word_count, character_count, created_at, updated_at, "
+            + "processing_started_at, processing_completed_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<DocumentSummary> buscarPagina(String status, String filenamePrefix, LocalDateTime afterCreatedAt,
+            Integer afterId, int limit, boolean includeText, boolean includeMetadata) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNAS)
+                .append(includeText ? ", text_content" : ", NULL AS text_content")
+                .append(includeMetadata ? ", metadata_json::text AS metadata_json" : ", NULL AS metadata_json")
+                .append(" FROM documents WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+
+        if (status != null) {
+            sql.append(" AND status = ?");
+            params.add(status);
+        }
+        if (filenamePrefix != null) {
+            sql.append(" AND original_filename LIKE ? ESCAPE '\\'");
+            params.add(escapeLike(filenamePrefix) + "%");
+        }
+        if (afterCreatedAt != null && afterId != null) {
+            sql.append(" AND (created_at, id) < (?, ?)");
+            params.add(Timestamp.valueOf(afterCreatedAt));
+            params.add(afterId);
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        params.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new DocumentSummary(
+                rs.getInt("id"),
+                rs.getString("filename"),
+                rs.getString("file_type"),
+                (Integer) rs.getObject("file_size"),
+                rs.getString("title"),
+                rs.getString("author"),
+                rs.getString("status"),
+                rs.getString("error_message"),
+                (Integer) rs.getObject("page_count"),
+                (Integer) rs.getObject("word_count"),
+                (Integer) rs.getObject("character_count"),
+                toLocalDateTime(rs.getTimestamp("created_at")),
+                toLocalDateTime(rs.getTimestamp("updated_at")),
+                toLocalDateTime(rs.getTimestamp("processing_started_at")),
+                toLocalDateTime(rs.getTimestamp("processing_completed_at")),
+                rs.getString("text_content"),
+                rs.getString("metadata_json")), params.toArray());
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
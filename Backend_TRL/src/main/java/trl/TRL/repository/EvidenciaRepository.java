@@ -1,7 +1,10 @@
 package trl.TRL.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import trl.TRL.dto.EvidenciaResponse;
 import trl.TRL.model.Evidencia;
 
 import java.util.List;
@@ -10,7 +13,12 @@ import java.util.Optional;
 @Repository
 public interface EvidenciaRepository extends JpaRepository<Evidencia, Integer> {
 
-    List<Evidencia> findByProyecto_IdProyecto(Integer idProyecto);
+    // Proyección para listados: solo las columnas del DTO, sin cargar entidades ni contenido del archivo
+    @Query("SELECT new trl.TRL.dto.EvidenciaResponse(e.idEvidencia, p.idProyecto, p.nombreProyecto, "
+            + "c.idCriterio, e.archivoNombre, e.descripcion, e.fechaCarga, e.estadoEvidencia) "
+            + "FROM Evidencia e JOIN e.proyecto p LEFT JOIN e.criterio c "
+            + "WHERE p.idProyecto = :idProyecto ORDER BY e.idEvidencia")
+    List<EvidenciaResponse> listarPorProyecto(@Param("idProyecto") Integer idProyecto);
 
     Optional<Evidencia> findByIdEvidenciaAndProyecto_Usuario_IdUsuario(Integer idEvidencia, Integer idUsuario);
 }
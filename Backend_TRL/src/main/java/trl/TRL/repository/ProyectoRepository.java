@@ -1,7 +1,10 @@
 package trl.TRL.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import trl.TRL.model.Proyecto;
 
 import java.util.List;
@@ -13,4 +16,18 @@ public interface ProyectoRepository extends JpaRepository<Proyecto, Integer> {
     List<Proyecto> findByUsuario_IdUsuario(Integer idUsuario);
 
     Optional<Proyecto> findByIdProyectoAndUsuario_IdUsuario(Integer idProyecto, Integer idUsuario);
+
+    boolean existsByIdProyectoAndUsuario_IdUsuario(Integer idProyecto, Integer idUsuario);
+
+    @Query("SELECT p.idProyecto FROM Proyecto p ORDER BY p.idProyecto")
+    List<Integer> listarIds();
+
+    /**
+     * Serializa las actualizaciones del puntaje TRL de un proyecto. NO KEY UPDATE no choca con
+     * el bloqueo que toma la FK al insertar evidencias.
+     */
+    @Transactional
+    @Query(value = "SELECT idproyecto FROM proyecto WHERE idproyecto = :idProyecto FOR NO KEY UPDATE",
+            nativeQuery = true)
+    Optional<Integer> bloquearParaPuntaje(@Param("idProyecto") Integer idProyecto);
 }
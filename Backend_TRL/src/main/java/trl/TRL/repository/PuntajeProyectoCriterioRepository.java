@@ -0,0 +1,46 @@
+package trl.TRL.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import trl.TRL.model.PuntajeProyectoCriterio;
+
+@Repository
+public interface PuntajeProyectoCriterioRepository extends JpaRepository<PuntajeProyectoCriterio, Integer> {
+
+    /**
+     * Suma {@code delta} al contador de evidencias activas del criterio y devuelve el nuevo valor.
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO puntaje_proyecto_criterio (idproyecto, idcriterio, evidencias_activas)
+            VALUES (:idProyecto, :idCriterio, GREATEST(:delta, 0))
+            ON CONFLICT (idproyecto, idcriterio) DO UPDATE
+               SET evidencias_activas = GREATEST(puntaje_proyecto_criterio.evidencias_activas + :delta, 0)
+            RETURNING evidencias_activas
+            """, nativeQuery = true)
+    int ajustarEvidenciasActivas(@Param("idProyecto") Integer idProyecto, @Param("idCriterio") Integer idCriterio,
+            @Param("delta") int delta);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM puntaje_proyecto_criterio WHERE idproyecto = :idProyecto", nativeQuery = true)
+    int eliminarPorProyecto(@Param("idProyecto") Integer idProyecto);
+
+    /**
+     * Reconstruye los contadores del proyecto desde la tabla evidencia (fuente de verdad).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO puntaje_proyecto_criterio (idproyecto, idcriterio, evidencias_activas)
+            SELECT idproyecto, idcriterio, COUNT(*)
+              FROM evidencia
+             WHERE idproyecto = :idProyecto AND idcriterio IS NOT NULL AND lower(estadoevidencia) = 'activa'
+             GROUP BY idproyecto, idcriterio
+            """, nativeQuery = true)
+    int recontarPorProyecto(@Param("idProyecto") Integer idProyecto);
+}
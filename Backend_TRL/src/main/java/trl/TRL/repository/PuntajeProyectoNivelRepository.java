@@ -0,0 +1,65 @@
+package trl.TRL.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import trl.TRL.model.PuntajeProyectoNivel;
+
+import java.util.List;
+
+@Repository
+public interface PuntajeProyectoNivelRepository extends JpaRepository<PuntajeProyectoNivel, Integer> {
+
+    interface PuntajeNivel {
+        Integer getIdNivel();
+
+        Integer getPuntaje();
+    }
+
+    @Query("SELECT p.nivelTRL.idNivel AS idNivel, p.puntaje AS puntaje FROM PuntajeProyectoNivel p "
+            + "WHERE p.proyecto.idProyecto = :idProyecto")
+    List<PuntajeNivel> listarPorProyecto(@Param("idProyecto") Integer idProyecto);
+
+    /**
+     * Recalcula solo el nivel al que pertenece el criterio, a partir de los contadores materializados.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO puntaje_proyecto_nivel (idproyecto, idnivel, puntaje, fecha_actualizacion)
+            SELECT :idProyecto, cr.idnivel,
+                   COALESCE((SELECT SUM(c.puntajecriterio)
+                               FROM puntaje_proyecto_criterio pc
+                               JOIN criterios c ON c.idcriterio = pc.idcriterio
+                              WHERE pc.idproyecto = :idProyecto AND c.idnivel = cr.idnivel
+                                AND pc.evidencias_activas > 0), 0),
+                   now()
+              FROM criterios cr
+             WHERE cr.idcriterio = :idCriterio
+            ON CONFLICT (idproyecto, idnivel) DO UPDATE
+               SET puntaje = EXCLUDED.puntaje, fecha_actualizacion = EXCLUDED.fecha_actualizacion
+            """, nativeQuery = true)
+    int recalcularNivelDelCriterio(@Param("idProyecto") Integer idProyecto, @Param("idCriterio") Integer idCriterio);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM puntaje_proyecto_nivel WHERE idproyecto = :idProyecto", nativeQuery = true)
+    int eliminarPorProyecto(@Param("idProyecto") Integer idProyecto);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO puntaje_proyecto_nivel (idproyecto, idnivel, puntaje, fecha_actualizacion)
+            SELECT :idProyecto, n.idnivel,
+                   COALESCE(SUM(c.puntajecriterio) FILTER (WHERE pc.evidencias_activas > 0), 0),
+                   now()
+              FROM niveltrl n
+              LEFT JOIN criterios c ON c.idnivel = n.idnivel
+              LEFT JOIN puntaje_proyecto_criterio pc ON pc.idcriterio = c.idcriterio AND pc.idproyecto = :idProyecto
+             GROUP BY n.idnivel
+            """, nativeQuery = true)
+    int recalcularNivelesPorProyecto(@Param("idProyecto") Integer idProyecto);
+}
@@ -0,0 +1,50 @@
+package trl.TRL.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import trl.TRL.model.PuntajeTRLRecalculo;
+
+import java.util.List;
+
+@Repository
+public interface PuntajeTRLRecalculoRepository extends JpaRepository<PuntajeTRLRecalculo, String> {
+
+    /**
+     * Reclama el recálculo de la versión vigente del catálogo si difiere de la última recalculada
+     * y nadie la está recalculando. Un recálculo en curso de otra versión no lo impide (sus
+     * puntajes ya no sirven), y uno de la misma versión se puede retomar si el nodo que lo tenía no
+     * lo terminó en {@code minutosAbandono} minutos (se cayó a mitad).
+     *
+     * @return el etag si este nodo debe recalcular; vacío si otro ya lo hizo o lo está haciendo
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO puntaje_trl_recalculo (id, etag, iniciado)
+            VALUES (1, :etag, now())
+            ON CONFLICT (id) DO UPDATE SET etag = EXCLUDED.etag, iniciado = now()
+             WHERE CASE WHEN puntaje_trl_recalculo.etag IS NULL
+                        THEN puntaje_trl_recalculo.etag_completado IS DISTINCT FROM EXCLUDED.etag
+                        ELSE puntaje_trl_recalculo.etag <> EXCLUDED.etag
+                             OR puntaje_trl_recalculo.iniciado < now() - make_interval(mins => :minutosAbandono)
+                   END
+            RETURNING etag
+            """, nativeQuery = true)
+    List<String> reclamar(@Param("etag") String etag, @Param("minutosAbandono") int minutosAbandono);
+
+    /**
+     * Registra la versión como la última recalculada, salvo que otro nodo ya haya reclamado una
+     * versión más nueva mientras tanto.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE puntaje_trl_recalculo
+               SET etag_completado = etag, completado = now(), etag = NULL, iniciado = NULL
+             WHERE id = 1 AND etag = :etag
+            """, nativeQuery = true)
+    int completar(@Param("etag") String etag);
+}
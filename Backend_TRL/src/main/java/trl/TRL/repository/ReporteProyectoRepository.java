@@ -1,12 +1,19 @@
 package trl.TRL.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import trl.TRL.dto.ReporteProyectoResponse;
 import trl.TRL.model.ReporteProyecto;
 
 import java.util.List;
 
 @Repository
 public interface ReporteProyectoRepository extends JpaRepository<ReporteProyecto, Integer> {
-    List<ReporteProyecto> findByProyecto_IdProyecto(Integer idProyecto);
+    // Proyección para listados: solo las columnas del DTO, sin cargar entidades ni contenido del archivo
+    @Query("SELECT new trl.TRL.dto.ReporteProyectoResponse(r.idReporte, r.proyecto.idProyecto, r.nombreArchivo, "
+            + "r.fechaCreacion) FROM ReporteProyecto r WHERE r.proyecto.idProyecto = :idProyecto "
+            + "ORDER BY r.fechaCreacion DESC")
+    List<ReporteProyectoResponse> listarPorProyecto(@Param("idProyecto") Integer idProyecto);
 }
@@ -0,0 +1,47 @@
+package trl.TRL.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+/**
+ * Usuario autenticado de la petición actual, resuelto una vez en el filtro JWT.
+ * getName() devuelve el correo, así que Authentication.getName() sigue funcionando igual.
+ */
+@Data
+@AllArgsConstructor
+public class AuthenticatedUser implements AuthenticatedPrincipal {
+
+    private Integer idUsuario;
+    private String correo;
+    private String rol;
+    private boolean activo;
+
+    @Override
+    public String getName() {
+        return correo;
+    }
+
+    public static AuthenticatedUser actual() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser usuario)) {
+            throw new RuntimeException("Usuario no autenticado");
+        }
+        return usuario;
+    }
+
+    /**
+     * Igual que {@link #actual()} pero para rutas públicas, donde puede no haber usuario.
+     */
+    public static Optional<AuthenticatedUser> actualOpcional() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser usuario) {
+            return Optional.of(usuario);
+        }
+        return Optional.empty();
+    }
+}
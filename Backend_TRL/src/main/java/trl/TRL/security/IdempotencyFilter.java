@@ -0,0 +1,234 @@
+package trl.TRL.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import trl.TRL.model.ClaveIdempotencia;
+import trl.TRL.repository.ClaveIdempotenciaRepository;
+import trl.TRL.storage.Checksums;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Soporte de la cabecera Idempotency-Key en las cargas y en el inicio de análisis. La primera
+ * petición con una clave reserva la fila y, al terminar, guarda su respuesta; un reintento con
+ * la misma clave y la misma petición recibe esa respuesta sin volver a subir ni analizar nada.
+ *
+ * La huella de la petición incluye método, ruta y, en multipart, el nombre, archivo y contenido
+ * de cada parte (el boundary cambia entre reintentos, el contenido no). Las claves se separan
+ * por usuario.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String HEADER_REPLAYED = "Idempotent-Replayed";
+
+    private static final List<String> RUTAS = List.of(
+            "/api/trl/analyze",
+            "/api/proyectos/*/evidencias",
+            "/api/proyectos/*/analizar");
+    private static final List<String> CABECERAS_GUARDADAS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.LOCATION, HttpHeaders.ETAG);
+
+    private final ClaveIdempotenciaRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.in-progress-timeout-seconds:900}")
+    private long enCursoTimeoutSeconds;
+
+    @Value("${idempotency.max-response-bytes:262144}")
+    private int maxResponseBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod()) || request.getHeader(HEADER) == null) {
+            return true;
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        return RUTAS.stream().noneMatch(patron -> pathMatcher.match(patron, ruta));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        String claveCliente = request.getHeader(HEADER);
+        if (claveCliente.isBlank() || claveCliente.length() > 255) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Idempotency-Key inválida");
+            return;
+        }
+
+        String clave = hash(usuario() + ":" + claveCliente);
+        String huella = huella(request);
+
+        if (repository.reservar(clave, huella, ttlHours * 3600) == 0
+                && repository.retomar(clave, huella, enCursoTimeoutSeconds) == 0) {
+            responderExistente(clave, huella, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper envoltorio = new ContentCachingResponseWrapper(response);
+        boolean guardada = false;
+        try {
+            filterChain.doFilter(request, envoltorio);
+            guardada = guardar(clave, envoltorio);
+        } finally {
+            if (!guardada) {
+                // Sin respuesta definitiva (error del servidor, cola llena): el reintento vuelve a ejecutarse
+                repository.liberar(clave);
+            }
+            envoltorio.copyBodyToResponse();
+        }
+    }
+
+    private void responderExistente(String clave, String huella, HttpServletResponse response) throws IOException {
+        Optional<ClaveIdempotencia> existente = repository.findById(clave);
+        if (existente.isEmpty()) {
+            // Se liberó entre la reserva fallida y la lectura; el cliente puede reintentar ya
+            responderError(response, HttpStatus.CONFLICT, "La petición con esta Idempotency-Key no terminó, reintente");
+            return;
+        }
+
+        ClaveIdempotencia registro = existente.get();
+        if (!registro.getHuella().equals(huella)) {
+            responderError(response, HttpStatus.UNPROCESSABLE_CONTENT,
+                    "La Idempotency-Key ya se usó con una petición distinta");
+            return;
+        }
+        if (ClaveIdempotencia.ESTADO_EN_CURSO.equals(registro.getEstado())) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            responderError(response, HttpStatus.CONFLICT, "La petición con esta Idempotency-Key sigue en curso");
+            return;
+        }
+
+        meterRegistry.counter("trl.idempotency.replayed").increment();
+        response.setStatus(registro.getCodigoEstado());
+        if (registro.getCabeceras() != null) {
+            Map<String, String> cabeceras = objectMapper.readValue(registro.getCabeceras(),
+                    new TypeReference<Map<String, String>>() {
+                    });
+            cabeceras.forEach(response::setHeader);
+        }
+        response.setHeader(HEADER_REPLAYED, "true");
+        if (registro.getCuerpo() != null) {
+            response.setContentLength(registro.getCuerpo().length);
+            response.getOutputStream().write(registro.getCuerpo());
+        }
+    }
+
+    /**
+     * Guarda las respuestas definitivas: éxitos y errores del cliente, salvo 409 y 429 que
+     * invitan a reintentar.
+     */
+    private boolean guardar(String clave, ContentCachingResponseWrapper respuesta) {
+        int codigo = respuesta.getStatus();
+        if (codigo >= 500 || codigo == HttpStatus.CONFLICT.value() || codigo == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return false;
+        }
+        byte[] cuerpo = respuesta.getContentAsByteArray();
+        if (cuerpo.length > maxResponseBytes) {
+            log.warn("Respuesta de {} bytes demasiado grande para guardarla por Idempotency-Key", cuerpo.length);
+            return false;
+        }
+
+        Map<String, String> cabeceras = new LinkedHashMap<>();
+        for (String nombre : CABECERAS_GUARDADAS) {
+            String valor = respuesta.getHeader(nombre);
+            if (valor != null) {
+                cabeceras.put(nombre, valor);
+            }
+        }
+        if (respuesta.getContentType() != null) {
+            cabeceras.put(HttpHeaders.CONTENT_TYPE, respuesta.getContentType());
+        }
+        return repository.completar(clave, codigo, objectMapper.writeValueAsString(cabeceras), cuerpo) > 0;
+    }
+
+    private String huella(HttpServletRequest request) throws IOException, ServletException {
+        MessageDigest digest = Checksums.sha256();
+        actualizar(digest, request.getMethod());
+        actualizar(digest, request.getRequestURI());
+        actualizar(digest, request.getQueryString());
+
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.toLowerCase().startsWith("multipart/")) {
+            List<Part> partes = new ArrayList<>(request.getParts());
+            partes.sort(Comparator.comparing(Part::getName));
+            byte[] buffer = new byte[64 * 1024];
+            for (Part parte : partes) {
+                actualizar(digest, parte.getName());
+                actualizar(digest, parte.getSubmittedFileName());
+                try (InputStream in = parte.getInputStream()) {
+                    int leidos;
+                    while ((leidos = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, leidos);
+                    }
+                }
+            }
+        } else {
+            actualizar(digest, String.valueOf(request.getContentLengthLong()));
+        }
+        return Checksums.hex(digest);
+    }
+
+    private void actualizar(MessageDigest digest, String valor) {
+        digest.update((valor == null ? "" : valor).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private String hash(String valor) {
+        MessageDigest digest = Checksums.sha256();
+        digest.update(valor.getBytes(StandardCharsets.UTF_8));
+        return Checksums.hex(digest);
+    }
+
+    private String usuario() {
+        return AuthenticatedUser.actualOpcional().map(usuario -> String.valueOf(usuario.getIdUsuario()))
+                .orElse("anonimo");
+    }
+
+    private void responderError(HttpServletResponse response, HttpStatus status, String mensaje) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(mensaje);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void eliminarExpiradas() {
+        int eliminadas = repository.eliminarExpiradas();
+        if (eliminadas > 0) {
+            log.info("Eliminadas {} Idempotency-Key expiradas", eliminadas);
+        }
+    }
+}
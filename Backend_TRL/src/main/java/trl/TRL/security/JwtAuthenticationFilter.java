@@ -1,5 +1,7 @@
 package trl.TRL.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,12 +17,15 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
+    private final UsuarioPrincipalCache usuarioPrincipalCache;
+    private final MeterRegistry meterRegistry;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -29,16 +34,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
-                String correo = jwtTokenProvider.getCorreoFromToken(jwt);
-                String rol = jwtTokenProvider.getRolFromToken(jwt);
+            if (StringUtils.hasText(jwt)) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                Optional<JwtPrincipal> verificado = jwtTokenProvider.verify(jwt);
+                sample.stop(meterRegistry.timer("trl.jwt.verification",
+                        "resultado", verificado.isPresent() ? "valido" : "invalido"));
 
-                SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + rol);
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(correo,
-                        null, Collections.singletonList(authority));
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                // Rol y estado de la cuenta salen del usuario (cacheado), no del token: una cuenta
+                // desactivada deja de autenticarse aunque su token siga vigente
+                verificado.flatMap(claims -> usuarioPrincipalCache.resolver(claims.getCorreo()))
+                        .filter(AuthenticatedUser::isActivo)
+                        .ifPresent(usuario -> {
+                            SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + usuario.getRol());
+                            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                                    usuario, null, Collections.singletonList(authority));
+                            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                            SecurityContextHolder.getContext().setAuthentication(authentication);
+                        });
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
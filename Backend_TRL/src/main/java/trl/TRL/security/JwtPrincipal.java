@@ -0,0 +1,17 @@
+package trl.TRL.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Claims de un JWT ya verificado: se obtiene con una sola verificación de firma por token.
+ */
+@Data
+@AllArgsConstructor
+public class JwtPrincipal {
+    private String correo;
+    private String rol;
+    private Instant expiresAt;
+}
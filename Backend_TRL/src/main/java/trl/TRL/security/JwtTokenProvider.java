@@ -4,65 +4,83 @@ import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import trl.TRL.diagnostics.JwtVerificationEvent;
 
 import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Optional;
 
 @Component
 public class JwtTokenProvider {
-    
-    @Value("${jwt.secret}")
-    private String jwtSecret;
-    
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
-    
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+
+    private final long jwtExpiration;
+
+    // La clave HMAC y el parser son inmutables y seguros entre hilos: se construyen una sola vez
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final VerifiedTokenCache cache;
+
+    public JwtTokenProvider(@Value("${jwt.secret}") String jwtSecret,
+            @Value("${jwt.expiration}") long jwtExpiration,
+            @Value("${jwt.cache.max-entries:10000}") int cacheMaxEntries,
+            @Value("${jwt.cache.ttl-seconds:300}") long cacheTtlSeconds) {
+        this.jwtExpiration = jwtExpiration;
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.cache = new VerifiedTokenCache(cacheMaxEntries, Duration.ofSeconds(cacheTtlSeconds));
     }
-    
+
     public String generateToken(String correo, String rol) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
-        
+
         return Jwts.builder()
                 .setSubject(correo)
                 .claim("rol", rol)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
-    
-    public String getCorreoFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.getSubject();
-    }
-    
-    public String getRolFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.get("rol", String.class);
-    }
-    
-    public boolean validateToken(String token) {
+
+    /**
+     * Verifica la firma y la expiración del token una sola vez y devuelve sus claims.
+     * Los tokens verificados recientemente se sirven desde la caché.
+     *
+     * @return vacío si el token es inválido o expiró
+     */
+    public Optional<JwtPrincipal> verify(String token) {
+        JwtVerificationEvent evento = new JwtVerificationEvent();
+        evento.begin();
+        Instant now = Instant.now();
+        JwtPrincipal cached = cache.get(token, now);
+        if (cached != null) {
+            registrar(evento, true, true);
+            return Optional.of(cached);
+        }
+
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            JwtPrincipal principal = new JwtPrincipal(claims.getSubject(), claims.get("rol", String.class),
+                    expiration != null ? expiration.toInstant() : null);
+            cache.put(token, principal, now);
+            registrar(evento, false, true);
+            return Optional.of(principal);
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            registrar(evento, false, false);
+            return Optional.empty();
+        }
+    }
+
+    private void registrar(JwtVerificationEvent evento, boolean desdeCache, boolean valido) {
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.cache = desdeCache;
+            evento.valido = valido;
+            evento.commit();
         }
     }
 }
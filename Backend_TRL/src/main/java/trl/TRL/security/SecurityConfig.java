@@ -1,8 +1,13 @@
 package trl.TRL.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManagers;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -10,11 +15,14 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.IpAddressAuthorizationManager;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -26,6 +34,10 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    // Redes desde las que Prometheus puede leer las métricas sin token (CIDR separados por coma)
+    @Value("${management.prometheus.allowed-networks:127.0.0.1/32,::1/128}")
+    private List<String> redesPrometheus;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -38,13 +50,29 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // El despacho ASYNC que cierra una respuesta SSE ya fue autorizado en la petición original
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        // Logs y cancelación de análisis: requieren sesión; la propiedad del documento se valida en el servicio
+                        .requestMatchers("/api/trl/documents/*/logs", "/api/trl/documents/*/cancel").authenticated()
                         .requestMatchers("/api/auth/**", "/api/trl/**").permitAll()
+                        // Sondas sin token; las métricas solo desde las redes del scraper o con rol ADMIN
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/prometheus").access(accesoPrometheus())
                         .anyRequest().authenticated())
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
+    private AuthorizationManager<RequestAuthorizationContext> accesoPrometheus() {
+        List<AuthorizationManager<RequestAuthorizationContext>> permitidos = new ArrayList<>();
+        redesPrometheus.stream().map(String::trim).filter(red -> !red.isEmpty())
+                .map(IpAddressAuthorizationManager::hasIpAddress)
+                .forEach(permitidos::add);
+        permitidos.add(AuthorityAuthorizationManager.hasRole("ADMIN"));
+        return AuthorizationManagers.anyOf(permitidos.toArray(AuthorizationManager[]::new));
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
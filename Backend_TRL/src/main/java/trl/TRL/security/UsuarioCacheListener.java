@@ -0,0 +1,28 @@
+package trl.TRL.security;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import trl.TRL.model.Usuario;
+
+/**
+ * Invalida la caché de principales cuando un usuario cambia (rol, estado de la cuenta, correo)
+ * o se elimina.
+ */
+@Component
+public class UsuarioCacheListener {
+
+    // Perezoso: Hibernate crea el listener mientras se construye el EntityManagerFactory
+    private final ObjectProvider<UsuarioPrincipalCache> cache;
+
+    public UsuarioCacheListener(ObjectProvider<UsuarioPrincipalCache> cache) {
+        this.cache = cache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void invalidar(Usuario usuario) {
+        cache.ifAvailable(c -> c.invalidar(usuario.getIdUsuario()));
+    }
+}
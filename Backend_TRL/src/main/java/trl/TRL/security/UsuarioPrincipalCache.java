@@ -0,0 +1,78 @@
+package trl.TRL.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import trl.TRL.model.Usuario;
+import trl.TRL.repository.UsuarioRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché acotada correo → {@link AuthenticatedUser}. Evita consultar el usuario en cada petición;
+ * UsuarioCacheListener la invalida cuando el usuario se modifica o elimina en este nodo y el TTL
+ * acota el tiempo que un cambio hecho en otro nodo tarda en verse.
+ */
+@Component
+public class UsuarioPrincipalCache {
+
+    private final UsuarioRepository usuarioRepository;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public UsuarioPrincipalCache(UsuarioRepository usuarioRepository,
+            @Value("${security.principal-cache.max-entries:5000}") int maxEntries,
+            @Value("${security.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.usuarioRepository = usuarioRepository;
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    public Optional<AuthenticatedUser> resolver(String correo) {
+        Instant now = Instant.now();
+        Entry entry = entries.get(correo);
+        if (entry != null && now.isBefore(entry.validUntil)) {
+            return Optional.of(entry.usuario);
+        }
+
+        Optional<AuthenticatedUser> usuario = usuarioRepository.findByCorreo(correo).map(this::toPrincipal);
+        usuario.ifPresentOrElse(u -> put(correo, u, now), () -> entries.remove(correo));
+        return usuario;
+    }
+
+    /**
+     * Descarta al usuario por id (cubre también el cambio de correo).
+     */
+    public void invalidar(Integer idUsuario) {
+        entries.values().removeIf(entry -> entry.usuario.getIdUsuario().equals(idUsuario));
+    }
+
+    private void put(String correo, AuthenticatedUser usuario, Instant now) {
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(entry -> !now.isBefore(entry.validUntil));
+            Iterator<String> keys = entries.keySet().iterator();
+            int toRemove = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+            while (toRemove-- > 0 && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        entries.put(correo, new Entry(usuario, now.plus(ttl)));
+    }
+
+    private AuthenticatedUser toPrincipal(Usuario usuario) {
+        return new AuthenticatedUser(
+                usuario.getIdUsuario(),
+                usuario.getCorreo(),
+                usuario.getRol().getNombreRol(),
+                "Activa".equals(usuario.getCuentaActiva()));
+    }
+
+    private record Entry(AuthenticatedUser usuario, Instant validUntil) {
+    }
+}
@@ -0,0 +1,84 @@
+package trl.TRL.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché acotada de tokens ya verificados. La clave es el SHA-256 del token (no se retienen
+ * tokens en memoria) y cada entrada vence con el token o tras el TTL, lo que ocurra primero.
+ */
+class VerifiedTokenCache {
+
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    VerifiedTokenCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+    }
+
+    JwtPrincipal get(String token, Instant now) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        String key = hash(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!now.isBefore(entry.validUntil)) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    void put(String token, JwtPrincipal principal, Instant now) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        Instant validUntil = now.plus(ttl);
+        if (principal.getExpiresAt() != null && principal.getExpiresAt().isBefore(validUntil)) {
+            validUntil = principal.getExpiresAt();
+        }
+        entries.put(hash(token), new Entry(principal, validUntil));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict(Instant now) {
+        entries.values().removeIf(entry -> !now.isBefore(entry.validUntil));
+        // Si todas siguen vigentes se descarta una fracción arbitraria para mantener el límite
+        Iterator<String> keys = entries.keySet().iterator();
+        int toRemove = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private record Entry(JwtPrincipal principal, Instant validUntil) {
+    }
+}
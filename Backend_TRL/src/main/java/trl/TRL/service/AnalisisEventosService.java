@@ -0,0 +1,296 @@
+package trl.TRL.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.ObjectMapper;
+import trl.TRL.dto.AnalisisEvento;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Progreso de los análisis por Server-Sent Events.
+ *
+ * Cada observador es un SseEmitter (petición asíncrona del servlet): mientras espera no ocupa
+ * ningún hilo. Los eventos se publican con pg_notify y cada nodo los recibe con LISTEN en una
+ * conexión dedicada, así un cliente conectado a un nodo ve el progreso de un trabajo que corre
+ * en otro.
+ *
+ * Los envíos, que bloquean si el cliente lee lento, los hace un pool propio
+ * (analysis.events.sender-threads) y no el hilo del listener ni el del scheduler. Cada
+ * observador tiene su cola: sus eventos salen en orden y un cliente lento ocupa a lo sumo un hilo.
+ */
+@Service
+@Slf4j
+public class AnalisisEventosService {
+
+    public static final String CANAL = "trl_analisis_eventos";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${analysis.events.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${analysis.events.max-subscribers:10000}")
+    private int maxSuscriptores;
+
+    private final Map<String, Set<Observador>> suscriptores = new ConcurrentHashMap<>();
+    private final AtomicInteger totalSuscriptores = new AtomicInteger();
+    private final ExecutorService envios;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public AnalisisEventosService(JdbcTemplate jdbcTemplate, DataSource dataSource, MeterRegistry meterRegistry,
+            @Value("${analysis.events.sender-threads:4}") int hilosEnvio) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        AtomicInteger numero = new AtomicInteger();
+        this.envios = Executors.newFixedThreadPool(Math.max(1, hilosEnvio), runnable -> {
+            Thread thread = new Thread(runnable, "analisis-eventos-envio-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("trl.analysis.events.subscribers", totalSuscriptores, AtomicInteger::get)
+                .description("Conexiones SSE abiertas observando análisis")
+                .register(meterRegistry);
+    }
+
+    public static AnalisisEvento evento(String tipo, Object id, String estado, String fase, String mensaje,
+            boolean terminado) {
+        return new AnalisisEvento(tipo, String.valueOf(id), estado, fase, mensaje, terminado, LocalDateTime.now());
+    }
+
+    /**
+     * Registra un observador y le envía de inmediato el estado actual; si el análisis ya terminó
+     * la conexión se cierra tras ese primer evento. El estado se consulta después de registrar al
+     * observador para no perder una transición que ocurra entre ambos pasos.
+     *
+     * @throws IllegalStateException si se alcanzó analysis.events.max-subscribers
+     */
+    public SseEmitter suscribir(String tipo, Object id, Supplier<AnalisisEvento> estadoActual) {
+        // Se reserva el cupo antes de registrar: dos suscripciones simultáneas no pueden pasar ambas del máximo
+        if (totalSuscriptores.incrementAndGet() > maxSuscriptores) {
+            totalSuscriptores.decrementAndGet();
+            throw new IllegalStateException("Demasiados observadores de análisis conectados, intente más tarde");
+        }
+
+        String clave = clave(tipo, String.valueOf(id));
+        Observador observador = new Observador(clave, new SseEmitter(timeoutMillis));
+        suscriptores.compute(clave, (k, observadores) -> {
+            Set<Observador> conjunto = observadores != null ? observadores : ConcurrentHashMap.newKeySet();
+            conjunto.add(observador);
+            return conjunto;
+        });
+
+        Runnable quitar = () -> quitar(observador);
+        observador.emitter.onCompletion(quitar);
+        observador.emitter.onTimeout(quitar);
+        observador.emitter.onError(e -> quitar.run());
+
+        AnalisisEvento actual;
+        try {
+            actual = estadoActual.get();
+        } catch (RuntimeException e) {
+            quitar.run();
+            throw e;
+        }
+        observador.encolar(SseEmitter.event().name("estado").data(actual, MediaType.APPLICATION_JSON),
+                actual.isTerminado());
+        return observador.emitter;
+    }
+
+    /**
+     * Publica el evento para todos los nodos. Si la notificación falla se entrega al menos a los
+     * observadores de este nodo.
+     */
+    public void publicar(AnalisisEvento evento) {
+        try {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", (ResultSetExtractor<Void>) rs -> null, CANAL,
+                    objectMapper.writeValueAsString(evento));
+        } catch (Exception e) {
+            log.warn("No se pudo publicar el evento de análisis {} {}: {}", evento.getTipo(), evento.getId(),
+                    e.getMessage());
+            entregar(evento);
+        }
+    }
+
+    private void entregar(AnalisisEvento evento) {
+        Set<Observador> observadores = suscriptores.get(clave(evento.getTipo(), evento.getId()));
+        if (observadores == null) {
+            return;
+        }
+        for (Observador observador : observadores) {
+            observador.encolar(SseEmitter.event().name("estado").data(evento, MediaType.APPLICATION_JSON),
+                    evento.isTerminado());
+        }
+    }
+
+    private void quitar(Observador observador) {
+        suscriptores.computeIfPresent(observador.clave, (k, observadores) -> {
+            if (observadores.remove(observador)) {
+                totalSuscriptores.decrementAndGet();
+            }
+            return observadores.isEmpty() ? null : observadores;
+        });
+    }
+
+    /**
+     * Comentario SSE periódico para que proxies no corten las conexiones inactivas y para
+     * detectar clientes que ya se fueron.
+     */
+    @Scheduled(fixedDelayString = "${analysis.events.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        // Solo encola: el hilo del scheduler lo comparten la cola de análisis, el watchdog y el catálogo
+        suscriptores.values().forEach(observadores -> observadores.forEach(observador -> {
+            if (observador.pendientes.isEmpty()) {
+                observador.encolar(SseEmitter.event().comment("ping"), false);
+            }
+        }));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciarListener() {
+        running = true;
+        listener = new Thread(this::escuchar, "analisis-eventos-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    /**
+     * Mantiene una conexión del pool con LISTEN y reparte las notificaciones a los observadores
+     * locales. Si la conexión se pierde se reintenta cada 5 segundos.
+     */
+    private void escuchar() {
+        while (running) {
+            try (Connection con = dataSource.getConnection()) {
+                try (Statement statement = con.createStatement()) {
+                    statement.execute("LISTEN " + CANAL);
+                }
+                PGConnection pgConnection = con.unwrap(PGConnection.class);
+                log.info("Escuchando eventos de análisis en el canal {}", CANAL);
+                while (running) {
+                    PGNotification[] notificaciones = pgConnection.getNotifications(5000);
+                    if (notificaciones == null) {
+                        continue;
+                    }
+                    for (PGNotification notificacion : notificaciones) {
+                        try {
+                            entregar(objectMapper.readValue(notificacion.getParameter(), AnalisisEvento.class));
+                        } catch (Exception e) {
+                            log.warn("Evento de análisis inválido: {}", e.getMessage());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Se perdió la conexión LISTEN de eventos de análisis: {}", e.getMessage());
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void detener() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        suscriptores.values().forEach(observadores -> observadores.forEach(observador -> observador.emitter.complete()));
+        envios.shutdownNow();
+    }
+
+    private String clave(String tipo, String id) {
+        return tipo + "-" + id;
+    }
+
+    /**
+     * Un SseEmitter con su cola de envíos; solo un hilo del pool la vacía a la vez.
+     */
+    private final class Observador {
+
+        private final String clave;
+        private final SseEmitter emitter;
+        private final Queue<Envio> pendientes = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean programado = new AtomicBoolean();
+
+        Observador(String clave, SseEmitter emitter) {
+            this.clave = clave;
+            this.emitter = emitter;
+        }
+
+        void encolar(SseEmitter.SseEventBuilder evento, boolean cerrar) {
+            pendientes.add(new Envio(evento, cerrar));
+            programar();
+        }
+
+        private void programar() {
+            if (!pendientes.isEmpty() && programado.compareAndSet(false, true)) {
+                try {
+                    envios.execute(this::vaciar);
+                } catch (RejectedExecutionException e) {
+                    // El nodo se está deteniendo; detener() completa los emisores
+                    programado.set(false);
+                }
+            }
+        }
+
+        private void vaciar() {
+            Envio envio;
+            while ((envio = pendientes.poll()) != null) {
+                try {
+                    emitter.send(envio.evento());
+                    if (envio.cerrar()) {
+                        emitter.complete();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Cliente desconectado; onError/onCompletion lo quitan del registro
+                    pendientes.clear();
+                    emitter.completeWithError(e);
+                }
+            }
+            programado.set(false);
+            // Un evento encolado entre el último poll y el set(false) no debe quedar sin enviar
+            programar();
+        }
+    }
+
+    private record Envio(SseEmitter.SseEventBuilder evento, boolean cerrar) {
+    }
+}
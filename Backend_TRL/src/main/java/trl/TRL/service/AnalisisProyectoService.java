@@ -0,0 +1,244 @@
+package trl.TRL.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import trl.TRL.diagnostics.AnalysisTracer;
+import trl.TRL.diagnostics.JobLogRegistry;
+import trl.TRL.diagnostics.JobTrace;
+import trl.TRL.diagnostics.TraceContext;
+import trl.TRL.dto.AnalisisProyectoJobResponse;
+import trl.TRL.model.AnalisisProyectoJob;
+import trl.TRL.model.Proyecto;
+import trl.TRL.repository.AnalisisProyectoJobRepository;
+import trl.TRL.repository.ProyectoRepository;
+import trl.TRL.security.AuthenticatedUser;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Análisis global de proyectos como trabajos asíncronos: la petición HTTP solo encola el
+ * trabajo y devuelve su id; el cliente consulta el estado hasta que termine. Hay a lo sumo un
+ * trabajo activo por proyecto.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalisisProyectoService {
+
+    private final AnalisisProyectoJobRepository jobRepository;
+    private final ProyectoRepository proyectoRepository;
+    private final PythonIntegrationService pythonService;
+    private final AnalysisJobExecutor analysisJobExecutor;
+    private final DocumentAnalysisQueue documentAnalysisQueue;
+    private final AnalysisTracer analysisTracer;
+    private final AnalisisEventosService analisisEventosService;
+    private final PythonProcessWatchdog watchdog;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${analysis.project.stale-after-seconds:600}")
+    private long staleAfterSeconds;
+
+    private final Set<String> enCurso = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Encola el análisis del proyecto, o devuelve el trabajo que ya está en curso para ese
+     * proyecto: peticiones concurrentes (de cualquier nodo) comparten un único análisis y su
+     * resultado en lugar de generar dos informes.
+     */
+    public AnalisisProyectoJobResponse iniciarAnalisis(Integer idProyecto) {
+        AuthenticatedUser usuario = AuthenticatedUser.actual();
+
+        Proyecto proyecto = proyectoRepository.findByIdProyectoAndUsuario_IdUsuario(idProyecto, usuario.getIdUsuario())
+                .orElseThrow(() -> new RuntimeException("Proyecto no encontrado o no autorizado"));
+
+        // El trabajo nuevo se confirma antes de enviarlo al executor para que ejecutar() lo vea
+        String idNuevo = UUID.randomUUID().toString();
+        AnalisisProyectoJob guardado = new TransactionTemplate(transactionManager).execute(status -> {
+            jobRepository.bloquearProyecto(idProyecto);
+            Optional<AnalisisProyectoJob> activo = jobRepository
+                    .findFirstByProyecto_IdProyectoAndEstadoInOrderByFechaCreacionDesc(idProyecto,
+                            List.of(AnalisisProyectoJob.ESTADO_PENDIENTE, AnalisisProyectoJob.ESTADO_EN_PROCESO));
+            if (activo.isPresent()) {
+                return activo.get();
+            }
+
+            AnalisisProyectoJob job = new AnalisisProyectoJob();
+            job.setIdJob(idNuevo);
+            job.setProyecto(proyecto);
+            job.setEstado(AnalisisProyectoJob.ESTADO_PENDIENTE);
+            job.setNodo(documentAnalysisQueue.getNodeId());
+            job.setTraceId(TraceContext.nuevo().traceId());
+            return jobRepository.save(job);
+        });
+        boolean nuevo = idNuevo.equals(guardado.getIdJob());
+
+        if (!nuevo) {
+            meterRegistry.counter("trl.analysis.coalesced", "tipo", JobLogRegistry.PROYECTO).increment();
+            log.info("Análisis del proyecto {} ya en curso, la petición se une al trabajo {}", idProyecto,
+                    guardado.getIdJob());
+            return convertirAResponse(guardado, idProyecto);
+        }
+
+        enCurso.add(guardado.getIdJob());
+        try {
+            analysisJobExecutor.submit(AnalysisLane.BATCH, usuario.getIdUsuario().toString(),
+                    () -> ejecutar(guardado.getIdJob(), idProyecto, guardado.getTraceId(), guardado.getFechaCreacion()));
+        } catch (AnalysisQueueFullException e) {
+            enCurso.remove(guardado.getIdJob());
+            jobRepository.delete(guardado);
+            throw e;
+        }
+
+        log.info("Análisis del proyecto {} encolado como trabajo {} (traza {})", idProyecto, guardado.getIdJob(),
+                guardado.getTraceId());
+        return convertirAResponse(guardado, idProyecto);
+    }
+
+    public AnalisisProyectoJobResponse obtenerEstado(Integer idProyecto, String idJob) {
+        AnalisisProyectoJob job = jobRepository
+                .findByIdJobAndProyecto_IdProyectoAndProyecto_Usuario_IdUsuario(idJob, idProyecto,
+                        AuthenticatedUser.actual().getIdUsuario())
+                .orElseThrow(() -> new RuntimeException("Trabajo de análisis no encontrado o no autorizado"));
+
+        return convertirAResponse(job, idProyecto);
+    }
+
+    /**
+     * Cancela el trabajo. Si aún está PENDIENTE pasa directo a FALLIDO; si está EN_PROCESO se marca
+     * la cancelación y el nodo que lo ejecuta mata el proceso de Python (de inmediato si es este
+     * nodo, o en su próximo heartbeat).
+     */
+    public AnalisisProyectoJobResponse cancelar(Integer idProyecto, String idJob) {
+        AnalisisProyectoJobResponse job = obtenerEstado(idProyecto, idJob);
+        if (esTerminal(job.getEstado())) {
+            throw new RuntimeException("El análisis ya terminó");
+        }
+
+        if (jobRepository.cancelarPendiente(idJob, PythonProcessWatchdog.MOTIVO_CANCELADO) > 0) {
+            publicarEstado(idJob, AnalisisProyectoJob.ESTADO_FALLIDO, null, PythonProcessWatchdog.MOTIVO_CANCELADO);
+        } else if (jobRepository.solicitarCancelacion(idJob) > 0) {
+            watchdog.cancel(claveEjecucion(idJob));
+        } else {
+            throw new RuntimeException("El análisis ya terminó");
+        }
+        log.info("Cancelación solicitada para el trabajo {} del proyecto {}", idJob, idProyecto);
+        return obtenerEstado(idProyecto, idJob);
+    }
+
+    private String claveEjecucion(String idJob) {
+        return JobLogRegistry.PROYECTO + "-" + idJob;
+    }
+
+    private void ejecutar(String idJob, Integer idProyecto, String traceId, LocalDateTime encolado) {
+        PythonExecution ejecucion = watchdog.register(claveEjecucion(idJob));
+        JobTrace traza = null;
+        boolean success = false;
+        try {
+            if (jobRepository.iniciar(idJob) == 0) {
+                log.info("Trabajo de análisis {} cancelado antes de iniciar", idJob);
+                return;
+            }
+            publicarEstado(idJob, AnalisisProyectoJob.ESTADO_EN_PROCESO, null, null);
+            traza = analysisTracer.iniciar(JobLogRegistry.PROYECTO, idProyecto, traceId, encolado);
+            traza.alCambiarFase(fase -> publicarEstado(idJob, AnalisisProyectoJob.ESTADO_EN_PROCESO, fase, null));
+
+            success = pythonService.executeProjectAnalysis(idProyecto, traza, ejecucion);
+            if (success) {
+                actualizarEstado(idJob, AnalisisProyectoJob.ESTADO_COMPLETADO,
+                        "Análisis completado. El informe está disponible en los reportes del proyecto.");
+            } else {
+                actualizarEstado(idJob, AnalisisProyectoJob.ESTADO_FALLIDO,
+                        ejecucion.isAborted() ? ejecucion.getAbortReason()
+                                : ejecucion.isQuotaExceeded() ? GeminiRateLimiter.MENSAJE_CUOTA_AGOTADA
+                                : "Error al ejecutar el análisis.");
+            }
+        } catch (Exception e) {
+            log.error("Error en el trabajo de análisis {} del proyecto {}: ", idJob, idProyecto, e);
+            actualizarEstado(idJob, AnalisisProyectoJob.ESTADO_FALLIDO, e.getMessage());
+        } finally {
+            watchdog.unregister(ejecucion);
+            if (traza != null) {
+                analysisTracer.terminar(traza, success);
+            }
+            enCurso.remove(idJob);
+        }
+    }
+
+    private void actualizarEstado(String idJob, String estado, String mensaje) {
+        jobRepository.findById(idJob).ifPresent(job -> {
+            job.setEstado(estado);
+            job.setMensaje(mensaje);
+            if (job.isTerminado()) {
+                job.setFechaFin(LocalDateTime.now());
+            }
+            jobRepository.save(job);
+            publicarEstado(idJob, estado, null, mensaje);
+        });
+    }
+
+    /**
+     * Observa el trabajo por SSE: primero su estado actual y luego cada cambio de estado o fase.
+     */
+    public SseEmitter observar(Integer idProyecto, String idJob) {
+        return analisisEventosService.suscribir(JobLogRegistry.PROYECTO, idJob, () -> {
+            AnalisisProyectoJobResponse job = obtenerEstado(idProyecto, idJob);
+            return AnalisisEventosService.evento(JobLogRegistry.PROYECTO, idJob, job.getEstado(), null,
+                    job.getMensaje(), esTerminal(job.getEstado()));
+        });
+    }
+
+    private void publicarEstado(String idJob, String estado, String fase, String mensaje) {
+        analisisEventosService.publicar(AnalisisEventosService.evento(JobLogRegistry.PROYECTO, idJob, estado, fase,
+                mensaje, esTerminal(estado)));
+    }
+
+    private static boolean esTerminal(String estado) {
+        return AnalisisProyectoJob.ESTADO_COMPLETADO.equals(estado) || AnalisisProyectoJob.ESTADO_FALLIDO.equals(estado);
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.queue.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        List<String> ids = new ArrayList<>(enCurso);
+        if (!ids.isEmpty()) {
+            jobRepository.renovarHeartbeat(ids);
+            jobRepository.findCancelacionSolicitada(ids).forEach(idJob -> watchdog.cancel(claveEjecucion(idJob)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.queue.reaper-interval-ms:60000}")
+    public void marcarTrabajosAbandonados() {
+        List<String> abandonados = jobRepository.marcarAbandonados(staleAfterSeconds);
+        abandonados.forEach(idJob -> publicarEstado(idJob, AnalisisProyectoJob.ESTADO_FALLIDO, null,
+                "Análisis interrumpido: el nodo dejó de responder"));
+        if (!abandonados.isEmpty()) {
+            log.warn("{} trabajo(s) de análisis de proyecto marcados FALLIDO por falta de heartbeat",
+                    abandonados.size());
+        }
+    }
+
+    private AnalisisProyectoJobResponse convertirAResponse(AnalisisProyectoJob job, Integer idProyecto) {
+        return new AnalisisProyectoJobResponse(
+                job.getIdJob(),
+                idProyecto,
+                job.getEstado(),
+                job.getMensaje(),
+                job.getFechaCreacion(),
+                job.getFechaInicio(),
+                job.getFechaFin(),
+                job.getVersion());
+    }
+}
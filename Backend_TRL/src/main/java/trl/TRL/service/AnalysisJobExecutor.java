@@ -0,0 +1,295 @@
+package trl.TRL.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import trl.TRL.dto.AnalysisExecutorStats;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool acotado de workers para los análisis TRL (procesos Python).
+ * Limita cuántos análisis corren a la vez en el nodo y cuántos pueden esperar en cola.
+ *
+ * Los trabajos no esperan en una cola FIFO: cada carril ({@link AnalysisLane}) tiene su límite de
+ * concurrencia y un peso, y dentro del carril los turnos se reparten por usuario con
+ * {@link FairShare}. El límite del carril de lotes queda por debajo del total de workers para que
+ * un documento interactivo nunca espere detrás de una tanda de análisis de proyecto; por eso se
+ * necesitan al menos 2 workers y el arranque falla si el límite de lotes no deja uno libre.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnalysisJobExecutor {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${analysis.executor.workers:2}")
+    private int workers;
+
+    @Value("${analysis.executor.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${analysis.executor.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    @Value("${analysis.executor.shutdown-timeout-seconds:60}")
+    private long shutdownTimeoutSeconds;
+
+    // 0 = todos los workers
+    @Value("${analysis.executor.lanes.interactive.max-concurrency:0}")
+    private int maxInteractivos;
+
+    // 0 = todos los workers menos uno; debe ser menor que workers
+    @Value("${analysis.executor.lanes.batch.max-concurrency:0}")
+    private int maxLotes;
+
+    @Value("${analysis.executor.lanes.interactive.weight:4}")
+    private double pesoInteractivo;
+
+    @Value("${analysis.executor.lanes.batch.weight:1}")
+    private double pesoLotes;
+
+    private final AtomicLong rejectedJobs = new AtomicLong();
+
+    private final Map<AnalysisLane, Map<String, Deque<Tarea>>> pendientes = new EnumMap<>(AnalysisLane.class);
+    private final Map<AnalysisLane, FairShare<String>> turnosUsuario = new EnumMap<>(AnalysisLane.class);
+    private final FairShare<AnalysisLane> turnosCarril = new FairShare<>();
+    private final Map<AnalysisLane, AtomicInteger> enEjecucion = new EnumMap<>(AnalysisLane.class);
+    private final Map<AnalysisLane, AtomicInteger> encolados = new EnumMap<>(AnalysisLane.class);
+    private final Map<AnalysisLane, Integer> limites = new EnumMap<>(AnalysisLane.class);
+    private final Map<AnalysisLane, Double> pesos = new EnumMap<>(AnalysisLane.class);
+    private final Map<AnalysisLane, Timer> esperaPorCarril = new EnumMap<>(AnalysisLane.class);
+    private int totalEnEjecucion;
+    private int totalEncolados;
+    private boolean cerrado;
+
+    private ThreadPoolExecutor executor;
+    private Timer esperaEnCola;
+
+    private record Tarea(AnalysisLane carril, String usuario, Runnable trabajo, long encolado) {
+    }
+
+    @PostConstruct
+    void init() {
+        if (workers < 2) {
+            throw new IllegalStateException("analysis.executor.workers debe ser al menos 2 para reservar un worker "
+                    + "a los documentos interactivos (valor actual: " + workers + ")");
+        }
+        if (maxLotes >= workers) {
+            throw new IllegalStateException("analysis.executor.lanes.batch.max-concurrency debe ser menor que "
+                    + "analysis.executor.workers (" + maxLotes + " >= " + workers + ")");
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "analysis-worker-" + counter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        };
+
+        // Solo recibe trabajos cuando hay un worker libre; la espera ocurre en los carriles
+        executor = new ThreadPoolExecutor(
+                workers, workers,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+
+        limites.put(AnalysisLane.INTERACTIVE, maxInteractivos > 0 ? Math.min(maxInteractivos, workers) : workers);
+        limites.put(AnalysisLane.BATCH, maxLotes > 0 ? maxLotes : workers - 1);
+        pesos.put(AnalysisLane.INTERACTIVE, pesoInteractivo);
+        pesos.put(AnalysisLane.BATCH, pesoLotes);
+
+        esperaEnCola = Timer.builder("trl.analysis.queue.wait")
+                .description("Tiempo que un trabajo espera en la cola local antes de empezar")
+                .tag("cola", "executor")
+                .register(meterRegistry);
+        for (AnalysisLane carril : AnalysisLane.values()) {
+            pendientes.put(carril, new LinkedHashMap<>());
+            turnosUsuario.put(carril, new FairShare<>());
+            enEjecucion.put(carril, new AtomicInteger());
+            encolados.put(carril, new AtomicInteger());
+            esperaPorCarril.put(carril, Timer.builder("trl.analysis.lane.wait")
+                    .description("Espera en el carril antes de empezar")
+                    .tag("carril", carril.getTag())
+                    .register(meterRegistry));
+            Gauge.builder("trl.analysis.lane.active", enEjecucion.get(carril), AtomicInteger::get)
+                    .tag("carril", carril.getTag())
+                    .register(meterRegistry);
+            Gauge.builder("trl.analysis.lane.queued", encolados.get(carril), AtomicInteger::get)
+                    .tag("carril", carril.getTag())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("trl.analysis.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        Gauge.builder("trl.analysis.executor.queued", this, AnalysisJobExecutor::queueDepth)
+                .register(meterRegistry);
+        Gauge.builder("trl.analysis.executor.rejected", rejectedJobs, AtomicLong::get)
+                .register(meterRegistry);
+
+        log.info("Executor de análisis iniciado con {} workers y cola de {} (límites por carril: {})", workers,
+                queueCapacity, limites);
+    }
+
+    /**
+     * Encola un trabajo de análisis en su carril, a nombre de {@code usuario} (null para
+     * trabajos anónimos, que comparten un solo turno).
+     *
+     * @throws AnalysisQueueFullException si la cola está llena
+     */
+    public void submit(AnalysisLane carril, String usuario, Runnable job) {
+        synchronized (this) {
+            if (!cerrado && totalEncolados < queueCapacity) {
+                String clave = usuario != null ? usuario : "anonimo";
+                Map<String, Deque<Tarea>> colas = pendientes.get(carril);
+                if (colas.isEmpty()) {
+                    turnosCarril.activar(carril);
+                }
+                colas.computeIfAbsent(clave, k -> {
+                    turnosUsuario.get(carril).activar(k);
+                    return new ArrayDeque<>();
+                }).add(new Tarea(carril, clave, job, System.nanoTime()));
+                encolados.get(carril).incrementAndGet();
+                totalEncolados++;
+                despachar();
+                return;
+            }
+        }
+        rejectedJobs.incrementAndGet();
+        log.warn("Cola de análisis llena ({} en espera), trabajo rechazado", queueDepth());
+        throw new AnalysisQueueFullException(
+                "La cola de análisis está llena, intente nuevamente más tarde", retryAfterSeconds);
+    }
+
+    /**
+     * Entrega trabajos a los workers libres: primero el carril con menor pase entre los que no
+     * alcanzaron su límite y luego, dentro del carril, el usuario con menor pase.
+     */
+    private synchronized void despachar() {
+        while (totalEnEjecucion < workers && !executor.isShutdown()) {
+            List<AnalysisLane> candidatos = new ArrayList<>();
+            for (AnalysisLane carril : AnalysisLane.values()) {
+                if (!pendientes.get(carril).isEmpty() && enEjecucion.get(carril).get() < limites.get(carril)) {
+                    candidatos.add(carril);
+                }
+            }
+            AnalysisLane carril = turnosCarril.elegir(candidatos);
+            if (carril == null) {
+                return;
+            }
+
+            Map<String, Deque<Tarea>> colas = pendientes.get(carril);
+            FairShare<String> turnos = turnosUsuario.get(carril);
+            String usuario = turnos.elegir(colas.keySet());
+            Deque<Tarea> cola = colas.get(usuario);
+            Tarea tarea = cola.poll();
+            turnos.conceder(usuario, 1.0);
+            if (cola.isEmpty()) {
+                colas.remove(usuario);
+                turnos.desactivar(usuario);
+            }
+            turnosCarril.conceder(carril, pesos.get(carril));
+            if (colas.isEmpty()) {
+                turnosCarril.desactivar(carril);
+            }
+
+            encolados.get(carril).decrementAndGet();
+            totalEncolados--;
+            enEjecucion.get(carril).incrementAndGet();
+            totalEnEjecucion++;
+            executor.execute(() -> ejecutar(tarea));
+        }
+    }
+
+    private void ejecutar(Tarea tarea) {
+        long espera = System.nanoTime() - tarea.encolado();
+        esperaEnCola.record(espera, TimeUnit.NANOSECONDS);
+        esperaPorCarril.get(tarea.carril()).record(espera, TimeUnit.NANOSECONDS);
+        try {
+            tarea.trabajo().run();
+        } catch (RuntimeException e) {
+            log.error("Trabajo de análisis terminó con error no controlado: ", e);
+        } finally {
+            synchronized (this) {
+                enEjecucion.get(tarea.carril()).decrementAndGet();
+                totalEnEjecucion--;
+                if (!cerrado || totalEncolados > 0) {
+                    despachar();
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Trabajos del carril que pueden empezar de inmediato sin esperar en la cola local.
+     */
+    public synchronized int availableSlots(AnalysisLane carril) {
+        int libresTotal = workers - totalEnEjecucion;
+        int libresCarril = limites.get(carril) - enEjecucion.get(carril).get();
+        return Math.max(0, Math.min(libresTotal, libresCarril) - encolados.get(carril).get());
+    }
+
+    private synchronized int queueDepth() {
+        return totalEncolados;
+    }
+
+    public synchronized AnalysisExecutorStats getStats() {
+        int active = totalEnEjecucion;
+        Map<String, AnalysisExecutorStats.LaneStats> carriles = new LinkedHashMap<>();
+        for (AnalysisLane carril : AnalysisLane.values()) {
+            carriles.put(carril.getTag(), new AnalysisExecutorStats.LaneStats(limites.get(carril),
+                    enEjecucion.get(carril).get(), encolados.get(carril).get(), pendientes.get(carril).size()));
+        }
+        return new AnalysisExecutorStats(
+                workers,
+                active,
+                totalEncolados,
+                queueCapacity,
+                workers == 0 ? 0.0 : (double) active / workers,
+                executor.getCompletedTaskCount(),
+                rejectedJobs.get(),
+                carriles);
+    }
+
+    /**
+     * Deja de aceptar trabajos y espera a que terminen los que están en curso o en cola.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + shutdownTimeoutSeconds * 1000;
+        synchronized (this) {
+            cerrado = true;
+            log.info("Deteniendo executor de análisis ({} trabajos en cola)", totalEncolados);
+            long restante;
+            while ((totalEnEjecucion > 0 || totalEncolados > 0)
+                    && (restante = deadline - System.currentTimeMillis()) > 0) {
+                wait(restante);
+            }
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+            log.warn("Executor de análisis no terminó a tiempo, forzando detención");
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package trl.TRL.service;
+
+/**
+ * Carriles del executor de análisis. Los documentos subidos desde /api/trl/analyze tienen a un
+ * usuario esperando el resultado; los análisis globales de proyecto son trabajos por lotes.
+ */
+public enum AnalysisLane {
+    INTERACTIVE("interactivo"),
+    BATCH("lote");
+
+    private final String tag;
+
+    AnalysisLane(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Nombre del carril en métricas y estadísticas.
+     */
+    public String getTag() {
+        return tag;
+    }
+}
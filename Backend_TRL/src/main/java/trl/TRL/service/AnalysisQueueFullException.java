@@ -0,0 +1,19 @@
+package trl.TRL.service;
+
+/**
+ * Se lanza cuando la cola de análisis está llena y el trabajo no puede aceptarse.
+ * El controlador la traduce a HTTP 429 con la cabecera Retry-After.
+ */
+public class AnalysisQueueFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AnalysisQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,74 @@
+package trl.TRL.service;
+
+import trl.TRL.dto.CriterioResponse;
+import trl.TRL.dto.NivelTRLResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Foto inmutable de la matriz TRL (niveles y criterios). Se reemplaza completa al cambiar el
+ * catálogo; los lectores nunca ven un estado a medio construir.
+ */
+public final class CatalogoTRL {
+
+    private final long version;
+    private final String etag;
+    private final List<NivelTRLResponse> niveles;
+    private final List<CriterioResponse> criterios;
+    private final Map<Integer, NivelTRLResponse> nivelesPorId;
+    private final Map<Integer, CriterioResponse> criteriosPorId;
+    private final Map<Integer, List<CriterioResponse>> criteriosPorNivel;
+
+    CatalogoTRL(long version, String etag, List<NivelTRLResponse> niveles, List<CriterioResponse> criterios) {
+        this.version = version;
+        this.etag = etag;
+        this.niveles = List.copyOf(niveles);
+        this.criterios = List.copyOf(criterios);
+        this.nivelesPorId = niveles.stream()
+                .collect(Collectors.toUnmodifiableMap(NivelTRLResponse::getIdNivel, Function.identity()));
+        this.criteriosPorId = criterios.stream()
+                .collect(Collectors.toUnmodifiableMap(CriterioResponse::getIdCriterio, Function.identity()));
+        this.criteriosPorNivel = criterios.stream()
+                .collect(Collectors.groupingBy(CriterioResponse::getIdNivel,
+                        Collectors.collectingAndThen(Collectors.toList(), List::copyOf)));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public List<NivelTRLResponse> getNiveles() {
+        return niveles;
+    }
+
+    public List<CriterioResponse> getCriterios() {
+        return criterios;
+    }
+
+    public NivelTRLResponse getNivel(Integer idNivel) {
+        NivelTRLResponse nivel = nivelesPorId.get(idNivel);
+        if (nivel == null) {
+            throw new RuntimeException("Nivel TRL no encontrado con ID: " + idNivel);
+        }
+        return nivel;
+    }
+
+    public CriterioResponse getCriterio(Integer idCriterio) {
+        CriterioResponse criterio = criteriosPorId.get(idCriterio);
+        if (criterio == null) {
+            throw new RuntimeException("Criterio no encontrado con ID: " + idCriterio);
+        }
+        return criterio;
+    }
+
+    public List<CriterioResponse> getCriteriosPorNivel(Integer idNivel) {
+        return criteriosPorNivel.getOrDefault(idNivel, List.of());
+    }
+}
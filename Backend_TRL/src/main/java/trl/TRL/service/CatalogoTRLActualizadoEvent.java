@@ -0,0 +1,13 @@
+package trl.TRL.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Se publica cuando este nodo instala una nueva versión del catálogo TRL en memoria.
+ */
+@Data
+@AllArgsConstructor
+public class CatalogoTRLActualizadoEvent {
+    private long version;
+}
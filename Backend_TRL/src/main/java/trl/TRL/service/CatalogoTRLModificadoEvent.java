@@ -0,0 +1,7 @@
+package trl.TRL.service;
+
+/**
+ * Se publica al crear, modificar o eliminar niveles TRL o criterios.
+ */
+public class CatalogoTRLModificadoEvent {
+}
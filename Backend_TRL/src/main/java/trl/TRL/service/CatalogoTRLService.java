@@ -0,0 +1,97 @@
+package trl.TRL.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tools.jackson.databind.ObjectMapper;
+import trl.TRL.dto.CriterioResponse;
+import trl.TRL.dto.NivelTRLResponse;
+import trl.TRL.repository.CriterioRepository;
+import trl.TRL.repository.NivelTRLRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Sirve la matriz TRL desde memoria. La foto se reconstruye tras el commit de cada cambio en
+ * este nodo y periódicamente (catalogo.refresh-interval-ms) para recoger cambios de otros nodos.
+ * El ETag es el SHA-256 del contenido, así que coincide entre nodos con el mismo catálogo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogoTRLService {
+
+    private final NivelTRLRepository nivelTRLRepository;
+    private final CriterioRepository criterioRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReference<CatalogoTRL> actual = new AtomicReference<>();
+
+    public CatalogoTRL actual() {
+        CatalogoTRL catalogo = actual.get();
+        return catalogo != null ? catalogo : recargar();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        recargar();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarCatalogo(CatalogoTRLModificadoEvent event) {
+        recargar();
+    }
+
+    @Scheduled(fixedDelayString = "${catalogo.refresh-interval-ms:60000}",
+            initialDelayString = "${catalogo.refresh-interval-ms:60000}")
+    public void refrescar() {
+        recargar();
+    }
+
+    synchronized CatalogoTRL recargar() {
+        List<NivelTRLResponse> niveles = nivelTRLRepository.findAll(Sort.by("numNivel")).stream()
+                .map(NivelTRLService::convertirAResponse)
+                .collect(Collectors.toList());
+        // JOIN FETCH del nivel: una sola consulta en lugar de una por criterio
+        List<CriterioResponse> criterios = criterioRepository.findAllConNivel().stream()
+                .map(CriterioService::convertirAResponse)
+                .collect(Collectors.toList());
+
+        String etag = calcularEtag(niveles, criterios);
+        CatalogoTRL anterior = actual.get();
+        if (anterior != null && anterior.getEtag().equals(etag)) {
+            return anterior;
+        }
+
+        CatalogoTRL nuevo = new CatalogoTRL(anterior == null ? 1 : anterior.getVersion() + 1, etag, niveles,
+                criterios);
+        actual.set(nuevo);
+        log.info("Catálogo TRL cargado: versión {}, {} niveles, {} criterios", nuevo.getVersion(), niveles.size(),
+                criterios.size());
+        eventPublisher.publishEvent(new CatalogoTRLActualizadoEvent(nuevo.getVersion()));
+        return nuevo;
+    }
+
+    private String calcularEtag(List<NivelTRLResponse> niveles, List<CriterioResponse> criterios) {
+        try {
+            byte[] contenido = objectMapper.writeValueAsString(List.of(niveles, criterios))
+                    .getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
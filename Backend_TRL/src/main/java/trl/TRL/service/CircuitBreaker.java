@@ -0,0 +1,96 @@
+package trl.TRL.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker por fallos consecutivos. Tras {@code umbralFallos} fallos seguidos se abre y
+ * rechaza llamadas durante {@code duracionAbiertoMs}; luego deja pasar una sola llamada de
+ * prueba (semiabierto): si funciona se cierra, si falla vuelve a abrirse.
+ */
+class CircuitBreaker {
+
+    enum Estado {
+        CERRADO, ABIERTO, SEMIABIERTO
+    }
+
+    private final int umbralFallos;
+    private final long duracionAbiertoMs;
+    private final LongSupplier reloj;
+
+    private Estado estado = Estado.CERRADO;
+    private int fallosSeguidos;
+    private long abiertoHasta;
+    private boolean pruebaEnCurso;
+
+    CircuitBreaker(int umbralFallos, long duracionAbiertoMs) {
+        this(umbralFallos, duracionAbiertoMs, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int umbralFallos, long duracionAbiertoMs, LongSupplier reloj) {
+        this.umbralFallos = umbralFallos;
+        this.duracionAbiertoMs = duracionAbiertoMs;
+        this.reloj = reloj;
+    }
+
+    /**
+     * @return true si la llamada puede hacerse; cada true debe cerrarse con
+     *         {@link #registrarExito()} o {@link #registrarFallo()}
+     */
+    synchronized boolean permitir() {
+        if (estado == Estado.ABIERTO && reloj.getAsLong() >= abiertoHasta) {
+            estado = Estado.SEMIABIERTO;
+        }
+        if (estado == Estado.SEMIABIERTO) {
+            if (pruebaEnCurso) {
+                return false;
+            }
+            pruebaEnCurso = true;
+            return true;
+        }
+        return estado == Estado.CERRADO;
+    }
+
+    /**
+     * Como {@link #permitir()} pero sin reservar la llamada de prueba: sirve para decidir si vale
+     * la pena preparar un trabajo (por ejemplo, gastar cuota) antes de llamar.
+     */
+    synchronized boolean admite() {
+        if (estado == Estado.ABIERTO) {
+            return reloj.getAsLong() >= abiertoHasta;
+        }
+        return estado == Estado.CERRADO || !pruebaEnCurso;
+    }
+
+    synchronized void registrarExito() {
+        estado = Estado.CERRADO;
+        fallosSeguidos = 0;
+        pruebaEnCurso = false;
+    }
+
+    synchronized void registrarFallo() {
+        fallosSeguidos++;
+        if (estado == Estado.SEMIABIERTO || fallosSeguidos >= umbralFallos) {
+            estado = Estado.ABIERTO;
+            abiertoHasta = reloj.getAsLong() + duracionAbiertoMs;
+        }
+        pruebaEnCurso = false;
+    }
+
+    /**
+     * La llamada permitida terminó sin resultado que juzgar (se abortó desde afuera).
+     */
+    synchronized void liberar() {
+        pruebaEnCurso = false;
+    }
+
+    synchronized Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * Milisegundos hasta que se permita la siguiente llamada de prueba (0 si está cerrado).
+     */
+    synchronized long restanteAbiertoMs() {
+        return estado == Estado.ABIERTO ? Math.max(0, abiertoHasta - reloj.getAsLong()) : 0;
+    }
+}
@@ -1,6 +1,7 @@
 package trl.TRL.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import trl.TRL.dto.CriterioRequest;
@@ -10,15 +11,13 @@ import trl.TRL.model.NivelTRL;
 import trl.TRL.repository.CriterioRepository;
 import trl.TRL.repository.NivelTRLRepository;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 @Service
 @RequiredArgsConstructor
 public class CriterioService {
 
     private final CriterioRepository criterioRepository;
     private final NivelTRLRepository nivelTRLRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public CriterioResponse crearCriterio(CriterioRequest request) {
@@ -42,29 +41,11 @@ public class CriterioService {
         criterio.setEstadoEvidencia(request.getEstadoEvidencia());
 
         Criterio criterioGuardado = criterioRepository.save(criterio);
+        eventPublisher.publishEvent(new CatalogoTRLModificadoEvent());
 
         return convertirAResponse(criterioGuardado);
     }
 
-    public List<CriterioResponse> obtenerTodosLosCriterios() {
-        return criterioRepository.findAll().stream()
-                .map(this::convertirAResponse)
-                .collect(Collectors.toList());
-    }
-
-    public List<CriterioResponse> obtenerCriteriosPorNivel(Integer idNivel) {
-        return criterioRepository.findByNivelTRL_IdNivel(idNivel).stream()
-                .map(this::convertirAResponse)
-                .collect(Collectors.toList());
-    }
-
-    public CriterioResponse obtenerCriterioPorId(Integer id) {
-        Criterio criterio = criterioRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Criterio no encontrado con ID: " + id));
-
-        return convertirAResponse(criterio);
-    }
-
     @Transactional
     public CriterioResponse actualizarCriterio(Integer id, CriterioRequest request) {
         Criterio criterio = criterioRepository.findById(id)
@@ -84,6 +65,7 @@ public class CriterioService {
         criterio.setEstadoEvidencia(request.getEstadoEvidencia());
 
         Criterio criterioActualizado = criterioRepository.save(criterio);
+        eventPublisher.publishEvent(new CatalogoTRLModificadoEvent());
 
         return convertirAResponse(criterioActualizado);
     }
@@ -95,9 +77,10 @@ public class CriterioService {
         }
 
         criterioRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogoTRLModificadoEvent());
     }
 
-    private CriterioResponse convertirAResponse(Criterio criterio) {
+    static CriterioResponse convertirAResponse(Criterio criterio) {
         return new CriterioResponse(
                 criterio.getIdCriterio(),
                 criterio.getNivelTRL().getIdNivel(),
@@ -0,0 +1,20 @@
+package trl.TRL.service;
+
+import trl.TRL.diagnostics.JobTrace;
+
+/**
+ * Motor que ejecuta el análisis TRL de un documento reclamado por {@link DocumentAnalysisQueue}.
+ *
+ * La implementación se elige con analysis.backend (python | microservice): scripts de Python
+ * lanzados en este nodo, o el microservicio-gemini como capa aparte que escala por su cuenta.
+ */
+public interface DocumentAnalysisBackend {
+
+    /**
+     * @param filePath  PDF local (el original o una copia temporal del blob store)
+     * @param ejecucion registrada en {@link PythonProcessWatchdog}; si se aborta (plazo vencido o
+     *                  cancelación) el análisis se interrumpe y el método devuelve false
+     * @return true si el análisis terminó y su resultado quedó guardado
+     */
+    boolean analizar(Integer docId, String filePath, JobTrace traza, PythonExecution ejecucion);
+}
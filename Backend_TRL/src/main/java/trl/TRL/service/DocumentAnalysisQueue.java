@@ -0,0 +1,365 @@
+package trl.TRL.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import trl.TRL.diagnostics.AnalysisTracer;
+import trl.TRL.diagnostics.JobLogRegistry;
+import trl.TRL.diagnostics.JobTrace;
+import trl.TRL.model.Document;
+import trl.TRL.repository.DocumentRepository;
+import trl.TRL.storage.BlobStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cola persistente de análisis TRL respaldada por la tabla documents.
+ *
+ * Los documentos PENDING se reclaman con FOR UPDATE SKIP LOCKED, de modo que varios nodos
+ * pueden consumir la misma cola. Cada nodo renueva el lease (heartbeat_at) de sus trabajos;
+ * si un nodo cae, el reaper devuelve sus trabajos a PENDING para que otro los tome.
+ *
+ * Cualquier nodo puede reclamar cualquier documento, así que el archivo tiene que poder leerse
+ * desde todos: los documentos con blob_key lo leen del BlobStore (blob-store.type=postgres o un
+ * volumen compartido). Las filas anteriores al BlobStore solo tienen original_path, local al
+ * nodo que recibió la carga; si otro nodo las reclama las devuelve a la cola para que las tome
+ * el nodo que tiene el archivo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentAnalysisQueue {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_PROCESSING = "PROCESSING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final String MENSAJE_SERVICIO_NO_DISPONIBLE = "Servicio de análisis no disponible, intente más tarde";
+
+    private final DocumentRepository documentRepository;
+    private final DocumentAnalysisBackend analysisBackend;
+    private final AnalysisJobExecutor analysisJobExecutor;
+    private final BlobStore blobStore;
+    private final MeterRegistry meterRegistry;
+    private final AnalysisTracer analysisTracer;
+    private final AnalisisEventosService analisisEventosService;
+    private final PythonProcessWatchdog watchdog;
+
+    @Value("${analysis.queue.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${analysis.queue.max-pending:200}")
+    private long maxPending;
+
+    @Value("${analysis.queue.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${analysis.queue.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${analysis.queue.drain-timeout-seconds:60}")
+    private long drainTimeoutSeconds;
+
+    @Value("${analysis.executor.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean shuttingDown = false;
+
+    private String nodeId;
+
+    /**
+     * Rechaza nuevas cargas cuando la cola persistente ya tiene demasiados trabajos pendientes.
+     *
+     * @throws AnalysisQueueFullException si se alcanzó analysis.queue.max-pending
+     */
+    public void ensureCapacity() {
+        if (shuttingDown || documentRepository.countByStatus(STATUS_PENDING) >= maxPending) {
+            throw new AnalysisQueueFullException(
+                    "La cola de análisis está llena, intente nuevamente más tarde", retryAfterSeconds);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.queue.poll-interval-ms:2000}")
+    public synchronized void poll() {
+        if (shuttingDown) {
+            return;
+        }
+
+        int freeSlots = analysisJobExecutor.availableSlots(AnalysisLane.INTERACTIVE);
+        if (freeSlots <= 0) {
+            return;
+        }
+
+        List<Integer> claimed = new ArrayList<>();
+        for (DocumentRepository.DocumentoReclamado reclamado : documentRepository.claimPending(getNodeId(), freeSlots)) {
+            Integer docId = reclamado.getId();
+            claimed.add(docId);
+            inFlight.add(docId);
+            String usuario = reclamado.getSubmittedBy() != null ? reclamado.getSubmittedBy().toString() : null;
+            try {
+                analysisJobExecutor.submit(AnalysisLane.INTERACTIVE, usuario, () -> runJob(docId));
+            } catch (AnalysisQueueFullException e) {
+                inFlight.remove(docId);
+                documentRepository.releaseClaimed(getNodeId(), List.of(docId));
+            }
+        }
+
+        if (!claimed.isEmpty()) {
+            log.info("Nodo {} reclamó {} documento(s) para análisis: {}", getNodeId(), claimed.size(), claimed);
+        }
+    }
+
+    /**
+     * Cancela el análisis de un documento. Si aún está PENDING pasa directo a FAILED; si está en
+     * PROCESSING se marca la cancelación y el nodo que lo analiza mata el proceso de Python (de
+     * inmediato si es este nodo, o en su próximo heartbeat).
+     *
+     * @throws RuntimeException si el análisis ya terminó
+     */
+    public void cancel(Integer docId) {
+        if (documentRepository.cancelPending(docId, PythonProcessWatchdog.MOTIVO_CANCELADO) > 0) {
+            publicarEstado(docId, STATUS_FAILED, null, PythonProcessWatchdog.MOTIVO_CANCELADO);
+            log.info("Análisis del documento {} cancelado antes de iniciar", docId);
+            return;
+        }
+        if (documentRepository.requestCancel(docId) == 0) {
+            throw new RuntimeException("El análisis del documento ya terminó");
+        }
+        boolean local = watchdog.cancel(executionKey(docId));
+        log.info("Cancelación solicitada para el documento {}{}", docId, local ? " (abortado en este nodo)" : "");
+    }
+
+    private String executionKey(Integer docId) {
+        return JobLogRegistry.DOCUMENTO + "-" + docId;
+    }
+
+    private void runJob(Integer docId) {
+        Path archivoTemporal = null;
+        JobTrace traza = null;
+        boolean success = false;
+        PythonExecution ejecucion = watchdog.register(executionKey(docId));
+        try {
+            Document doc = documentRepository.findById(docId).orElse(null);
+            if (doc == null) {
+                log.warn("Documento {} eliminado antes de iniciar su análisis", docId);
+                return;
+            }
+            if (doc.getCreatedAt() != null) {
+                // Espera total en la cola persistente (incluye reintentos tras la caída de un nodo)
+                meterRegistry.timer("trl.analysis.queue.wait", "cola", "documentos")
+                        .record(Duration.between(doc.getCreatedAt(), LocalDateTime.now()));
+            }
+            if (documentRepository.completeFromTwin(docId, getNodeId()) > 0) {
+                // Otro documento con el mismo contenido terminó mientras este esperaba
+                meterRegistry.counter("trl.analysis.coalesced", "tipo", JobLogRegistry.DOCUMENTO).increment();
+                log.info("Documento {} completado con el análisis de otro con el mismo contenido", docId);
+                publicarEstado(docId, STATUS_COMPLETED, null, null);
+                success = true;
+                return;
+            }
+            traza = analysisTracer.iniciar(JobLogRegistry.DOCUMENTO, docId, doc.getTraceId(), doc.getCreatedAt());
+            traza.alCambiarFase(fase -> publicarEstado(docId, STATUS_PROCESSING, fase, null));
+            publicarEstado(docId, STATUS_PROCESSING, traza.getFaseActual(), null);
+
+            String filePath = doc.getOriginalPath();
+            if (doc.getBlobKey() == null && (filePath == null || !Files.isReadable(Paths.get(filePath)))) {
+                if (reencolar(doc, "archivo")) {
+                    return;
+                }
+                throw new IOException("El archivo del documento no está disponible en este nodo: " + filePath);
+            }
+            if (doc.getBlobKey() != null) {
+                archivoTemporal = prepararArchivo(doc);
+                filePath = archivoTemporal.toAbsolutePath().toString();
+            }
+
+            success = analysisBackend.analizar(docId, filePath, traza, ejecucion);
+            if (!success && !ejecucion.isAborted()
+                    && (ejecucion.isQuotaExceeded() || ejecucion.isServiceUnavailable())
+                    && reencolar(doc, ejecucion.isQuotaExceeded() ? "cuota"
+                            : ejecucion.isCircuitOpen() ? "circuito" : "servicio")) {
+                return;
+            }
+            traza.fase(JobTrace.FASE_PERSISTENCIA);
+            String status = success ? STATUS_COMPLETED : STATUS_FAILED;
+            String errorMessage = success ? null
+                    : ejecucion.isAborted() ? ejecucion.getAbortReason()
+                    : ejecucion.isQuotaExceeded() ? GeminiRateLimiter.MENSAJE_CUOTA_AGOTADA
+                    : ejecucion.isServiceUnavailable() ? MENSAJE_SERVICIO_NO_DISPONIBLE
+                    : "Error durante el análisis de Python";
+            int updated = documentRepository.completeClaimed(docId, getNodeId(), status, errorMessage);
+
+            if (updated == 0) {
+                log.warn("El lease del documento {} ya no pertenece a este nodo, resultado descartado", docId);
+            } else {
+                publicarEstado(docId, status, null, errorMessage);
+                if (success) {
+                    compartirResultado(docId);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error procesando el documento {}: ", docId, e);
+            if (documentRepository.completeClaimed(docId, getNodeId(), STATUS_FAILED, e.getMessage()) > 0) {
+                publicarEstado(docId, STATUS_FAILED, null, e.getMessage());
+            }
+        } finally {
+            watchdog.unregister(ejecucion);
+            if (traza != null) {
+                analysisTracer.terminar(traza, success);
+            }
+            inFlight.remove(docId);
+            if (archivoTemporal != null) {
+                try {
+                    Files.deleteIfExists(archivoTemporal);
+                } catch (IOException e) {
+                    log.warn("No se pudo eliminar el archivo temporal {}: {}", archivoTemporal, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sin cuota de Gemini, sin microservicio de análisis o sin el archivo en este nodo el documento
+     * vuelve a PENDING (cuenta como intento) para que lo retome este u otro nodo más tarde; al
+     * agotar los intentos falla. Con el circuito abierto el documento ni llegó al servicio, así que
+     * se devuelve el intento que sumó el reclamo.
+     */
+    private boolean reencolar(Document doc, String motivo) {
+        boolean cuentaIntento = !"circuito".equals(motivo);
+        if (cuentaIntento && doc.getAttempts() != null && doc.getAttempts() >= maxAttempts) {
+            return false;
+        }
+        int liberados = cuentaIntento
+                ? documentRepository.releaseClaimed(getNodeId(), List.of(doc.getId()))
+                : documentRepository.releaseClaimedUncounted(getNodeId(), doc.getId());
+        if (liberados == 0) {
+            return false;
+        }
+        meterRegistry.counter("trl.analysis.requeued", "motivo", motivo).increment();
+        log.info("Documento {} devuelto a la cola ({} no disponible)", doc.getId(), motivo);
+        publicarEstado(doc.getId(), STATUS_PENDING, null, null);
+        return true;
+    }
+
+    /**
+     * Entrega el resultado a los documentos con el mismo contenido que se subieron mientras este
+     * se analizaba. Si el análisis falla siguen en PENDING y el siguiente se reclama normalmente.
+     */
+    private void compartirResultado(Integer docId) {
+        List<Integer> copias = documentRepository.completeTwins(docId);
+        if (!copias.isEmpty()) {
+            meterRegistry.counter("trl.analysis.coalesced", "tipo", JobLogRegistry.DOCUMENTO)
+                    .increment(copias.size());
+            copias.forEach(id -> publicarEstado(id, STATUS_COMPLETED, null, null));
+            log.info("Resultado del documento {} compartido con {}", docId, copias);
+        }
+    }
+
+    public static boolean isTerminal(String status) {
+        return STATUS_COMPLETED.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    private void publicarEstado(Integer docId, String status, String fase, String mensaje) {
+        analisisEventosService.publicar(AnalisisEventosService.evento(JobLogRegistry.DOCUMENTO, docId, status, fase,
+                mensaje, isTerminal(status)));
+    }
+
+    /**
+     * Deja el contenido del documento en storage/temp con su nombre original (Python elige el
+     * extractor por la extensión). Con un BlobStore en disco basta un enlace simbólico.
+     */
+    private Path prepararArchivo(Document doc) throws IOException {
+        Path tempDir = Paths.get("storage", "temp");
+        Files.createDirectories(tempDir);
+        Path destino = tempDir.resolve("doc_" + doc.getId() + "_" + doc.getFilename()).toAbsolutePath();
+        Files.deleteIfExists(destino);
+
+        Optional<Path> local = blobStore.localPath(doc.getBlobKey());
+        if (local.isPresent()) {
+            try {
+                return Files.createSymbolicLink(destino, local.get());
+            } catch (IOException | UnsupportedOperationException e) {
+                log.debug("Sin enlaces simbólicos, se copia el documento {}: {}", doc.getId(), e.getMessage());
+            }
+        }
+
+        try (InputStream in = blobStore.open(doc.getBlobKey())) {
+            Files.copy(in, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return destino;
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.queue.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        List<Integer> ids = new ArrayList<>(inFlight);
+        if (!ids.isEmpty()) {
+            documentRepository.renewLeases(getNodeId(), ids);
+            documentRepository.findCancelRequested(getNodeId(), ids)
+                    .forEach(docId -> watchdog.cancel(executionKey(docId)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.queue.reaper-interval-ms:60000}")
+    public void reapStaleJobs() {
+        List<Integer> requeued = documentRepository.requeueStale(leaseSeconds, maxAttempts);
+        List<Integer> failed = documentRepository.failExhausted(leaseSeconds, maxAttempts);
+        requeued.forEach(docId -> publicarEstado(docId, STATUS_PENDING, null, null));
+        failed.forEach(docId -> publicarEstado(docId, STATUS_FAILED, null,
+                "Análisis abandonado tras agotar los reintentos"));
+        if (!requeued.isEmpty() || !failed.isEmpty()) {
+            log.warn("Reaper: {} trabajo(s) devueltos a PENDING, {} marcados FAILED por lease vencido",
+                    requeued.size(), failed.size());
+        }
+    }
+
+    /**
+     * Deja de reclamar trabajos, espera a que terminen los que están en curso y devuelve
+     * a PENDING los que no alcanzaron a terminar para que otro nodo los retome.
+     */
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        shuttingDown = true;
+        log.info("Drenando cola de análisis: {} trabajo(s) en curso", inFlight.size());
+
+        long deadline = System.currentTimeMillis() + drainTimeoutSeconds * 1000;
+        while (!inFlight.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(500);
+        }
+
+        if (!inFlight.isEmpty()) {
+            List<Integer> pending = new ArrayList<>(inFlight);
+            documentRepository.releaseClaimed(getNodeId(), pending);
+            pending.forEach(docId -> publicarEstado(docId, STATUS_PENDING, null, null));
+            log.warn("Trabajos devueltos a la cola al apagar el nodo: {}", pending);
+        }
+    }
+
+    public String getNodeId() {
+        if (nodeId == null) {
+            nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+                    ? ManagementFactory.getRuntimeMXBean().getName()
+                    : configuredNodeId;
+        }
+        return nodeId;
+    }
+}
@@ -2,16 +2,36 @@ package trl.TRL.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import trl.TRL.diagnostics.JobLogRegistry;
+import trl.TRL.diagnostics.TraceContext;
+import trl.TRL.diagnostics.UploadEvent;
+import trl.TRL.dto.AnalysisCacheStats;
+import trl.TRL.dto.DocumentPage;
+import trl.TRL.dto.DocumentSummary;
 import trl.TRL.model.Document;
 import trl.TRL.repository.DocumentRepository;
+import trl.TRL.security.AuthenticatedUser;
+import trl.TRL.storage.BlobRef;
+import trl.TRL.storage.BlobReferencias;
+import trl.TRL.storage.BlobStore;
+import trl.TRL.storage.TransferMetrics;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
@@ -19,57 +39,206 @@ import java.time.LocalDateTime;
 public class DocumentProcessingService {
 
     private final DocumentRepository documentRepository;
-    private final PythonIntegrationService pythonService;
+    private final DocumentAnalysisQueue documentAnalysisQueue;
+    private final BlobStore blobStore;
+    private final BlobReferencias blobReferencias;
+    private final TransferMetrics transferMetrics;
+    private final AnalisisEventosService analisisEventosService;
 
-    private final String uploadDir = "storage/uploads";
+    @Value("${analysis.model:gemini-2.0-flash}")
+    private String analysisModel;
 
-    public Document processNewDocument(MultipartFile file) throws IOException {
-        // 1. Guardar archivo localmente
-        Path root = Paths.get(uploadDir);
-        if (!Files.exists(root)) {
-            Files.createDirectories(root);
-        }
+    @Value("${analysis.prompt-version:1}")
+    private String promptVersion;
+
+    @Value("${documents.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${documents.page.max-size:200}")
+    private int maxPageSize;
+
+    private static final Set<String> CAMPOS_OPCIONALES = Set.of("textContent", "metadataJson");
 
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    public Document processNewDocument(MultipartFile file) throws IOException {
+        // 1. Guardar el archivo en el BlobStore (compartido entre nodos), que calcula su SHA-256
         String filename = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        Path filePath = root.resolve(filename);
-        Files.copy(file.getInputStream(), filePath);
 
-        log.info("Archivo guardado localmente en: {}", filePath.toAbsolutePath());
+        long inicio = System.nanoTime();
+        UploadEvent evento = new UploadEvent();
+        evento.begin();
+        BlobRef blob;
+        try (InputStream in = file.getInputStream()) {
+            blob = blobStore.put(in);
+        }
+        transferMetrics.registrarCarga("documento", blob.getSize(), System.nanoTime() - inicio);
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.tipo = "documento";
+            evento.bytes = blob.getSize();
+            evento.blobKey = blob.getKey();
+            evento.commit();
+        }
+        String contentHash = blob.getChecksum();
+
+        log.info("Archivo {} guardado en el BlobStore con clave {} (sha256 {})", filename, blob.getKey(), contentHash);
 
         // 2. Crear registro en la tabla documents (la que usa TRL_Version2)
         Document doc = new Document();
         doc.setFilename(filename);
-        doc.setOriginalPath(filePath.toAbsolutePath().toString());
+        doc.setOriginalFilename(file.getOriginalFilename());
+        doc.setBlobKey(blob.getKey());
         doc.setFileType(file.getContentType());
         doc.setFileSize((int) file.getSize());
-        doc.setStatus("PENDING");
+        doc.setContentHash(contentHash);
+        doc.setAnalysisModel(analysisModel);
+        doc.setPromptVersion(promptVersion);
         doc.setCreatedAt(LocalDateTime.now());
         doc.setUpdatedAt(LocalDateTime.now());
+        // Dueño y traza también en los aciertos de caché: los logs y la cancelación se autorizan por dueño
+        doc.setTraceId(TraceContext.nuevo().traceId());
+        AuthenticatedUser.actualOpcional().ifPresent(usuario -> doc.setSubmittedBy(usuario.getIdUsuario()));
 
+        // 3. Si el mismo contenido ya fue analizado con el mismo modelo y prompt, reutilizar el resultado
+        Optional<Document> previo = documentRepository
+                .findFirstByContentHashAndAnalysisModelAndPromptVersionAndStatusAndAnalysisResultIsNotNullOrderByIdDesc(
+                        contentHash, analysisModel, promptVersion, DocumentAnalysisQueue.STATUS_COMPLETED);
+        if (previo.isPresent()) {
+            cacheHits.incrementAndGet();
+            copiarResultado(previo.get(), doc);
+            log.info("Análisis reutilizado del documento {} para {}", previo.get().getId(), filename);
+            Document guardado = documentRepository.save(doc);
+            blobReferencias.confirmar(blob, file::getInputStream);
+            return guardado;
+        }
+        cacheMisses.incrementAndGet();
+
+        try {
+            documentAnalysisQueue.ensureCapacity();
+        } catch (AnalysisQueueFullException e) {
+            blobReferencias.eliminarSiHuerfano(blob.getKey());
+            throw e;
+        }
+
+        doc.setStatus(DocumentAnalysisQueue.STATUS_PENDING);
         Document savedDoc = documentRepository.save(doc);
+        // Con la fila ya guardada: si un borrado concurrente se llevó el blob, se vuelve a escribir
+        blobReferencias.confirmar(blob, file::getInputStream);
+        log.info("Documento {} encolado para análisis (traza {})", savedDoc.getId(), savedDoc.getTraceId());
 
-        // 3. Ejecutar análisis en segundo plano (vía Python)
-        // Podríamos usar @Async aquí.
-        new Thread(() -> {
-            boolean success = pythonService.executeTRLAnalysis(savedDoc.getId(), filePath.toAbsolutePath().toString());
-            if (success) {
-                savedDoc.setStatus("COMPLETED");
-                savedDoc.setProcessingCompletedAt(LocalDateTime.now());
-            } else {
-                savedDoc.setStatus("FAILED");
-                savedDoc.setErrorMessage("Error durante el análisis de Python");
-            }
-            documentRepository.save(savedDoc);
-        }).start();
+        // 4. El análisis queda en la cola persistente (documents.status = PENDING);
+        // se intenta despachar de inmediato si hay workers libres en este nodo.
+        documentAnalysisQueue.poll();
 
         return savedDoc;
     }
 
+    private void copiarResultado(Document origen, Document destino) {
+        destino.setTitle(origen.getTitle());
+        destino.setAuthor(origen.getAuthor());
+        destino.setCreatedDate(origen.getCreatedDate());
+        destino.setModifiedDate(origen.getModifiedDate());
+        destino.setTextContent(origen.getTextContent());
+        destino.setMetadataJson(origen.getMetadataJson());
+        destino.setAnalysisResult(origen.getAnalysisResult());
+        destino.setPageCount(origen.getPageCount());
+        destino.setWordCount(origen.getWordCount());
+        destino.setCharacterCount(origen.getCharacterCount());
+        destino.setStatus(DocumentAnalysisQueue.STATUS_COMPLETED);
+        destino.setProcessingStartedAt(LocalDateTime.now());
+        destino.setProcessingCompletedAt(LocalDateTime.now());
+    }
+
+    public AnalysisCacheStats getCacheStats() {
+        long hits = cacheHits.get();
+        long misses = cacheMisses.get();
+        long total = hits + misses;
+        return new AnalysisCacheStats(hits, misses, total == 0 ? 0.0 : (double) hits / total);
+    }
+
     public Document getDocumentById(Integer id) {
         return documentRepository.findById(id).orElse(null);
     }
 
-    public java.util.List<Document> getAllDocuments() {
-        return documentRepository.findAll();
+    public boolean existeDocumento(Integer id) {
+        return documentRepository.existsById(id);
+    }
+
+    /**
+     * Solo quien subió el documento o un ADMIN pueden ver los logs o cancelar su análisis. Los
+     * documentos subidos sin sesión (submitted_by nulo) quedan solo para ADMIN.
+     */
+    public void verificarAccesoAnalisis(Integer id) {
+        AuthenticatedUser usuario = AuthenticatedUser.actual();
+        if (!documentRepository.existsById(id)) {
+            throw new RuntimeException("Documento no encontrado");
+        }
+        if (!"ADMIN".equals(usuario.getRol())
+                && !documentRepository.existsByIdAndSubmittedBy(id, usuario.getIdUsuario())) {
+            throw new AccessDeniedException("El documento no pertenece al usuario");
+        }
+    }
+
+    public void cancelarAnalisis(Integer id) {
+        if (!documentRepository.existsById(id)) {
+            throw new RuntimeException("Documento no encontrado");
+        }
+        documentAnalysisQueue.cancel(id);
+    }
+
+    /**
+     * Observa el análisis del documento por SSE. El estado inicial se lee con una proyección,
+     * sin cargar text_content.
+     */
+    public SseEmitter observarDocumento(Integer id) {
+        return analisisEventosService.suscribir(JobLogRegistry.DOCUMENTO, id, () -> {
+            DocumentRepository.EstadoDocumento estado = documentRepository.findEstadoById(id)
+                    .orElseThrow(() -> new RuntimeException("Documento no encontrado"));
+            return AnalisisEventosService.evento(JobLogRegistry.DOCUMENTO, id, estado.getStatus(), null,
+                    estado.getErrorMessage(), DocumentAnalysisQueue.isTerminal(estado.getStatus()));
+        });
+    }
+
+    public DocumentPage listarDocumentos(String status, String filenamePrefix, String cursor, Integer limit,
+            Collection<String> fields) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        Set<String> campos = fields == null ? Set.of() : new HashSet<>(fields);
+        if (!CAMPOS_OPCIONALES.containsAll(campos)) {
+            throw new IllegalArgumentException("Campos no soportados: " + campos + ". Valores válidos: "
+                    + CAMPOS_OPCIONALES);
+        }
+
+        LocalDateTime afterCreatedAt = null;
+        Integer afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('_');
+                afterCreatedAt = LocalDateTime.parse(decoded.substring(0, separator));
+                afterId = Integer.valueOf(decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        }
+
+        // Se pide un elemento extra para saber si existe una página siguiente
+        List<DocumentSummary> items = documentRepository.buscarPagina(
+                blankToNull(status), blankToNull(filenamePrefix), afterCreatedAt, afterId, pageSize + 1,
+                campos.contains("textContent"), campos.contains("metadataJson"));
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            DocumentSummary last = items.get(pageSize - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getCreatedAt() + "_" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new DocumentPage(items, nextCursor);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
     }
 }
@@ -1,86 +1,168 @@
 package trl.TRL.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
+import trl.TRL.diagnostics.UploadEvent;
+import trl.TRL.dto.EvidenciaRequest;
 import trl.TRL.dto.EvidenciaResponse;
+import trl.TRL.model.Criterio;
 import trl.TRL.model.Evidencia;
 import trl.TRL.model.Proyecto;
-import trl.TRL.model.Usuario;
+import trl.TRL.repository.CriterioRepository;
 import trl.TRL.repository.EvidenciaRepository;
 import trl.TRL.repository.ProyectoRepository;
-import trl.TRL.repository.UsuarioRepository;
+import trl.TRL.security.AuthenticatedUser;
+import trl.TRL.storage.BlobDownload;
+import trl.TRL.storage.BlobMigrationJob;
+import trl.TRL.storage.BlobRef;
+import trl.TRL.storage.BlobReferencias;
+import trl.TRL.storage.BlobStore;
+import trl.TRL.storage.TransferMetrics;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class EvidenciaService {
 
         private final EvidenciaRepository evidenciaRepository;
         private final ProyectoRepository proyectoRepository;
-        private final UsuarioRepository usuarioRepository;
+        private final CriterioRepository criterioRepository;
+        private final PuntajeTRLService puntajeTRLService;
+        private final BlobStore blobStore;
+        private final BlobReferencias blobReferencias;
+        private final BlobMigrationJob blobMigrationJob;
+        private final TransferMetrics transferMetrics;
 
         @Transactional
         public EvidenciaResponse subirEvidencia(Integer idProyecto, MultipartFile file, String descripcion,
-                        String estadoEvidencia) throws IOException {
-                String correo = getCorreoFromAuthentication();
-                Usuario usuario = usuarioRepository.findByCorreo(correo)
-                                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+                        String estadoEvidencia, Integer idCriterio) throws IOException {
+                AuthenticatedUser usuario = AuthenticatedUser.actual();
 
                 Proyecto proyecto = proyectoRepository
                                 .findByIdProyectoAndUsuario_IdUsuario(idProyecto, usuario.getIdUsuario())
                                 .orElseThrow(() -> new RuntimeException("Proyecto no encontrado o no autorizado"));
 
+                // El multipart ya está en disco; se copia al BlobStore por bloques, sin file.getBytes()
+                long inicio = System.nanoTime();
+                UploadEvent evento = new UploadEvent();
+                evento.begin();
+                BlobRef blob;
+                try (InputStream datos = file.getInputStream()) {
+                        blob = blobStore.put(datos);
+                }
+                transferMetrics.registrarCarga("evidencia", blob.getSize(), System.nanoTime() - inicio);
+                evento.end();
+                if (evento.shouldCommit()) {
+                        evento.tipo = "evidencia";
+                        evento.bytes = blob.getSize();
+                        evento.blobKey = blob.getKey();
+                        evento.commit();
+                }
+
                 Evidencia evidencia = new Evidencia();
                 evidencia.setProyecto(proyecto);
                 evidencia.setArchivoNombre(file.getOriginalFilename());
                 evidencia.setArchivoTipo(file.getContentType());
-                evidencia.setArchivoDatos(file.getBytes());
+                evidencia.setBlobKey(blob.getKey());
+                evidencia.setTamanoBytes(blob.getSize());
+                evidencia.setChecksum(blob.getChecksum());
                 evidencia.setDescripcion(descripcion);
                 evidencia.setFechaCarga(LocalDate.now());
                 evidencia.setEstadoEvidencia(estadoEvidencia);
+                evidencia.setCriterio(obtenerCriterio(idCriterio));
 
+                // Bajo el bloqueo del blob hasta el commit: un borrado concurrente de la misma clave espera a esta fila
+                blobReferencias.confirmar(blob, file::getInputStream);
                 Evidencia evidenciaGuardada = evidenciaRepository.save(evidencia);
+                puntajeTRLService.registrarCambioEvidencia(idProyecto, null, false, idCriterio,
+                                esActiva(evidenciaGuardada));
+
                 return convertirAResponse(evidenciaGuardada);
         }
 
+        @Transactional
+        public EvidenciaResponse actualizarEvidencia(Integer idEvidencia, EvidenciaRequest request) {
+                AuthenticatedUser usuario = AuthenticatedUser.actual();
+
+                Evidencia evidencia = evidenciaRepository
+                                .findByIdEvidenciaAndProyecto_Usuario_IdUsuario(idEvidencia, usuario.getIdUsuario())
+                                .orElseThrow(() -> new RuntimeException("Evidencia no encontrada o no autorizada"));
+
+                Integer idCriterioAnterior = idCriterio(evidencia);
+                boolean activaAntes = esActiva(evidencia);
+
+                // Actualización parcial: los campos ausentes del cuerpo conservan su valor
+                if (request.getDescripcion() != null) {
+                        evidencia.setDescripcion(request.getDescripcion());
+                }
+                if (request.getEstadoEvidencia() != null) {
+                        evidencia.setEstadoEvidencia(request.getEstadoEvidencia());
+                }
+                if (request.getIdCriterio() != null) {
+                        evidencia.setCriterio(obtenerCriterio(request.getIdCriterio()));
+                }
+
+                Evidencia evidenciaActualizada = evidenciaRepository.save(evidencia);
+                puntajeTRLService.registrarCambioEvidencia(evidencia.getProyecto().getIdProyecto(),
+                                idCriterioAnterior, activaAntes, idCriterio(evidenciaActualizada),
+                                esActiva(evidenciaActualizada));
+
+                return convertirAResponse(evidenciaActualizada);
+        }
+
         @Transactional(readOnly = true)
         public List<EvidenciaResponse> obtenerEvidenciasDelProyecto(Integer idProyecto) {
-                String correo = getCorreoFromAuthentication();
-                Usuario usuario = usuarioRepository.findByCorreo(correo)
-                                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+                AuthenticatedUser usuario = AuthenticatedUser.actual();
 
-                proyectoRepository.findByIdProyectoAndUsuario_IdUsuario(idProyecto, usuario.getIdUsuario())
-                                .orElseThrow(() -> new RuntimeException("Proyecto no encontrado o no autorizado"));
+                if (!proyectoRepository.existsByIdProyectoAndUsuario_IdUsuario(idProyecto, usuario.getIdUsuario())) {
+                        throw new RuntimeException("Proyecto no encontrado o no autorizado");
+                }
 
-                List<Evidencia> evidencias = evidenciaRepository.findByProyecto_IdProyecto(idProyecto);
-                return evidencias.stream()
-                                .map(this::convertirAResponse)
-                                .collect(Collectors.toList());
+                return evidenciaRepository.listarPorProyecto(idProyecto);
         }
 
+        /**
+         * Lee solo los metadatos del archivo en una transacción corta; la transmisión ocurre fuera de ella.
+         */
         @Transactional(readOnly = true)
-        public Evidencia obtenerArchivoEvidencia(Integer idEvidencia) {
-                String correo = getCorreoFromAuthentication();
-                Usuario usuario = usuarioRepository.findByCorreo(correo)
-                                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        public BlobDownload obtenerDescargaEvidencia(Integer idEvidencia) {
+                AuthenticatedUser usuario = AuthenticatedUser.actual();
 
-                return evidenciaRepository
+                Evidencia evidencia = evidenciaRepository
                                 .findByIdEvidenciaAndProyecto_Usuario_IdUsuario(idEvidencia, usuario.getIdUsuario())
                                 .orElseThrow(() -> new RuntimeException("Evidencia no encontrada o no autorizada"));
+
+                if (evidencia.getBlobKey() == null) {
+                        // Fila anterior al BlobStore que el job aún no ha migrado
+                        BlobRef blob = blobMigrationJob.migrarEvidencia(idEvidencia);
+                        if (blob == null) {
+                                throw new RuntimeException("La evidencia no tiene archivo asociado");
+                        }
+                        evidencia.setBlobKey(blob.getKey());
+                        evidencia.setTamanoBytes(blob.getSize());
+                        evidencia.setChecksum(blob.getChecksum());
+                }
+
+                long ultimaModificacion = evidencia.getFechaCarga()
+                                .atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                return new BlobDownload(evidencia.getBlobKey(), evidencia.getTamanoBytes(), evidencia.getChecksum(),
+                                evidencia.getArchivoNombre(), evidencia.getArchivoTipo(), ultimaModificacion);
         }
 
         @Transactional(readOnly = true)
         public EvidenciaResponse obtenerEvidenciaPorId(Integer idEvidencia) {
-                String correo = getCorreoFromAuthentication();
-                Usuario usuario = usuarioRepository.findByCorreo(correo)
-                                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+                AuthenticatedUser usuario = AuthenticatedUser.actual();
 
                 Evidencia evidencia = evidenciaRepository
                                 .findByIdEvidenciaAndProyecto_Usuario_IdUsuario(idEvidencia, usuario.getIdUsuario())
@@ -91,19 +173,44 @@ public class EvidenciaService {
 
         @Transactional
         public void eliminarEvidencia(Integer idEvidencia) throws IOException {
-                String correo = getCorreoFromAuthentication();
-                Usuario usuario = usuarioRepository.findByCorreo(correo)
-                                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+                AuthenticatedUser usuario = AuthenticatedUser.actual();
 
                 Evidencia evidencia = evidenciaRepository
                                 .findByIdEvidenciaAndProyecto_Usuario_IdUsuario(idEvidencia, usuario.getIdUsuario())
                                 .orElseThrow(() -> new RuntimeException("Evidencia no encontrada o no autorizada"));
 
                 evidenciaRepository.delete(evidencia);
+                puntajeTRLService.registrarCambioEvidencia(evidencia.getProyecto().getIdProyecto(),
+                                idCriterio(evidencia), esActiva(evidencia), null, false);
+
+                // El blob puede estar compartido (mismo archivo en otro proyecto); se borra tras el commit
+                String blobKey = evidencia.getBlobKey();
+                if (blobKey != null) {
+                        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                                @Override
+                                public void afterCommit() {
+                                        blobReferencias.eliminarSiHuerfano(blobKey);
+                                }
+                        });
+                }
+        }
+
+        private Criterio obtenerCriterio(Integer idCriterio) {
+                if (idCriterio == null) {
+                        return null;
+                }
+                if (!criterioRepository.existsById(idCriterio)) {
+                        throw new RuntimeException("Criterio no encontrado con ID: " + idCriterio);
+                }
+                return criterioRepository.getReferenceById(idCriterio);
+        }
+
+        private static Integer idCriterio(Evidencia evidencia) {
+                return evidencia.getCriterio() != null ? evidencia.getCriterio().getIdCriterio() : null;
         }
 
-        private String getCorreoFromAuthentication() {
-                return SecurityContextHolder.getContext().getAuthentication().getName();
+        private static boolean esActiva(Evidencia evidencia) {
+                return Evidencia.ESTADO_ACTIVA.equalsIgnoreCase(evidencia.getEstadoEvidencia());
         }
 
         private EvidenciaResponse convertirAResponse(Evidencia evidencia) {
@@ -111,6 +218,7 @@ public class EvidenciaService {
                                 evidencia.getIdEvidencia(),
                                 evidencia.getProyecto().getIdProyecto(),
                                 evidencia.getProyecto().getNombreProyecto(),
+                                idCriterio(evidencia),
                                 evidencia.getArchivoNombre(),
                                 evidencia.getDescripcion(),
                                 evidencia.getFechaCarga(),
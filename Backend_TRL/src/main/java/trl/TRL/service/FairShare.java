@@ -0,0 +1,55 @@
+package trl.TRL.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reparto proporcional de turnos (stride scheduling, equivalente a WFQ con trabajos de costo 1).
+ * Cada clave avanza su pase en 1/peso cuando recibe un turno y siempre se elige la clave activa
+ * de menor pase. Una clave que vuelve a tener trabajo parte del tiempo virtual actual, así no
+ * acumula crédito mientras estuvo inactiva.
+ *
+ * No es thread-safe; lo sincroniza quien lo usa.
+ */
+class FairShare<K> {
+
+    private final Map<K, Double> pases = new HashMap<>();
+    private double tiempoVirtual;
+
+    void activar(K clave) {
+        pases.merge(clave, tiempoVirtual, Math::max);
+    }
+
+    /**
+     * @return la clave de menor pase entre los candidatos (todos activos), o null si no hay
+     */
+    K elegir(Iterable<K> candidatos) {
+        K elegida = null;
+        double menor = Double.MAX_VALUE;
+        for (K candidato : candidatos) {
+            double pase = pases.getOrDefault(candidato, tiempoVirtual);
+            if (pase < menor) {
+                menor = pase;
+                elegida = candidato;
+            }
+        }
+        return elegida;
+    }
+
+    void conceder(K clave, double peso) {
+        double pase = pases.getOrDefault(clave, tiempoVirtual);
+        tiempoVirtual = Math.max(tiempoVirtual, pase);
+        pases.put(clave, pase + 1.0 / peso);
+    }
+
+    /**
+     * La clave se quedó sin trabajo. Se olvida si ya no conserva ventaja ni deuda, para que el
+     * mapa no crezca con claves que no vuelven.
+     */
+    void desactivar(K clave) {
+        Double pase = pases.get(clave);
+        if (pase != null && pase <= tiempoVirtual) {
+            pases.remove(clave);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package trl.TRL.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import trl.TRL.repository.CuotaGeminiRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limitador de llamadas a Gemini. Todos los análisis (scripts de Python y microservicio) comparten
+ * una misma cuota, así que el presupuesto vive en la base de datos y lo consumen todos los nodos.
+ *
+ * Son dos cubos de tokens: solicitudes por minuto y tokens estimados por minuto (cada trabajo
+ * declara cuántos espera gastar). Cuando Python informa un 429 el factor de reposición se reduce
+ * a la mitad y todos los nodos hacen una pausa; cada llamada exitosa lo recupera de a poco (AIMD).
+ * Un trabajo que no obtiene permiso espera antes de lanzar el proceso, no después de fallar.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GeminiRateLimiter {
+
+    public static final String MENSAJE_CUOTA_AGOTADA = "Cuota de Gemini agotada, intente más tarde";
+
+    private static final double REDUCCION = 0.5;
+
+    private final CuotaGeminiRepository repository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gemini.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gemini.rate-limit.requests-per-minute:15}")
+    private double solicitudesPorMinuto;
+
+    @Value("${gemini.rate-limit.tokens-per-minute:1000000}")
+    private double tokensPorMinuto;
+
+    @Value("${gemini.rate-limit.tokens-per-document:20000}")
+    private double tokensPorDocumento;
+
+    @Value("${gemini.rate-limit.tokens-per-project:120000}")
+    private double tokensPorProyecto;
+
+    @Value("${gemini.rate-limit.min-factor:0.1}")
+    private double factorMinimo;
+
+    @Value("${gemini.rate-limit.recovery-step:0.05}")
+    private double pasoRecuperacion;
+
+    @Value("${gemini.rate-limit.cooldown-seconds:30}")
+    private double pausaSegundos;
+
+    @Value("${gemini.rate-limit.max-wait-seconds:600}")
+    private long esperaMaximaSegundos;
+
+    @Value("${gemini.rate-limit.poll-interval-ms:1000}")
+    private long intervaloConsultaMs;
+
+    private final AtomicReference<Double> factor = new AtomicReference<>(1.0);
+
+    @PostConstruct
+    void registrarMetricas() {
+        Gauge.builder("trl.gemini.limiter.factor", factor, AtomicReference::get)
+                .description("Fracción del presupuesto de Gemini en uso tras los 429 recientes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        if (enabled) {
+            repository.inicializar(solicitudesPorMinuto, tokensPorMinuto);
+        }
+    }
+
+    public double getTokensPorDocumento() {
+        return tokensPorDocumento;
+    }
+
+    public double getTokensPorProyecto() {
+        return tokensPorProyecto;
+    }
+
+    /**
+     * Espera hasta que la cuota admita una llamada de {@code tokens} tokens estimados.
+     *
+     * @param cancelado se consulta entre intentos; si devuelve true se deja de esperar
+     * @return false si se canceló o se agotó la espera máxima sin obtener permiso
+     */
+    public boolean adquirir(double tokens, BooleanSupplier cancelado) throws InterruptedException {
+        if (!enabled) {
+            return true;
+        }
+        // Un trabajo más grande que el cubo completo nunca entraría; se le cobra el cubo entero
+        double costo = Math.min(tokens, tokensPorMinuto);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long limite = System.currentTimeMillis() + esperaMaximaSegundos * 1000;
+        boolean concedido = false;
+        try {
+            while (!cancelado.getAsBoolean()) {
+                List<Double> resultado = repository.consumir(solicitudesPorMinuto, tokensPorMinuto, costo);
+                if (!resultado.isEmpty()) {
+                    factor.set(resultado.get(0));
+                    concedido = true;
+                    return true;
+                }
+                if (System.currentTimeMillis() >= limite) {
+                    log.warn("Sin cuota de Gemini tras {} s de espera", esperaMaximaSegundos);
+                    return false;
+                }
+                Thread.sleep(intervaloConsultaMs);
+            }
+            return false;
+        } finally {
+            sample.stop(meterRegistry.timer("trl.gemini.limiter.wait", "resultado",
+                    concedido ? "concedido" : "rechazado"));
+        }
+    }
+
+    /**
+     * {@link #adquirir} para un trabajo de análisis: deja de esperar si la ejecución se aborta y,
+     * si no hubo cuota a tiempo, la marca para que el trabajo vuelva a la cola.
+     */
+    boolean adquirir(double tokens, PythonExecution ejecucion) throws InterruptedException {
+        if (ejecucion.isAborted()) {
+            return false;
+        }
+        if (!adquirir(tokens, ejecucion::isAborted)) {
+            if (!ejecucion.isAborted()) {
+                ejecucion.markQuotaExceeded();
+            }
+            return false;
+        }
+        return !ejecucion.isAborted();
+    }
+
+    /**
+     * Python informó que Gemini rechazó la llamada por cuota (429 / RESOURCE_EXHAUSTED).
+     */
+    public void reportarCuotaAgotada() {
+        if (!enabled) {
+            return;
+        }
+        meterRegistry.counter("trl.gemini.limiter.quota_exceeded").increment();
+        List<Double> resultado = repository.frenar(factorMinimo, REDUCCION, pausaSegundos);
+        if (!resultado.isEmpty()) {
+            factor.set(resultado.get(0));
+            log.warn("Cuota de Gemini agotada: pausa de {} s y presupuesto reducido al {}%", pausaSegundos,
+                    Math.round(resultado.get(0) * 100));
+        }
+    }
+
+    public void reportarExito() {
+        if (!enabled || factor.get() >= 1.0) {
+            return;
+        }
+        List<Double> resultado = repository.recuperar(pasoRecuperacion);
+        if (!resultado.isEmpty()) {
+            factor.set(resultado.get(0));
+        }
+    }
+}
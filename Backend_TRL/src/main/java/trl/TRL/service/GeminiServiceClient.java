@@ -0,0 +1,251 @@
+package trl.TRL.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cliente HTTP del microservicio-gemini (POST /analizar, GET /health).
+ *
+ * Usa un único OkHttpClient con pool de conexiones keep-alive para todos los trabajos del nodo.
+ * El PDF se envía como multipart leyéndolo del disco por bloques, sin cargarlo en memoria.
+ *
+ * Solo se reintentan los fallos en los que el servicio no llegó a analizar nada (conexión
+ * rechazada o cortada, 502/503/504), con backoff exponencial y jitter completo para que los
+ * nodos no reintenten a la vez. Un plazo de lectura vencido no se reintenta: Gemini pudo haber
+ * procesado la llamada y un reintento gastaría la cuota dos veces. Los fallos seguidos abren el
+ * circuito y los trabajos vuelven a la cola sin esperar cada uno su propio timeout.
+ *
+ * Una conexión del pool que el servicio ya cerró (uvicorn cierra las inactivas a los 5 s) la
+ * reintenta OkHttp por su cuenta en una conexión nueva, sin contar como intento ni como fallo del
+ * circuito; el keep-alive por defecto queda por debajo de ese plazo para que casi no ocurra.
+ */
+@Component
+@ConditionalOnProperty(name = "analysis.backend", havingValue = "microservice")
+@Slf4j
+public class GeminiServiceClient {
+
+    private static final MediaType PDF = MediaType.get("application/pdf");
+
+    private final OkHttpClient client;
+    private final HttpUrl urlAnalizar;
+    private final HttpUrl urlHealth;
+    private final int maxIntentos;
+    private final long backoffInicialMs;
+    private final long backoffMaximoMs;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public GeminiServiceClient(
+            @Value("${gemini-service.url:http://localhost:5000}") String url,
+            @Value("${gemini-service.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${gemini-service.read-timeout-seconds:300}") long readTimeoutSeconds,
+            @Value("${gemini-service.pool.max-idle-connections:8}") int maxConexionesInactivas,
+            @Value("${gemini-service.pool.keep-alive-seconds:4}") long keepAliveSeconds,
+            @Value("${gemini-service.retry.max-attempts:3}") int maxIntentos,
+            @Value("${gemini-service.retry.initial-backoff-ms:500}") long backoffInicialMs,
+            @Value("${gemini-service.retry.max-backoff-ms:8000}") long backoffMaximoMs,
+            @Value("${gemini-service.circuit-breaker.failure-threshold:5}") int umbralFallos,
+            @Value("${gemini-service.circuit-breaker.open-seconds:30}") long abiertoSegundos,
+            MeterRegistry meterRegistry) {
+        HttpUrl base = HttpUrl.get(url);
+        this.urlAnalizar = base.newBuilder().addPathSegment("analizar").build();
+        this.urlHealth = base.newBuilder().addPathSegment("health").build();
+        this.client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxConexionesInactivas, keepAliveSeconds, TimeUnit.SECONDS))
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .writeTimeout(Duration.ofSeconds(readTimeoutSeconds))
+                .readTimeout(Duration.ofSeconds(readTimeoutSeconds))
+                // Solo cubre conexiones del pool caídas; los reintentos del servicio los decide este cliente
+                .retryOnConnectionFailure(true)
+                .build();
+        this.maxIntentos = Math.max(1, maxIntentos);
+        this.backoffInicialMs = backoffInicialMs;
+        this.backoffMaximoMs = backoffMaximoMs;
+        this.circuitBreaker = new CircuitBreaker(umbralFallos, abiertoSegundos * 1000);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("trl.gemini.service.circuit", circuitBreaker, cb -> cb.getEstado().ordinal())
+                .description("Estado del circuito hacia microservicio-gemini (0 cerrado, 1 abierto, 2 semiabierto)")
+                .register(meterRegistry);
+        log.info("Análisis TRL delegado al microservicio-gemini en {}", base);
+    }
+
+    /**
+     * Envía el PDF a /analizar.
+     *
+     * @param ejecucion al abortarse cancela la llamada en curso
+     * @return el informe TRL (table_text)
+     * @throws GeminiServiceException si no hubo informe; el tipo indica si vale la pena reintentar
+     */
+    public String analizar(Path pdf, PythonExecution ejecucion) throws InterruptedException {
+        Request request = new Request.Builder()
+                .url(urlAnalizar)
+                .post(new MultipartBody.Builder()
+                        .setType(MultipartBody.FORM)
+                        .addFormDataPart("file", pdf.getFileName().toString(), RequestBody.create(pdf.toFile(), PDF))
+                        .build())
+                .build();
+
+        String ultimoError = null;
+        for (int intento = 1; ; intento++) {
+            if (!circuitBreaker.permitir()) {
+                throw new GeminiServiceException(GeminiServiceException.Tipo.NO_DISPONIBLE,
+                        "Microservicio de análisis no disponible (circuito abierto "
+                                + circuitBreaker.restanteAbiertoMs() / 1000 + " s más)", intento == 1);
+            }
+            if (circuitBreaker.getEstado() == CircuitBreaker.Estado.SEMIABIERTO && !sondear()) {
+                circuitBreaker.registrarFallo();
+                throw new GeminiServiceException(GeminiServiceException.Tipo.NO_DISPONIBLE,
+                        "Microservicio de análisis no disponible (health check fallido)");
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String resultado = "error";
+            Call call = client.newCall(request);
+            ejecucion.attach(call::cancel);
+            try (Response response = call.execute()) {
+                int codigo = response.code();
+                if (codigo == 502 || codigo == 503 || codigo == 504) {
+                    circuitBreaker.registrarFallo();
+                    ultimoError = "HTTP " + codigo;
+                } else {
+                    // El servicio respondió: el circuito se cierra aunque el análisis haya fallado
+                    circuitBreaker.registrarExito();
+                    String informe = interpretar(response);
+                    resultado = "ok";
+                    return informe;
+                }
+            } catch (IOException e) {
+                if (ejecucion.isAborted()) {
+                    circuitBreaker.liberar();
+                    resultado = "abortado";
+                    throw new GeminiServiceException(GeminiServiceException.Tipo.ABORTADO, ejecucion.getAbortReason(), e);
+                }
+                circuitBreaker.registrarFallo();
+                if (e instanceof InterruptedIOException && !esTimeoutDeConexion(e)) {
+                    resultado = "timeout";
+                    throw new GeminiServiceException(GeminiServiceException.Tipo.NO_DISPONIBLE,
+                            "El microservicio de análisis no respondió a tiempo", e);
+                }
+                ultimoError = e.getMessage();
+            } catch (GeminiServiceException e) {
+                resultado = e.getTipo().name().toLowerCase();
+                throw e;
+            } finally {
+                ejecucion.detach();
+                sample.stop(meterRegistry.timer("trl.gemini.service.request", "resultado", resultado));
+            }
+
+            if (intento >= maxIntentos) {
+                throw new GeminiServiceException(GeminiServiceException.Tipo.NO_DISPONIBLE,
+                        "Microservicio de análisis no disponible tras " + intento + " intento(s): " + ultimoError);
+            }
+            long espera = backoff(intento);
+            log.warn("Fallo al llamar al microservicio de análisis ({}), reintento {} en {} ms", ultimoError,
+                    intento + 1, espera);
+            meterRegistry.counter("trl.gemini.service.retries").increment();
+            Thread.sleep(espera);
+            if (ejecucion.isAborted()) {
+                throw new GeminiServiceException(GeminiServiceException.Tipo.ABORTADO, ejecucion.getAbortReason());
+            }
+        }
+    }
+
+    /**
+     * GET /health: true si el servicio responde 2xx.
+     */
+    public boolean sondear() {
+        Request request = new Request.Builder().url(urlHealth).get().build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.isSuccessful();
+        } catch (IOException e) {
+            log.debug("Health check del microservicio de análisis fallido: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * false si el circuito rechazaría ahora la llamada. No reserva la llamada de prueba del estado
+     * semiabierto, así que {@link #analizar} todavía puede rechazarla.
+     */
+    public boolean disponible() {
+        return circuitBreaker.admite();
+    }
+
+    CircuitBreaker.Estado getEstadoCircuito() {
+        return circuitBreaker.getEstado();
+    }
+
+    /**
+     * Backoff exponencial con jitter completo: un valor al azar entre 0 y min(máximo, inicial * 2^(n-1)).
+     */
+    long backoff(int intento) {
+        long tope = Math.min(backoffMaximoMs, backoffInicialMs << Math.min(intento - 1, 20));
+        return ThreadLocalRandom.current().nextLong(tope + 1);
+    }
+
+    private boolean esTimeoutDeConexion(IOException e) {
+        // Sin conexión establecida el servicio no recibió el PDF y reintentar es seguro
+        return e.getMessage() != null && e.getMessage().toLowerCase().contains("connect timed out");
+    }
+
+    private String interpretar(Response response) throws IOException {
+        ResponseBody body = response.body();
+        Map<String, Object> respuesta;
+        try {
+            respuesta = body == null ? Map.of()
+                    : objectMapper.readValue(body.byteStream(), new TypeReference<Map<String, Object>>() {
+                    });
+        } catch (JacksonException e) {
+            throw new GeminiServiceException(GeminiServiceException.Tipo.RECHAZADO,
+                    "Respuesta inválida del microservicio de análisis (HTTP " + response.code() + ")", e);
+        }
+
+        if (response.isSuccessful() && Boolean.TRUE.equals(respuesta.get("success"))
+                && respuesta.get("table_text") instanceof String informe) {
+            return informe;
+        }
+
+        // FastAPI devuelve {"detail": ...} en los 4xx y {"success": false, "error": ...} en los fallos de Gemini
+        Object detalle = respuesta.containsKey("error") ? respuesta.get("error") : respuesta.get("detail");
+        String mensaje = detalle != null ? detalle.toString() : "HTTP " + response.code();
+        if (response.code() == 429 || mensaje.contains("429") || mensaje.contains("RESOURCE_EXHAUSTED")) {
+            throw new GeminiServiceException(GeminiServiceException.Tipo.CUOTA, mensaje);
+        }
+        throw new GeminiServiceException(GeminiServiceException.Tipo.RECHAZADO, mensaje);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
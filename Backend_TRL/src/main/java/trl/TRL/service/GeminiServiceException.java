@@ -0,0 +1,50 @@
+package trl.TRL.service;
+
+/**
+ * Fallo de una llamada al microservicio-gemini. El tipo decide qué hace la cola con el trabajo:
+ * CUOTA y NO_DISPONIBLE son pasajeros y el documento vuelve a PENDING; RECHAZADO es definitivo.
+ */
+public class GeminiServiceException extends RuntimeException {
+
+    public enum Tipo {
+        // Gemini respondió 429 / RESOURCE_EXHAUSTED
+        CUOTA,
+        // Circuito abierto, errores de conexión o 502/503/504 tras agotar los reintentos
+        NO_DISPONIBLE,
+        // El servicio respondió pero no pudo analizar el documento
+        RECHAZADO,
+        // La ejecución se abortó (plazo vencido o cancelación) durante la llamada
+        ABORTADO
+    }
+
+    private final Tipo tipo;
+    private final boolean circuitoAbierto;
+
+    public GeminiServiceException(Tipo tipo, String message) {
+        this(tipo, message, false);
+    }
+
+    /**
+     * @param circuitoAbierto el circuito rechazó la llamada antes de que este trabajo llegara al
+     *                        servicio; la cola no lo cuenta como intento
+     */
+    public GeminiServiceException(Tipo tipo, String message, boolean circuitoAbierto) {
+        super(message);
+        this.tipo = tipo;
+        this.circuitoAbierto = circuitoAbierto;
+    }
+
+    public GeminiServiceException(Tipo tipo, String message, Throwable cause) {
+        super(message, cause);
+        this.tipo = tipo;
+        this.circuitoAbierto = false;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public boolean isCircuitoAbierto() {
+        return circuitoAbierto;
+    }
+}
@@ -0,0 +1,87 @@
+package trl.TRL.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import trl.TRL.diagnostics.JobTrace;
+import trl.TRL.repository.DocumentRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Análisis con el microservicio-gemini: el nodo no lanza Python y la capa de análisis escala
+ * aparte. Pasa por el mismo limitador de Gemini que los scripts y deja el informe donde lo deja
+ * analyze_main.py (storage/analysis/analisis_{id}.txt) y en documents.analysis_result.
+ */
+@Service
+@ConditionalOnProperty(name = "analysis.backend", havingValue = "microservice")
+@RequiredArgsConstructor
+@Slf4j
+public class MicroserviceDocumentAnalysisBackend implements DocumentAnalysisBackend {
+
+    private final GeminiServiceClient client;
+    private final GeminiRateLimiter rateLimiter;
+    private final DocumentRepository documentRepository;
+
+    private final Path directorioResultados = Paths.get("storage", "analysis").toAbsolutePath();
+
+    @Value("${gemini-service.timeout-seconds:600}")
+    private long timeoutSeconds;
+
+    @Override
+    public boolean analizar(Integer docId, String filePath, JobTrace traza, PythonExecution ejecucion) {
+        try {
+            if (!client.disponible()) {
+                // Sin servicio no se gasta cuota: el documento vuelve a la cola hasta que el circuito se cierre
+                ejecucion.markCircuitOpen();
+                log.info("Documento {} no enviado: circuito hacia el microservicio abierto", docId);
+                return false;
+            }
+            log.info("Enviando documento {} al microservicio de análisis", docId);
+            traza.fase(JobTrace.FASE_CUOTA);
+            if (!rateLimiter.adquirir(rateLimiter.getTokensPorDocumento(), ejecucion)) {
+                return false;
+            }
+            ejecucion.start(Duration.ofSeconds(timeoutSeconds));
+
+            traza.fase(JobTrace.FASE_LLM);
+            String informe = client.analizar(Paths.get(filePath), ejecucion);
+            rateLimiter.reportarExito();
+
+            traza.fase(JobTrace.FASE_PERSISTENCIA);
+            Files.createDirectories(directorioResultados);
+            Files.writeString(directorioResultados.resolve("analisis_" + docId + ".txt"), informe);
+            // Como guardar_resultado en document_processor.py: caché y origen para los gemelos
+            documentRepository.saveAnalysisResult(docId, informe);
+            log.info("Análisis del documento {} completado por el microservicio", docId);
+            return !ejecucion.isAborted();
+        } catch (GeminiServiceException e) {
+            switch (e.getTipo()) {
+                case CUOTA -> {
+                    ejecucion.markQuotaExceeded();
+                    rateLimiter.reportarCuotaAgotada();
+                }
+                case NO_DISPONIBLE -> {
+                    if (e.isCircuitoAbierto()) {
+                        ejecucion.markCircuitOpen();
+                    } else {
+                        ejecucion.markServiceUnavailable();
+                    }
+                }
+                default -> {
+                }
+            }
+            log.warn("Microservicio de análisis sin resultado para el documento {} ({}): {}", docId, e.getTipo(),
+                    e.getMessage());
+            return false;
+        } catch (Exception e) {
+            log.error("Error al analizar el documento {} con el microservicio: ", docId, e);
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package trl.TRL.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import trl.TRL.dto.NivelTRLRequest;
@@ -8,14 +9,12 @@ import trl.TRL.dto.NivelTRLResponse;
 import trl.TRL.model.NivelTRL;
 import trl.TRL.repository.NivelTRLRepository;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 @Service
 @RequiredArgsConstructor
 public class NivelTRLService {
 
     private final NivelTRLRepository nivelTRLRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public NivelTRLResponse crearNivelTRL(NivelTRLRequest request) {
@@ -33,23 +32,11 @@ public class NivelTRLService {
         nivelTRL.setDescripcionTrl(request.getDescripcionTrl());
 
         NivelTRL nivelGuardado = nivelTRLRepository.save(nivelTRL);
+        eventPublisher.publishEvent(new CatalogoTRLModificadoEvent());
 
         return convertirAResponse(nivelGuardado);
     }
 
-    public List<NivelTRLResponse> obtenerTodosLosNiveles() {
-        return nivelTRLRepository.findAll().stream()
-                .map(this::convertirAResponse)
-                .collect(Collectors.toList());
-    }
-
-    public NivelTRLResponse obtenerNivelPorId(Integer id) {
-        NivelTRL nivel = nivelTRLRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Nivel TRL no encontrado con ID: " + id));
-
-        return convertirAResponse(nivel);
-    }
-
     @Transactional
     public NivelTRLResponse actualizarNivelTRL(Integer id, NivelTRLRequest request) {
         NivelTRL nivel = nivelTRLRepository.findById(id)
@@ -69,6 +56,7 @@ public class NivelTRLService {
         nivel.setDescripcionTrl(request.getDescripcionTrl());
 
         NivelTRL nivelActualizado = nivelTRLRepository.save(nivel);
+        eventPublisher.publishEvent(new CatalogoTRLModificadoEvent());
 
         return convertirAResponse(nivelActualizado);
     }
@@ -80,9 +68,10 @@ public class NivelTRLService {
         }
 
         nivelTRLRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogoTRLModificadoEvent());
     }
 
-    private NivelTRLResponse convertirAResponse(NivelTRL nivel) {
+    static NivelTRLResponse convertirAResponse(NivelTRL nivel) {
         return new NivelTRLResponse(
                 nivel.getIdNivel(),
                 nivel.getNumNivel(),
@@ -1,15 +1,14 @@
 package trl.TRL.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import trl.TRL.dto.ProyectoRequest;
 import trl.TRL.dto.ProyectoResponse;
 import trl.TRL.model.Proyecto;
-import trl.TRL.model.Usuario;
 import trl.TRL.repository.ProyectoRepository;
 import trl.TRL.repository.UsuarioRepository;
+import trl.TRL.security.AuthenticatedUser;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,12 +22,10 @@ public class ProyectoService {
 
     @Transactional
     public ProyectoResponse crearProyecto(ProyectoRequest request) {
-        String correo = getCorreoFromAuthentication();
-        Usuario usuario = usuarioRepository.findByCorreo(correo)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        AuthenticatedUser usuario = AuthenticatedUser.actual();
 
         Proyecto proyecto = new Proyecto();
-        proyecto.setUsuario(usuario);
+        proyecto.setUsuario(usuarioRepository.getReferenceById(usuario.getIdUsuario()));
         proyecto.setNombreProyecto(request.getNombreProyecto());
         proyecto.setTipoProyecto(request.getTipoProyecto());
         proyecto.setResponsable(request.getResponsable());
@@ -45,9 +42,7 @@ public class ProyectoService {
 
     @Transactional(readOnly = true)
     public List<ProyectoResponse> obtenerProyectosDelUsuario() {
-        String correo = getCorreoFromAuthentication();
-        Usuario usuario = usuarioRepository.findByCorreo(correo)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        AuthenticatedUser usuario = AuthenticatedUser.actual();
 
         List<Proyecto> proyectos = proyectoRepository.findByUsuario_IdUsuario(usuario.getIdUsuario());
         return proyectos.stream()
@@ -57,9 +52,7 @@ public class ProyectoService {
 
     @Transactional(readOnly = true)
     public ProyectoResponse obtenerProyectoPorId(Integer idProyecto) {
-        String correo = getCorreoFromAuthentication();
-        Usuario usuario = usuarioRepository.findByCorreo(correo)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        AuthenticatedUser usuario = AuthenticatedUser.actual();
 
         Proyecto proyecto = proyectoRepository.findByIdProyectoAndUsuario_IdUsuario(idProyecto, usuario.getIdUsuario())
                 .orElseThrow(() -> new RuntimeException("Proyecto no encontrado o no autorizado"));
@@ -69,9 +62,7 @@ public class ProyectoService {
 
     @Transactional
     public ProyectoResponse actualizarProyecto(Integer idProyecto, ProyectoRequest request) {
-        String correo = getCorreoFromAuthentication();
-        Usuario usuario = usuarioRepository.findByCorreo(correo)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        AuthenticatedUser usuario = AuthenticatedUser.actual();
 
         Proyecto proyecto = proyectoRepository.findByIdProyectoAndUsuario_IdUsuario(idProyecto, usuario.getIdUsuario())
                 .orElseThrow(() -> new RuntimeException("Proyecto no encontrado o no autorizado"));
@@ -92,9 +83,7 @@ public class ProyectoService {
 
     @Transactional
     public void eliminarProyecto(Integer idProyecto) {
-        String correo = getCorreoFromAuthentication();
-        Usuario usuario = usuarioRepository.findByCorreo(correo)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        AuthenticatedUser usuario = AuthenticatedUser.actual();
 
         Proyecto proyecto = proyectoRepository.findByIdProyectoAndUsuario_IdUsuario(idProyecto, usuario.getIdUsuario())
                 .orElseThrow(() -> new RuntimeException("Proyecto no encontrado o no autorizado"));
@@ -102,10 +91,6 @@ public class ProyectoService {
         proyectoRepository.delete(proyecto);
     }
 
-    private String getCorreoFromAuthentication() {
-        return SecurityContextHolder.getContext().getAuthentication().getName();
-    }
-
     private ProyectoResponse convertirAResponse(Proyecto proyecto) {
         return new ProyectoResponse(
                 proyecto.getIdProyecto(),
@@ -0,0 +1,239 @@
+package trl.TRL.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import trl.TRL.dto.NivelTRLResponse;
+import trl.TRL.dto.PuntajeNivelTRLResponse;
+import trl.TRL.dto.PuntajeTRLResponse;
+import trl.TRL.repository.ProyectoRepository;
+import trl.TRL.repository.PuntajeProyectoCriterioRepository;
+import trl.TRL.repository.PuntajeProyectoNivelRepository;
+import trl.TRL.repository.PuntajeTRLRecalculoRepository;
+import trl.TRL.security.AuthenticatedUser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Puntaje TRL de cada proyecto calculado en Java, sin pasar por el análisis con IA.
+ *
+ * Se materializan dos tablas: el número de evidencias activas por criterio
+ * (puntaje_proyecto_criterio) y el puntaje por nivel (puntaje_proyecto_nivel). Un cambio de
+ * evidencia solo toca el contador de su criterio y, si el criterio pasa a cumplido o deja de
+ * estarlo, recalcula ese nivel. Un cambio de catálogo recalcula todos los proyectos en paralelo
+ * con un ForkJoinPool, cada proyecto en su propia transacción. Cada versión del catálogo (por
+ * ETag) la recalcula un solo nodo: el que la reclama primero en puntaje_trl_recalculo.
+ */
+@Service
+@Slf4j
+public class PuntajeTRLService {
+
+    private final PuntajeProyectoCriterioRepository puntajeCriterioRepository;
+    private final PuntajeProyectoNivelRepository puntajeNivelRepository;
+    private final PuntajeTRLRecalculoRepository recalculoRepository;
+    private final ProyectoRepository proyectoRepository;
+    private final CatalogoTRLService catalogoTRLService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${puntaje-trl.rescore.batch-size:16}")
+    private int batchSize;
+
+    @Value("${puntaje-trl.rescore.abandon-minutes:30}")
+    private int minutosAbandono;
+
+    private final ForkJoinPool recalculoPool;
+    private final ExecutorService coordinador = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "puntaje-trl-recalculo");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean recalculoPendiente = new AtomicBoolean();
+
+    public PuntajeTRLService(PuntajeProyectoCriterioRepository puntajeCriterioRepository,
+            PuntajeProyectoNivelRepository puntajeNivelRepository, PuntajeTRLRecalculoRepository recalculoRepository,
+            ProyectoRepository proyectoRepository,
+            CatalogoTRLService catalogoTRLService, PlatformTransactionManager transactionManager,
+            @Value("${puntaje-trl.rescore.parallelism:4}") int parallelism) {
+        this.puntajeCriterioRepository = puntajeCriterioRepository;
+        this.puntajeNivelRepository = puntajeNivelRepository;
+        this.recalculoRepository = recalculoRepository;
+        this.proyectoRepository = proyectoRepository;
+        this.catalogoTRLService = catalogoTRLService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Cada tarea ocupa una conexión; el paralelismo debe quedar por debajo del pool de Hikari
+        this.recalculoPool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Aplica el cambio de una evidencia al puntaje. Debe llamarse dentro de la transacción que
+     * crea, modifica o elimina la evidencia, para que ambos cambios se confirmen juntos.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCambioEvidencia(Integer idProyecto, Integer idCriterioAnterior, boolean activaAntes,
+            Integer idCriterioNuevo, boolean activaDespues) {
+        boolean contabaAntes = idCriterioAnterior != null && activaAntes;
+        boolean cuentaDespues = idCriterioNuevo != null && activaDespues;
+        if (contabaAntes == cuentaDespues && (!contabaAntes || idCriterioAnterior.equals(idCriterioNuevo))) {
+            return;
+        }
+
+        proyectoRepository.bloquearParaPuntaje(idProyecto);
+        if (contabaAntes) {
+            ajustarCriterio(idProyecto, idCriterioAnterior, -1);
+        }
+        if (cuentaDespues) {
+            ajustarCriterio(idProyecto, idCriterioNuevo, 1);
+        }
+    }
+
+    private void ajustarCriterio(Integer idProyecto, Integer idCriterio, int delta) {
+        int evidenciasActivas = puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, idCriterio, delta);
+        // El nivel solo cambia cuando el criterio pasa de 0 a 1 evidencias activas o de 1 a 0
+        boolean cambioCumplimiento = delta > 0 ? evidenciasActivas == 1 : evidenciasActivas == 0;
+        if (cambioCumplimiento) {
+            puntajeNivelRepository.recalcularNivelDelCriterio(idProyecto, idCriterio);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public PuntajeTRLResponse obtenerPuntaje(Integer idProyecto) {
+        AuthenticatedUser usuario = AuthenticatedUser.actual();
+
+        if (!proyectoRepository.existsByIdProyectoAndUsuario_IdUsuario(idProyecto, usuario.getIdUsuario())) {
+            throw new RuntimeException("Proyecto no encontrado o no autorizado");
+        }
+
+        Map<Integer, Integer> puntajes = puntajeNivelRepository.listarPorProyecto(idProyecto).stream()
+                .collect(Collectors.toMap(PuntajeProyectoNivelRepository.PuntajeNivel::getIdNivel,
+                        PuntajeProyectoNivelRepository.PuntajeNivel::getPuntaje));
+
+        // Validación secuencial: un nivel solo cuenta si todos los anteriores están validados
+        List<PuntajeNivelTRLResponse> niveles = new ArrayList<>();
+        int acumulado = 0;
+        int nivelAlcanzado = 0;
+        boolean secuenciaValida = true;
+        for (NivelTRLResponse nivel : catalogoTRLService.actual().getNiveles()) {
+            int puntaje = puntajes.getOrDefault(nivel.getIdNivel(), 0);
+            acumulado += puntaje;
+            boolean validado = secuenciaValida && acumulado >= nivel.getPuntajeMinimo();
+            if (validado) {
+                nivelAlcanzado = nivel.getNumNivel();
+            } else {
+                secuenciaValida = false;
+            }
+            niveles.add(new PuntajeNivelTRLResponse(nivel.getIdNivel(), nivel.getNumNivel(), nivel.getNomNivel(),
+                    puntaje, acumulado, nivel.getPuntajeMinimo(), validado));
+        }
+
+        return new PuntajeTRLResponse(idProyecto, nivelAlcanzado, acumulado, niveles);
+    }
+
+    @EventListener
+    public void alActualizarCatalogo(CatalogoTRLActualizadoEvent event) {
+        solicitarRecalculo();
+    }
+
+    /**
+     * Agenda un recálculo completo. Las solicitudes que llegan mientras hay uno en cola se agrupan,
+     * y no se hace nada si otro nodo ya recalculó (o está recalculando) la versión actual del catálogo.
+     */
+    public void solicitarRecalculo() {
+        if (recalculoPendiente.compareAndSet(false, true)) {
+            coordinador.execute(() -> {
+                recalculoPendiente.set(false);
+                try {
+                    String etag = catalogoTRLService.actual().getEtag();
+                    if (recalculoRepository.reclamar(etag, minutosAbandono).isEmpty()) {
+                        log.debug("Puntajes TRL del catálogo {} ya recalculados por otro nodo", etag);
+                        return;
+                    }
+                    recalcularTodos();
+                    recalculoRepository.completar(etag);
+                } catch (Exception e) {
+                    log.error("Error al recalcular los puntajes TRL: ", e);
+                }
+            });
+        }
+    }
+
+    public void recalcularTodos() {
+        List<Integer> ids = proyectoRepository.listarIds();
+        long inicio = System.nanoTime();
+        AtomicInteger fallidos = new AtomicInteger();
+        recalculoPool.invoke(new RecalculoTask(ids, 0, ids.size(), fallidos));
+        log.info("Puntajes TRL recalculados para {} proyecto(s) en {} ms ({} con error)", ids.size(),
+                (System.nanoTime() - inicio) / 1_000_000, fallidos.get());
+    }
+
+    /**
+     * Reconstruye desde cero los contadores y los niveles de un proyecto en una transacción propia.
+     */
+    public void recalcularProyecto(Integer idProyecto) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (proyectoRepository.bloquearParaPuntaje(idProyecto).isEmpty()) {
+                return;
+            }
+            puntajeCriterioRepository.eliminarPorProyecto(idProyecto);
+            puntajeCriterioRepository.recontarPorProyecto(idProyecto);
+            puntajeNivelRepository.eliminarPorProyecto(idProyecto);
+            puntajeNivelRepository.recalcularNivelesPorProyecto(idProyecto);
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinador.shutdownNow();
+        recalculoPool.shutdownNow();
+    }
+
+    private class RecalculoTask extends RecursiveAction {
+
+        private final List<Integer> ids;
+        private final int desde;
+        private final int hasta;
+        private final AtomicInteger fallidos;
+
+        RecalculoTask(List<Integer> ids, int desde, int hasta, AtomicInteger fallidos) {
+            this.ids = ids;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.fallidos = fallidos;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde <= Math.max(1, batchSize)) {
+                for (int i = desde; i < hasta; i++) {
+                    try {
+                        recalcularProyecto(ids.get(i));
+                    } catch (Exception e) {
+                        fallidos.incrementAndGet();
+                        log.warn("No se pudo recalcular el puntaje TRL del proyecto {}: {}", ids.get(i),
+                                e.getMessage());
+                    }
+                }
+                return;
+            }
+            int medio = (desde + hasta) >>> 1;
+            invokeAll(new RecalculoTask(ids, desde, medio, fallidos),
+                    new RecalculoTask(ids, medio, hasta, fallidos));
+        }
+    }
+}
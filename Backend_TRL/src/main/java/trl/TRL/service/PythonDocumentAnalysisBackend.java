@@ -0,0 +1,22 @@
+package trl.TRL.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import trl.TRL.diagnostics.JobTrace;
+
+/**
+ * Análisis con analyze_main.py en este nodo (fork o pool de workers, según python.worker-pool).
+ */
+@Service
+@ConditionalOnProperty(name = "analysis.backend", havingValue = "python", matchIfMissing = true)
+@RequiredArgsConstructor
+public class PythonDocumentAnalysisBackend implements DocumentAnalysisBackend {
+
+    private final PythonIntegrationService pythonService;
+
+    @Override
+    public boolean analizar(Integer docId, String filePath, JobTrace traza, PythonExecution ejecucion) {
+        return pythonService.executeTRLAnalysis(docId, filePath, traza, ejecucion);
+    }
+}
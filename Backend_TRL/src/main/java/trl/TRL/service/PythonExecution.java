@@ -0,0 +1,161 @@
+package trl.TRL.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Una ejecución de Python asociada a un trabajo de análisis: su plazo, el proceso que la atiende
+ * (el script o el worker del pool, o la llamada HTTP al microservicio) y, si se abortó, el motivo.
+ *
+ * Abortar mata el árbol completo de procesos; los descendientes se recorren antes de matar al
+ * padre para que no queden huérfanos colgados de init.
+ */
+@Slf4j
+public class PythonExecution {
+
+    private final String key;
+    private long deadlineNanos = Long.MAX_VALUE;
+    private Duration timeout;
+    private Process process;
+    private Runnable cancelacion;
+    private String abortReason;
+    private boolean quotaExceeded;
+    private boolean serviceUnavailable;
+    private boolean circuitOpen;
+
+    PythonExecution(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    synchronized void start(Duration timeout) {
+        this.timeout = timeout;
+        deadlineNanos = System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Vuelve a contar el plazo completo desde ahora: la espera por un worker libre no debe
+     * consumir el tiempo de la ejecución.
+     */
+    synchronized void restart() {
+        if (timeout != null) {
+            deadlineNanos = System.nanoTime() + timeout.toNanos();
+        }
+    }
+
+    synchronized Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Asocia el proceso que atiende la ejecución. Si ya se abortó, lo mata de inmediato.
+     */
+    synchronized void attach(Process process) {
+        this.process = process;
+        if (abortReason != null) {
+            killTree(process);
+        }
+    }
+
+    /**
+     * Asocia una operación remota (una llamada HTTP en curso) que se cancela al abortar.
+     */
+    synchronized void attach(Runnable cancelacion) {
+        this.cancelacion = cancelacion;
+        if (abortReason != null) {
+            cancelacion.run();
+        }
+    }
+
+    /**
+     * Desasocia el proceso (un worker del pool vuelve a quedar libre y no debe matarse).
+     *
+     * @return true si la ejecución se abortó mientras el proceso estaba asociado (ya se mató)
+     */
+    synchronized boolean detach() {
+        boolean abortadoAsociado = abortReason != null && (process != null || cancelacion != null);
+        this.process = null;
+        this.cancelacion = null;
+        return abortadoAsociado;
+    }
+
+    synchronized boolean isExpired() {
+        return abortReason == null && System.nanoTime() > deadlineNanos;
+    }
+
+    /**
+     * @return false si ya estaba abortada (se conserva el primer motivo)
+     */
+    public synchronized boolean abort(String reason) {
+        if (abortReason != null) {
+            return false;
+        }
+        abortReason = reason;
+        if (process != null) {
+            killTree(process);
+        }
+        if (cancelacion != null) {
+            log.warn("Abortando la ejecución {}: {}", key, abortReason);
+            cancelacion.run();
+        }
+        return true;
+    }
+
+    public synchronized boolean isAborted() {
+        return abortReason != null;
+    }
+
+    public synchronized String getAbortReason() {
+        return abortReason;
+    }
+
+    /**
+     * Gemini rechazó la llamada por cuota (o no hubo cuota para lanzarla): el trabajo puede
+     * reintentarse más tarde sin que sea culpa del documento o proyecto.
+     */
+    synchronized void markQuotaExceeded() {
+        quotaExceeded = true;
+    }
+
+    public synchronized boolean isQuotaExceeded() {
+        return quotaExceeded;
+    }
+
+    /**
+     * El servicio de análisis remoto no respondió (circuito abierto o reintentos agotados); como
+     * con la cuota, el trabajo puede volver a la cola.
+     */
+    synchronized void markServiceUnavailable() {
+        serviceUnavailable = true;
+    }
+
+    public synchronized boolean isServiceUnavailable() {
+        return serviceUnavailable;
+    }
+
+    /**
+     * El circuito hacia el servicio remoto estaba abierto y la llamada ni se intentó: el trabajo
+     * vuelve a la cola sin contar como intento.
+     */
+    synchronized void markCircuitOpen() {
+        serviceUnavailable = true;
+        circuitOpen = true;
+    }
+
+    public synchronized boolean isCircuitOpen() {
+        return circuitOpen;
+    }
+
+    private void killTree(Process target) {
+        List<ProcessHandle> descendants = target.descendants().toList();
+        log.warn("Abortando la ejecución Python {} (pid {}, {} subproceso(s)): {}", key, target.pid(),
+                descendants.size(), abortReason);
+        descendants.forEach(ProcessHandle::destroyForcibly);
+        target.destroyForcibly();
+    }
+}
@@ -1,47 +1,92 @@
 package trl.TRL.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import trl.TRL.diagnostics.JobLogBuffer;
+import trl.TRL.diagnostics.JobLogRegistry;
+import trl.TRL.diagnostics.JobTrace;
+import trl.TRL.diagnostics.PythonProcessEvent;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
 @lombok.RequiredArgsConstructor
 public class PythonIntegrationService {
 
+    // Código de salida de los scripts cuando Gemini responde 429 / RESOURCE_EXHAUSTED (EX_TEMPFAIL)
+    static final int EXIT_CUOTA_AGOTADA = 75;
+
     @Value("${python.executable:python}")
     private String pythonExecutable;
 
+    @Value("${blob-store.type:filesystem}")
+    private String blobStoreType;
+
+    @Value("${blob-store.filesystem.root:storage/blobs}")
+    private String blobStoreRoot;
+
     private final String scriptsPath = Paths.get("python_scripts").toAbsolutePath().toString();
 
-    public boolean executeTRLAnalysis(Integer docId, String filePath) {
-        try {
-            log.info("Iniciando ejecución de script Python para análisis TRL. DocID: {}", docId);
+    private final PythonWorkerPool workerPool;
+    private final MeterRegistry meterRegistry;
+    private final JobLogRegistry jobLogRegistry;
+    private final GeminiRateLimiter rateLimiter;
 
-            ProcessBuilder pb = new ProcessBuilder(
-                    pythonExecutable,
-                    Paths.get(scriptsPath, "analyze_main.py").toString(),
-                    "--file", filePath,
-                    "--doc_id", docId.toString());
+    @Value("${logs.jobs.failure-summary-lines:20}")
+    private int lineasResumenFallo;
 
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
+    @Value("${python.timeout.trl-analysis-seconds:900}")
+    private long timeoutAnalisisTRL;
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    log.info("[Python] " + line);
+    @Value("${python.timeout.project-analysis-seconds:1800}")
+    private long timeoutAnalisisProyecto;
+
+    /**
+     * @param ejecucion registrada en {@link PythonProcessWatchdog}; si se aborta (plazo vencido o
+     *                  cancelación) el proceso se mata y el método devuelve false
+     */
+    public boolean executeTRLAnalysis(Integer docId, String filePath, JobTrace traza, PythonExecution ejecucion) {
+        try {
+            log.info("Iniciando ejecución de script Python para análisis TRL. DocID: {}", docId);
+            if (!esperarCuota(rateLimiter.getTokensPorDocumento(), traza, ejecucion)) {
+                return false;
+            }
+            ejecucion.start(Duration.ofSeconds(timeoutAnalisisTRL));
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            PythonProcessEvent evento = new PythonProcessEvent();
+            evento.begin();
+            JobLogBuffer salida = abrirSalida(traza);
+            int exitCode = -1;
+            try {
+                if (workerPool.isEnabled()) {
+                    exitCode = workerPool.execute(PythonWorkerPool.TRL_ANALYSIS,
+                            Map.of("file", filePath, "doc_id", docId.toString(), "traceparent", traceparent(traza)),
+                            line -> observar(traza, salida, line), ejecucion);
+                } else {
+                    exitCode = runScript(List.of(
+                            pythonExecutable,
+                            Paths.get(scriptsPath, "analyze_main.py").toString(),
+                            "--file", filePath,
+                            "--doc_id", docId.toString()), traza, salida, ejecucion);
                 }
+            } finally {
+                registrarEjecucion(sample, evento, PythonWorkerPool.TRL_ANALYSIS, docId, exitCode);
+                jobLogRegistry.cerrar(salida);
             }
 
-            int exitCode = process.waitFor();
-            log.info("Script de Python finalizado con código: {}", exitCode);
+            resumirSalida("Script de Python", salida, exitCode, ejecucion);
 
-            return exitCode == 0;
+            return exitCode == 0 && !ejecucion.isAborted();
         } catch (Exception e) {
             log.error("Error al ejecutar el script de Python: ", e);
             return false;
@@ -50,29 +95,39 @@ public class PythonIntegrationService {
 
     private final ReporteProyectoService reporteProyectoService;
 
-    public boolean executeProjectAnalysis(Integer projectId) {
+    public boolean executeProjectAnalysis(Integer projectId, JobTrace traza, PythonExecution ejecucion) {
         try {
             log.info("Iniciando análisis global del proyecto ID: {}", projectId);
-
-            ProcessBuilder pb = new ProcessBuilder(
-                    pythonExecutable,
-                    Paths.get(scriptsPath, "analyze_project.py").toString(),
-                    "--project_id", projectId.toString());
-
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    log.info("[Python-Project] " + line);
+            if (!esperarCuota(rateLimiter.getTokensPorProyecto(), traza, ejecucion)) {
+                return false;
+            }
+            ejecucion.start(Duration.ofSeconds(timeoutAnalisisProyecto));
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            PythonProcessEvent evento = new PythonProcessEvent();
+            evento.begin();
+            JobLogBuffer salida = abrirSalida(traza);
+            int exitCode = -1;
+            try {
+                if (workerPool.isEnabled()) {
+                    exitCode = workerPool.execute(PythonWorkerPool.PROJECT_ANALYSIS,
+                            Map.of("project_id", projectId, "traceparent", traceparent(traza)),
+                            line -> observar(traza, salida, line), ejecucion);
+                } else {
+                    exitCode = runScript(List.of(
+                            pythonExecutable,
+                            Paths.get(scriptsPath, "analyze_project.py").toString(),
+                            "--project_id", projectId.toString()), traza, salida, ejecucion);
                 }
+            } finally {
+                registrarEjecucion(sample, evento, PythonWorkerPool.PROJECT_ANALYSIS, projectId, exitCode);
+                jobLogRegistry.cerrar(salida);
             }
 
-            int exitCode = process.waitFor();
-            log.info("Script de análisis de proyecto finalizado con código: {}", exitCode);
+            resumirSalida("Script de análisis de proyecto", salida, exitCode, ejecucion);
 
-            if (exitCode == 0) {
+            if (exitCode == 0 && !ejecucion.isAborted()) {
+                traza.fase(JobTrace.FASE_PERSISTENCIA);
                 // Guardar el reporte PDF en la base de datos
                 String reportFileName = "analisis_proyecto_" + projectId + ".pdf";
                 String reportPath = Paths.get("storage", "analysis", reportFileName).toAbsolutePath().toString();
@@ -86,4 +141,101 @@ public class PythonIntegrationService {
             return false;
         }
     }
+
+    private void registrarEjecucion(Timer.Sample sample, PythonProcessEvent evento, String script, int objetivo,
+            int exitCode) {
+        String modo = workerPool.isEnabled() ? "pool" : "proceso";
+        sample.stop(Timer.builder("trl.python.execution")
+                .description("Duración de los análisis en Python")
+                .tag("script", script)
+                .tag("exit_code", String.valueOf(exitCode))
+                .tag("modo", modo)
+                .register(meterRegistry));
+
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.script = script;
+            evento.objetivo = objetivo;
+            evento.modo = modo;
+            evento.exitCode = exitCode;
+            evento.commit();
+        }
+    }
+
+    /**
+     * Contexto W3C que Python recibe como TRACEPARENT: la traza del trabajo y el span de la fase
+     * en que se lanza el script.
+     */
+    private String traceparent(JobTrace traza) {
+        return traza.getSpanActual().traceparent();
+    }
+
+    private JobLogBuffer abrirSalida(JobTrace traza) {
+        return jobLogRegistry.abrir(traza.getTipo(), traza.getObjetivo(), traza.getContexto().traceId());
+    }
+
+    /**
+     * La salida de Python va al log del trabajo, no al log principal.
+     */
+    private void observar(JobTrace traza, JobLogBuffer salida, String line) {
+        traza.observar(line);
+        jobLogRegistry.registrar(salida, line);
+    }
+
+    /**
+     * Espera turno en el limitador de Gemini antes de ocupar un proceso de Python. El plazo de la
+     * ejecución empieza a correr después, así la espera no cuenta como tiempo de análisis.
+     */
+    private boolean esperarCuota(double tokens, JobTrace traza, PythonExecution ejecucion)
+            throws InterruptedException {
+        if (ejecucion.isAborted()) {
+            return false;
+        }
+        traza.fase(JobTrace.FASE_CUOTA);
+        return rateLimiter.adquirir(tokens, ejecucion);
+    }
+
+    /**
+     * Una sola línea en el log principal; si el script falla se agregan sus últimas líneas.
+     */
+    private void resumirSalida(String script, JobLogBuffer salida, int exitCode, PythonExecution ejecucion) {
+        if (ejecucion.isAborted()) {
+            log.warn("{} abortado: {} (log del trabajo: {})", script, ejecucion.getAbortReason(), salida.getClave());
+            return;
+        }
+        if (exitCode == 0) {
+            rateLimiter.reportarExito();
+            log.info("{} finalizado con código: {} (log del trabajo: {})", script, exitCode, salida.getClave());
+            return;
+        }
+        if (exitCode == EXIT_CUOTA_AGOTADA) {
+            ejecucion.markQuotaExceeded();
+            rateLimiter.reportarCuotaAgotada();
+            log.warn("{} rechazado por cuota de Gemini (log del trabajo: {})", script, salida.getClave());
+            return;
+        }
+        log.warn("{} finalizado con código: {} (log del trabajo: {}). Últimas líneas:\n{}", script, exitCode,
+                salida.getClave(), String.join("\n", salida.ultimas(lineasResumenFallo).lineas()));
+    }
+
+    private int runScript(List<String> command, JobTrace traza, JobLogBuffer salida, PythonExecution ejecucion)
+            throws Exception {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.environment().put("BLOB_STORE_TYPE", blobStoreType);
+        pb.environment().put("BLOB_STORE_DIR", Paths.get(blobStoreRoot).toAbsolutePath().toString());
+        pb.environment().put("TRACEPARENT", traceparent(traza));
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+        ejecucion.attach(process);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                observar(traza, salida, line);
+            }
+            return process.waitFor();
+        } finally {
+            ejecucion.detach();
+        }
+    }
 }
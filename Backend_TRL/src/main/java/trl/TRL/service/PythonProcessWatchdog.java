@@ -0,0 +1,78 @@
+package trl.TRL.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de las ejecuciones Python en curso en este nodo. Vigila sus plazos, permite
+ * cancelarlas por clave (documento-{id}, proyecto-{idJob}) y al apagar el nodo mata los
+ * procesos que sigan vivos para que no sobrevivan a la JVM.
+ */
+@Service
+@Slf4j
+public class PythonProcessWatchdog {
+
+    public static final String MOTIVO_CANCELADO = "Análisis cancelado por el usuario";
+
+    private final Map<String, PythonExecution> executions = new ConcurrentHashMap<>();
+    private final Counter timeouts;
+    private final Counter cancellations;
+
+    public PythonProcessWatchdog(MeterRegistry meterRegistry) {
+        this.timeouts = Counter.builder("trl.python.aborted").tag("motivo", "timeout")
+                .description("Ejecuciones Python abortadas").register(meterRegistry);
+        this.cancellations = Counter.builder("trl.python.aborted").tag("motivo", "cancelado")
+                .description("Ejecuciones Python abortadas").register(meterRegistry);
+    }
+
+    public PythonExecution register(String key) {
+        PythonExecution execution = new PythonExecution(key);
+        executions.put(key, execution);
+        return execution;
+    }
+
+    public void unregister(PythonExecution execution) {
+        executions.remove(execution.getKey(), execution);
+    }
+
+    /**
+     * @return true si la ejecución estaba en curso en este nodo y se abortó
+     */
+    public boolean cancel(String key) {
+        PythonExecution execution = executions.get(key);
+        if (execution != null && execution.abort(MOTIVO_CANCELADO)) {
+            cancellations.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isRunning(String key) {
+        return executions.containsKey(key);
+    }
+
+    @Scheduled(fixedDelayString = "${python.watchdog.interval-ms:5000}")
+    public void enforceDeadlines() {
+        executions.values().forEach(execution -> {
+            if (execution.isExpired() && execution.abort(
+                    "Tiempo límite de análisis excedido (" + execution.getTimeout().toSeconds() + " s)")) {
+                timeouts.increment();
+            }
+        });
+    }
+
+    @PreDestroy
+    void killAll() {
+        if (!executions.isEmpty()) {
+            log.warn("Terminando {} ejecución(es) Python al apagar el nodo", executions.size());
+            executions.values().forEach(execution -> execution.abort("Nodo detenido"));
+        }
+    }
+}
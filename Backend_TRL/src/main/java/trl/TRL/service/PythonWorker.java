@@ -0,0 +1,147 @@
+package trl.TRL.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Proceso Python persistente (worker.py) que atiende peticiones JSON de una en una.
+ * stdout transporta las respuestas del protocolo; stderr trae los logs del trabajo en curso.
+ */
+@Slf4j
+class PythonWorker {
+
+    private final int workerId;
+    private final Process process;
+    private final BufferedWriter stdin;
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+
+    private volatile Consumer<String> lineConsumer;
+    private int requestsServed = 0;
+
+    PythonWorker(int workerId, ProcessBuilder processBuilder) throws IOException {
+        this.workerId = workerId;
+        this.process = processBuilder.start();
+        this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+        startReader("python-worker-" + workerId + "-stdout", new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)), responses::add);
+        startReader("python-worker-" + workerId + "-stderr", new BufferedReader(
+                new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8)), this::onOutputLine);
+    }
+
+    private void startReader(String name, BufferedReader reader, Consumer<String> consumer) {
+        Thread thread = new Thread(() -> {
+            try (reader) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    consumer.accept(line);
+                }
+            } catch (IOException e) {
+                log.debug("Lector {} cerrado: {}", name, e.getMessage());
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void onOutputLine(String line) {
+        Consumer<String> consumer = lineConsumer;
+        if (consumer != null) {
+            consumer.accept(line);
+        } else {
+            log.debug("[Python-Worker-{}] {}", workerId, line);
+        }
+    }
+
+    /**
+     * Envía una petición y espera su respuesta. Devuelve null si el proceso murió o se agotó el tiempo.
+     *
+     * @param esRespuesta reconoce la respuesta a esta petición; las demás líneas (la respuesta tardía
+     *                    de una petición anterior que venció) se descartan
+     */
+    String request(String jsonLine, Predicate<String> esRespuesta, long timeoutMillis,
+            Consumer<String> outputConsumer) throws IOException, InterruptedException {
+        this.lineConsumer = outputConsumer;
+        try {
+            responses.clear();
+            stdin.write(jsonLine);
+            stdin.newLine();
+            stdin.flush();
+
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (System.currentTimeMillis() < deadline) {
+                String response = responses.poll(1, TimeUnit.SECONDS);
+                if (response != null) {
+                    if (esRespuesta.test(response)) {
+                        return response;
+                    }
+                    log.warn("Worker Python {} descartó una respuesta que no corresponde a la petición en curso: {}",
+                            workerId, response);
+                    continue;
+                }
+                if (!process.isAlive()) {
+                    return null;
+                }
+            }
+            return null;
+        } finally {
+            this.lineConsumer = null;
+        }
+    }
+
+    /**
+     * Espera el mensaje de arranque que worker.py emite tras cargar sus dependencias.
+     */
+    String awaitReady(long timeoutMillis) throws InterruptedException {
+        return responses.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    Process getProcess() {
+        return process;
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    int getWorkerId() {
+        return workerId;
+    }
+
+    void recordRequestServed() {
+        requestsServed++;
+    }
+
+    int getRequestsServed() {
+        return requestsServed;
+    }
+
+    void destroy() {
+        try {
+            stdin.close();
+        } catch (IOException ignored) {
+            // el proceso puede haber cerrado stdin por su cuenta
+        }
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        try {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
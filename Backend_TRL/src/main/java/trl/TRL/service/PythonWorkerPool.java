@@ -0,0 +1,265 @@
+package trl.TRL.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pool de procesos Python persistentes (worker.py). Evita pagar el arranque del intérprete
+ * y las importaciones pesadas (google-genai, PDF, loguru, DB manager) en cada análisis.
+ *
+ * Cada worker atiende una petición a la vez. Los workers que mueren se reemplazan, los que
+ * superan python.worker-pool.max-requests-per-worker se reciclan y los ociosos se verifican
+ * periódicamente con un ping.
+ */
+@Component
+@Slf4j
+public class PythonWorkerPool {
+
+    public static final String TRL_ANALYSIS = "trl_analysis";
+    public static final String PROJECT_ANALYSIS = "project_analysis";
+
+    @Value("${python.executable:python}")
+    private String pythonExecutable;
+
+    @Value("${python.worker-pool.enabled:false}")
+    private boolean enabled;
+
+    @Value("${python.worker-pool.size:2}")
+    private int size;
+
+    @Value("${python.worker-pool.max-requests-per-worker:50}")
+    private int maxRequestsPerWorker;
+
+    @Value("${python.worker-pool.startup-timeout-ms:120000}")
+    private long startupTimeoutMillis;
+
+    @Value("${python.worker-pool.ping-timeout-ms:10000}")
+    private long pingTimeoutMillis;
+
+    @Value("${python.worker-pool.request-timeout-ms:3600000}")
+    private long requestTimeoutMillis;
+
+    @Value("${blob-store.type:filesystem}")
+    private String blobStoreType;
+
+    @Value("${blob-store.filesystem.root:storage/blobs}")
+    private String blobStoreRoot;
+
+    private final String scriptsPath = Paths.get("python_scripts").toAbsolutePath().toString();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<PythonWorker> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger liveWorkers = new AtomicInteger();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final ExecutorService restarter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "python-worker-restarter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running = false;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < size; i++) {
+            scheduleReplacement();
+        }
+        log.info("Pool de workers Python habilitado con {} procesos", size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ejecuta una petición en un worker libre (bloquea hasta que haya uno). Mientras atiende la
+     * petición, el proceso del worker queda asociado a {@code execution}: abortarla lo mata y el
+     * pool lo reemplaza.
+     *
+     * @return código de salida reportado por el script, o -1 si el worker falló o se abortó
+     */
+    public int execute(String type, Map<String, Object> args, Consumer<String> outputConsumer,
+            PythonExecution execution) {
+        PythonWorker worker = null;
+        try {
+            while (worker == null) {
+                if (execution.isAborted()) {
+                    return -1;
+                }
+                worker = idle.poll(1, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+
+        execution.restart();
+        execution.attach(worker.getProcess());
+        boolean healthy = false;
+        try {
+            WorkerResponse response = send(worker, type, args, requestTimeoutMillis, outputConsumer);
+            if (response == null) {
+                log.warn("Worker Python {} no respondió a la petición {}", worker.getWorkerId(), type);
+                return -1;
+            }
+            healthy = true;
+            worker.recordRequestServed();
+            return response.getExitCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (Exception e) {
+            log.error("Error comunicándose con el worker Python {}: ", worker.getWorkerId(), e);
+            return -1;
+        } finally {
+            // Un abort que llega justo después de leer la respuesta ya mató al proceso
+            boolean muerto = execution.detach();
+            release(worker, healthy && !muerto);
+        }
+    }
+
+    private WorkerResponse send(PythonWorker worker, String type, Map<String, Object> args, long timeoutMillis,
+            Consumer<String> outputConsumer) throws IOException, InterruptedException {
+        String id = UUID.randomUUID().toString();
+        Map<String, Object> request = new HashMap<>();
+        request.put("id", id);
+        request.put("type", type);
+        request.put("args", args);
+
+        String line = worker.request(objectMapper.writeValueAsString(request),
+                respuesta -> id.equals(idDe(respuesta)), timeoutMillis, outputConsumer);
+        return line == null ? null : objectMapper.readValue(line, WorkerResponse.class);
+    }
+
+    private String idDe(String respuesta) {
+        try {
+            return objectMapper.readValue(respuesta, WorkerResponse.class).getId();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void release(PythonWorker worker, boolean healthy) {
+        if (running && healthy && worker.isAlive() && worker.getRequestsServed() < maxRequestsPerWorker) {
+            idle.add(worker);
+            return;
+        }
+
+        String reason = !healthy || !worker.isAlive() ? "caído" : "reciclado tras " + worker.getRequestsServed()
+                + " peticiones";
+        retire(worker, reason);
+        scheduleReplacement();
+    }
+
+    private void retire(PythonWorker worker, String reason) {
+        log.info("Retirando worker Python {} ({})", worker.getWorkerId(), reason);
+        liveWorkers.decrementAndGet();
+        worker.destroy();
+    }
+
+    private void scheduleReplacement() {
+        if (!running) {
+            return;
+        }
+        restarter.execute(() -> {
+            if (!running || liveWorkers.get() >= size) {
+                return;
+            }
+            try {
+                PythonWorker worker = startWorker();
+                liveWorkers.incrementAndGet();
+                idle.add(worker);
+            } catch (Exception e) {
+                log.error("No se pudo iniciar un worker Python: {}", e.getMessage());
+            }
+        });
+    }
+
+    private PythonWorker startWorker() throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(pythonExecutable, Paths.get(scriptsPath, "worker.py").toString());
+        pb.environment().put("PYTHONUNBUFFERED", "1");
+        pb.environment().put("PYTHONIOENCODING", "utf-8");
+        pb.environment().put("BLOB_STORE_TYPE", blobStoreType);
+        pb.environment().put("BLOB_STORE_DIR", Paths.get(blobStoreRoot).toAbsolutePath().toString());
+
+        PythonWorker worker = new PythonWorker(workerIds.incrementAndGet(), pb);
+        if (worker.awaitReady(startupTimeoutMillis) == null) {
+            worker.destroy();
+            throw new IOException("worker.py no envió la señal de arranque a tiempo");
+        }
+        log.info("Worker Python {} listo", worker.getWorkerId());
+        return worker;
+    }
+
+    @Scheduled(fixedDelayString = "${python.worker-pool.health-check-interval-ms:30000}")
+    public void healthCheck() {
+        if (!running) {
+            return;
+        }
+
+        int toCheck = idle.size();
+        for (int i = 0; i < toCheck; i++) {
+            PythonWorker worker = idle.poll();
+            if (worker == null) {
+                break;
+            }
+            boolean healthy = false;
+            try {
+                WorkerResponse pong = send(worker, "ping", Map.of(), pingTimeoutMillis, null);
+                healthy = pong != null && pong.isOk();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Ping fallido al worker Python {}: {}", worker.getWorkerId(), e.getMessage());
+            }
+            release(worker, healthy);
+        }
+
+        for (int i = liveWorkers.get(); i < size; i++) {
+            scheduleReplacement();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        restarter.shutdownNow();
+        PythonWorker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.destroy();
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class WorkerResponse {
+        private String id;
+        private boolean ok;
+        private int exitCode;
+        private String error;
+    }
+}
@@ -8,13 +8,19 @@ import trl.TRL.model.Proyecto;
 import trl.TRL.model.ReporteProyecto;
 import trl.TRL.repository.ProyectoRepository;
 import trl.TRL.repository.ReporteProyectoRepository;
+import trl.TRL.storage.BlobDownload;
+import trl.TRL.storage.BlobMigrationJob;
+import trl.TRL.storage.BlobRef;
+import trl.TRL.storage.BlobReferencias;
+import trl.TRL.storage.BlobStore;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.ZoneId;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +28,9 @@ public class ReporteProyectoService {
 
     private final ReporteProyectoRepository reporteRepository;
     private final ProyectoRepository proyectoRepository;
+    private final BlobStore blobStore;
+    private final BlobReferencias blobReferencias;
+    private final BlobMigrationJob blobMigrationJob;
 
     @Transactional
     public void guardarReporteDesdeArchivo(Integer idProyecto, String filePath) throws IOException {
@@ -29,31 +38,50 @@ public class ReporteProyectoService {
                 .orElseThrow(() -> new RuntimeException("Proyecto no encontrado"));
 
         Path path = Paths.get(filePath);
-        byte[] data = Files.readAllBytes(path);
+        BlobRef blob;
+        try (InputStream datos = Files.newInputStream(path)) {
+            blob = blobStore.put(datos);
+        }
 
         ReporteProyecto reporte = new ReporteProyecto();
         reporte.setProyecto(proyecto);
         reporte.setNombreArchivo(path.getFileName().toString());
         reporte.setTipoArchivo("application/pdf");
-        reporte.setArchivoDatos(data);
+        reporte.setBlobKey(blob.getKey());
+        reporte.setTamanoBytes(blob.getSize());
+        reporte.setChecksum(blob.getChecksum());
 
+        blobReferencias.confirmar(blob, () -> Files.newInputStream(path));
         reporteRepository.save(reporte);
     }
 
     @Transactional(readOnly = true)
     public List<ReporteProyectoResponse> obtenerReportesPorProyecto(Integer idProyecto) {
-        return reporteRepository.findByProyecto_IdProyecto(idProyecto).stream()
-                .map(r -> new ReporteProyectoResponse(
-                        r.getIdReporte(),
-                        r.getProyecto().getIdProyecto(),
-                        r.getNombreArchivo(),
-                        r.getFechaCreacion()))
-                .collect(Collectors.toList());
+        return reporteRepository.listarPorProyecto(idProyecto);
     }
 
+    /**
+     * Lee solo los metadatos del reporte en una transacción corta; la transmisión ocurre fuera de ella.
+     */
     @Transactional(readOnly = true)
-    public ReporteProyecto obtenerArchivoReporte(Integer idReporte) {
-        return reporteRepository.findById(idReporte)
+    public BlobDownload obtenerDescargaReporte(Integer idReporte) {
+        ReporteProyecto reporte = reporteRepository.findById(idReporte)
                 .orElseThrow(() -> new RuntimeException("Reporte no encontrado"));
+
+        if (reporte.getBlobKey() == null) {
+            BlobRef blob = blobMigrationJob.migrarReporte(idReporte);
+            if (blob == null) {
+                throw new RuntimeException("El reporte no tiene archivo asociado");
+            }
+            reporte.setBlobKey(blob.getKey());
+            reporte.setTamanoBytes(blob.getSize());
+            reporte.setChecksum(blob.getChecksum());
+        }
+
+        long ultimaModificacion = reporte.getFechaCreacion() != null
+                ? reporte.getFechaCreacion().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+        return new BlobDownload(reporte.getBlobKey(), reporte.getTamanoBytes(), reporte.getChecksum(),
+                reporte.getNombreArchivo(), reporte.getTipoArchivo(), ultimaModificacion);
     }
 }
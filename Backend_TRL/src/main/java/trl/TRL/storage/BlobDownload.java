@@ -0,0 +1,20 @@
+package trl.TRL.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metadatos necesarios para servir un blob por HTTP, leídos antes de empezar a transmitir.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlobDownload {
+    private String key;
+    private long size;
+    private String checksum;
+    private String filename;
+    private String contentType;
+    private long lastModified;
+}
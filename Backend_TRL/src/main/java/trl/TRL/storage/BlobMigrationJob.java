@@ -0,0 +1,140 @@
+package trl.TRL.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mueve al BlobStore los archivos que siguen guardados en las columnas BYTEA heredadas
+ * (evidencia.archivo_datos y reporte_proyecto.archivo_datos), fila por fila y en lotes pequeños.
+ * Cada fila se bloquea con FOR UPDATE, así que varios nodos pueden ejecutar el job a la vez.
+ *
+ * Cada tabla se recorre con un cursor por id que avanza entre ejecuciones: una fila que falla
+ * siempre (contenido corrupto, error del almacén) se reintenta en la vuelta siguiente, pero no
+ * impide que se migre el resto de la tabla.
+ */
+@Component
+@Slf4j
+public class BlobMigrationJob {
+
+    private static final Tabla EVIDENCIA = new Tabla("evidencia", "idevidencia");
+    private static final Tabla REPORTE = new Tabla("reporte_proyecto", "idreporte");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlobStore blobStore;
+    private final BlobReferencias blobReferencias;
+    private final Map<Tabla, Integer> cursores = new ConcurrentHashMap<>();
+
+    @Value("${blob-store.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blob-store.migration.batch-size:20}")
+    private int batchSize;
+
+    public BlobMigrationJob(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            BlobStore blobStore, BlobReferencias blobReferencias) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.blobReferencias = blobReferencias;
+        // Transacción propia: la migración bajo demanda puede llamarse desde una transacción de solo lectura
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(fixedDelayString = "${blob-store.migration.interval-ms:60000}")
+    public void migrarPendientes() {
+        if (!enabled) {
+            return;
+        }
+        int evidencias = migrarLote(EVIDENCIA);
+        int reportes = migrarLote(REPORTE);
+        if (evidencias > 0 || reportes > 0) {
+            log.info("Migración de blobs: {} evidencia(s) y {} reporte(s) movidos al BlobStore", evidencias, reportes);
+        }
+    }
+
+    /**
+     * Migra una evidencia concreta (por ejemplo, al descargarla antes de que pase el job).
+     *
+     * @return referencia del blob, o null si la fila no existe o no tiene contenido
+     */
+    public BlobRef migrarEvidencia(Integer idEvidencia) {
+        return migrarFila(EVIDENCIA, idEvidencia);
+    }
+
+    public BlobRef migrarReporte(Integer idReporte) {
+        return migrarFila(REPORTE, idReporte);
+    }
+
+    private int migrarLote(Tabla tabla) {
+        int desde = cursores.getOrDefault(tabla, 0);
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT " + tabla.columnaId() + " FROM " + tabla.nombre()
+                        + " WHERE blob_key IS NULL AND archivo_datos IS NOT NULL AND " + tabla.columnaId() + " > ?"
+                        + " ORDER BY " + tabla.columnaId() + " LIMIT ?",
+                Integer.class, desde, batchSize);
+        // Al llegar al final la próxima vuelta empieza de nuevo y reintenta las que fallaron
+        cursores.put(tabla, ids.size() < batchSize ? 0 : ids.get(ids.size() - 1));
+
+        int migradas = 0;
+        for (Integer id : ids) {
+            try {
+                migrarFila(tabla, id);
+                migradas++;
+            } catch (Exception e) {
+                log.error("No se pudo migrar {} {} al BlobStore: {}", tabla.nombre(), id, e.getMessage());
+            }
+        }
+        return migradas;
+    }
+
+    private BlobRef migrarFila(Tabla tabla, Integer id) {
+        return transactionTemplate.execute(status -> {
+            List<BlobRef> refs = jdbcTemplate.query(
+                    "SELECT blob_key, tamano_bytes, checksum, archivo_datos FROM " + tabla.nombre()
+                            + " WHERE " + tabla.columnaId() + " = ? FOR UPDATE",
+                    (rs, rowNum) -> {
+                        if (rs.getString("blob_key") != null) {
+                            // Otro nodo la migró mientras esperábamos el bloqueo
+                            return new BlobRef(rs.getString("blob_key"), rs.getLong("tamano_bytes"),
+                                    rs.getString("checksum"));
+                        }
+                        try (InputStream datos = rs.getBinaryStream("archivo_datos")) {
+                            if (datos == null) {
+                                return null;
+                            }
+                            BlobRef ref = blobStore.put(datos);
+                            blobReferencias.confirmar(ref, () -> new ByteArrayInputStream(jdbcTemplate.queryForObject(
+                                    "SELECT archivo_datos FROM " + tabla.nombre() + " WHERE " + tabla.columnaId() + " = ?",
+                                    byte[].class, id)));
+                            jdbcTemplate.update("UPDATE " + tabla.nombre()
+                                    + " SET blob_key = ?, tamano_bytes = ?, checksum = ?, archivo_datos = NULL WHERE "
+                                    + tabla.columnaId() + " = ?",
+                                    ref.getKey(), ref.getSize(), ref.getChecksum(), id);
+                            return ref;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, id);
+
+            return refs.isEmpty() ? null : refs.get(0);
+        });
+    }
+
+    private record Tabla(String nombre, String columnaId) {
+    }
+}
@@ -0,0 +1,17 @@
+package trl.TRL.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Referencia a un archivo guardado en el {@link BlobStore}: clave, tamaño y SHA-256 del contenido.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlobRef {
+    private String key;
+    private long size;
+    private String checksum;
+}
@@ -0,0 +1,116 @@
+package trl.TRL.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Coordina el alta y el borrado de blobs compartidos. Con el almacén direccionado por contenido
+ * la misma clave puede estar en documents, evidencia y reporte_proyecto a la vez, y una subida
+ * puede reutilizar un archivo que otra petición está a punto de borrar.
+ *
+ * Ambos lados toman el mismo advisory lock por clave: el borrado comprueba las tres tablas y
+ * borra sin soltarlo; la subida, con la fila ya guardada o dentro de la transacción que la
+ * guarda, verifica que el contenido siga ahí y si no lo vuelve a escribir.
+ */
+@Component
+@Slf4j
+public class BlobReferencias {
+
+    private static final String BLOQUEO =
+            "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(hashtext('blob'), hashtext(?))) bloqueo";
+
+    private static final String REFERENCIADO = """
+            SELECT EXISTS (SELECT 1 FROM documents WHERE blob_key = ?)
+                OR EXISTS (SELECT 1 FROM evidencia WHERE blob_key = ?)
+                OR EXISTS (SELECT 1 FROM reporte_proyecto WHERE blob_key = ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transaccion;
+    private final TransactionTemplate transaccionPropia;
+
+    public BlobReferencias(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            BlobStore blobStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        // Dentro de una transacción el bloqueo dura hasta su commit; fuera de ella, lo que dura la comprobación
+        this.transaccion = new TransactionTemplate(transactionManager);
+        // El borrado suele correr en afterCommit, donde no se puede reutilizar la transacción que terminó
+        this.transaccionPropia = new TransactionTemplate(transactionManager);
+        this.transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Contenido que puede leerse más de una vez (el multipart en disco, un archivo local).
+     */
+    @FunctionalInterface
+    public interface Fuente {
+        InputStream abrir() throws IOException;
+    }
+
+    /**
+     * Asegura que el blob recién guardado sigue en el almacén. Debe llamarse dentro de la
+     * transacción que inserta la fila que lo referencia, o después de su commit.
+     */
+    public void confirmar(BlobRef blob, Fuente fuente) throws IOException {
+        try {
+            transaccion.executeWithoutResult(status -> {
+                bloquear(blob.getKey());
+                try {
+                    if (blobStore.exists(blob.getKey())) {
+                        return;
+                    }
+                    BlobRef nuevo;
+                    try (InputStream datos = fuente.abrir()) {
+                        nuevo = blobStore.put(datos);
+                    }
+                    if (!nuevo.getKey().equals(blob.getKey())) {
+                        throw new IOException("El blob " + blob.getKey() + " se borró y no pudo restaurarse con la misma clave");
+                    }
+                    log.info("Blob {} restaurado tras un borrado concurrente", blob.getKey());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Borra el blob si ninguna fila de documents, evidencia o reporte_proyecto lo referencia.
+     * Los errores se registran y no se propagan: un blob huérfano solo ocupa espacio.
+     */
+    public void eliminarSiHuerfano(String blobKey) {
+        try {
+            transaccionPropia.executeWithoutResult(status -> {
+                bloquear(blobKey);
+                Boolean referenciado = jdbcTemplate.queryForObject(REFERENCIADO, Boolean.class, blobKey, blobKey,
+                        blobKey);
+                if (Boolean.TRUE.equals(referenciado)) {
+                    return;
+                }
+                try {
+                    blobStore.delete(blobKey);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("No se pudo eliminar el blob {}: {}", blobKey, e.getMessage());
+        }
+    }
+
+    private void bloquear(String blobKey) {
+        jdbcTemplate.queryForObject(BLOQUEO, Integer.class, blobKey);
+    }
+}
@@ -0,0 +1,166 @@
+package trl.TRL.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import trl.TRL.diagnostics.BlobReadEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Escribe un blob en la respuesta HTTP sin cargarlo en memoria: ETag fuerte (SHA-256),
+ * Last-Modified, respuestas 304/412, un rango de bytes (206/416) y envío zero-copy
+ * (sendfile de Tomcat o FileChannel.transferTo) cuando el blob está en disco.
+ */
+@Component
+@RequiredArgsConstructor
+public class BlobResponseWriter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final BlobStore blobStore;
+    private final TransferMetrics transferMetrics;
+
+    public void write(BlobDownload blob, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        long inicio = System.nanoTime();
+        BlobReadEvent evento = new BlobReadEvent();
+        evento.begin();
+        long bytes = 0;
+        try {
+            bytes = escribir(blob, request, response);
+        } finally {
+            // Con sendfile Tomcat escribe el cuerpo después de que retornamos: no hay duración que medir aquí
+            boolean sendfile = request.getAttribute(SENDFILE_FILENAME) != null;
+            transferMetrics.registrarDescarga(response.getStatus(), bytes, sendfile ? -1 : System.nanoTime() - inicio);
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.blobKey = blob.getKey();
+                evento.status = response.getStatus();
+                evento.bytes = bytes;
+                evento.commit();
+            }
+        }
+    }
+
+    /**
+     * @return bytes del cuerpo de la respuesta (con sendfile, los que Tomcat enviará)
+     */
+    private long escribir(BlobDownload blob, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String etag = "\"" + blob.getChecksum() + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, blob.getLastModified())) {
+            return 0;
+        }
+
+        response.setContentType(blob.getContentType() != null ? blob.getContentType() : "application/octet-stream");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(blob.getFilename(), StandardCharsets.UTF_8).build().toString());
+
+        long size = blob.getSize();
+        long start = 0;
+        long end = size - 1;
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, blob.getLastModified())) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Varios rangos (multipart/byteranges) no se soportan: se responde el archivo completo
+            if (ranges.size() == 1) {
+                boolean satisfacible;
+                try {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                    // HttpRange no rechaza un inicio más allá del final del archivo
+                    satisfacible = start < size && start <= end;
+                } catch (IllegalArgumentException e) {
+                    satisfacible = false;
+                }
+                if (!satisfacible) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return 0;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long count = size == 0 ? 0 : end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count == 0) {
+            return 0;
+        }
+
+        Optional<Path> local = blobStore.localPath(blob.getKey());
+        if (local.isPresent()) {
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat envía el archivo con sendfile() cuando el controlador retorna
+                request.setAttribute(SENDFILE_FILENAME, local.get().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+                return count;
+            }
+            transferFile(local.get(), start, count, response.getOutputStream());
+            return count;
+        }
+
+        try (InputStream in = blobStore.open(blob.getKey(), start)) {
+            return StreamUtils.copyRange(in, response.getOutputStream(), 0, count - 1);
+        }
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long fecha = request.getDateHeader(HttpHeaders.IF_RANGE);
+        return fecha != -1 && lastModified / 1000 <= fecha / 1000;
+    }
+
+    private void transferFile(Path path, long start, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+}
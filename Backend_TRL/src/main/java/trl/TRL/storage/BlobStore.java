@@ -0,0 +1,49 @@
+package trl.TRL.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Almacén de contenidos binarios (evidencias, reportes, documentos analizados) fuera de las
+ * tablas principales. Las entidades solo guardan la clave, el tamaño y el checksum.
+ *
+ * La implementación se elige con blob-store.type (filesystem | postgres).
+ */
+public interface BlobStore {
+
+    /**
+     * Guarda el contenido leyendo el stream por bloques y calculando su SHA-256 al vuelo.
+     */
+    BlobRef put(InputStream datos) throws IOException;
+
+    /**
+     * Abre el contenido para lectura. El llamador debe cerrar el stream.
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Abre el contenido a partir de un desplazamiento (descargas por rangos).
+     */
+    default InputStream open(String key, long offset) throws IOException {
+        InputStream in = open(key);
+        try {
+            in.skipNBytes(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * Ruta local del contenido cuando el almacén es un sistema de archivos (permite zero-copy
+     * y pasar el archivo a Python sin copiarlo).
+     */
+    Optional<Path> localPath(String key);
+
+    boolean exists(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+}
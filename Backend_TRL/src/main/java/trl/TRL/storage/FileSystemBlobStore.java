@@ -0,0 +1,104 @@
+package trl.TRL.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+/**
+ * Almacén direccionado por contenido: la clave es el SHA-256 y el archivo vive en
+ * {root}/ab/cd/{sha256}. Un mismo archivo subido varias veces ocupa disco una sola vez.
+ * Para varios nodos, blob-store.filesystem.root debe apuntar a un volumen compartido.
+ */
+@Component
+@ConditionalOnProperty(name = "blob-store.type", havingValue = "filesystem", matchIfMissing = true)
+@Slf4j
+public class FileSystemBlobStore implements BlobStore {
+
+    private final Path root;
+    private final Path tempDir;
+
+    public FileSystemBlobStore(@Value("${blob-store.filesystem.root:storage/blobs}") String root) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath();
+        this.tempDir = this.root.resolve("tmp");
+        Files.createDirectories(tempDir);
+        log.info("BlobStore en sistema de archivos: {}", this.root);
+    }
+
+    @Override
+    public BlobRef put(InputStream datos) throws IOException {
+        MessageDigest digest = Checksums.sha256();
+        Path temp = Files.createTempFile(tempDir, "blob-", ".part");
+
+        long size;
+        try (InputStream in = new DigestInputStream(datos, digest)) {
+            size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        String checksum = Checksums.hex(digest);
+        Path target = resolve(checksum);
+        if (Files.exists(target)) {
+            Files.delete(temp);
+        } else {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        return new BlobRef(checksum, size, checksum);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(resolve(key));
+        channel.position(offset);
+        return Channels.newInputStream(channel);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        Path path = resolve(key);
+        return Files.exists(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        if (!key.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Clave de blob inválida: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
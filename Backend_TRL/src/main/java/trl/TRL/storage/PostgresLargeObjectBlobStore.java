@@ -0,0 +1,174 @@
+package trl.TRL.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.largeobject.LargeObject;
+import org.postgresql.largeobject.LargeObjectManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Almacén en large objects de PostgreSQL: el contenido vive en pg_largeobject, fuera de las
+ * filas de evidencia/reporte, y es accesible desde cualquier nodo. La clave es el OID.
+ */
+@Component
+@ConditionalOnProperty(name = "blob-store.type", havingValue = "postgres")
+@RequiredArgsConstructor
+@Slf4j
+public class PostgresLargeObjectBlobStore implements BlobStore {
+
+    private final DataSource dataSource;
+
+    @Override
+    public BlobRef put(InputStream datos) throws IOException {
+        // Si hay una transacción activa se reutiliza su conexión; si no, se abre una propia
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        boolean ownTransaction = false;
+        try {
+            ownTransaction = con.getAutoCommit();
+            if (ownTransaction) {
+                con.setAutoCommit(false);
+            }
+
+            LargeObjectManager lom = con.unwrap(PGConnection.class).getLargeObjectAPI();
+            long oid = lom.createLO(LargeObjectManager.READWRITE);
+            MessageDigest digest = Checksums.sha256();
+
+            long size;
+            LargeObject lo = lom.open(oid, LargeObjectManager.WRITE);
+            try (OutputStream out = lo.getOutputStream();
+                    InputStream in = new DigestInputStream(datos, digest)) {
+                size = in.transferTo(out);
+            }
+
+            if (ownTransaction) {
+                con.commit();
+            }
+            return new BlobRef(Long.toString(oid), size, Checksums.hex(digest));
+        } catch (SQLException e) {
+            if (ownTransaction) {
+                rollbackQuietly(con);
+            }
+            throw new IOException("No se pudo escribir el large object", e);
+        } finally {
+            if (ownTransaction) {
+                resetAutoCommit(con);
+            }
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return open(key, 0);
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        // Lectura con conexión propia: el stream puede vivir más que la transacción del llamador
+        Connection con = null;
+        try {
+            con = dataSource.getConnection();
+            con.setAutoCommit(false);
+            LargeObjectManager lom = con.unwrap(PGConnection.class).getLargeObjectAPI();
+            LargeObject lo = lom.open(Long.parseLong(key), LargeObjectManager.READ);
+            if (offset > 0) {
+                lo.seek64(offset, LargeObject.SEEK_SET);
+            }
+            Connection connection = con;
+            return new FilterInputStream(lo.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                        lo.close();
+                        connection.commit();
+                    } catch (SQLException e) {
+                        throw new IOException(e);
+                    } finally {
+                        closeQuietly(connection);
+                    }
+                }
+            };
+        } catch (SQLException e) {
+            closeQuietly(con);
+            throw new IOException("No se pudo abrir el large object " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT EXISTS (SELECT 1 FROM pg_largeobject_metadata WHERE oid = ?)")) {
+            ps.setLong(1, Long.parseLong(key));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            throw new IOException("No se pudo consultar el large object " + key, e);
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try {
+            con.unwrap(PGConnection.class).getLargeObjectAPI().unlink(Long.parseLong(key));
+        } catch (SQLException e) {
+            throw new IOException("No se pudo eliminar el large object " + key, e);
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    private void rollbackQuietly(Connection con) {
+        try {
+            con.rollback();
+        } catch (SQLException e) {
+            log.warn("Rollback fallido: {}", e.getMessage());
+        }
+    }
+
+    private void resetAutoCommit(Connection con) {
+        try {
+            con.setAutoCommit(true);
+        } catch (SQLException e) {
+            log.warn("No se pudo restaurar autocommit: {}", e.getMessage());
+        }
+    }
+
+    private void closeQuietly(Connection con) {
+        if (con == null) {
+            return;
+        }
+        try {
+            con.close();
+        } catch (SQLException e) {
+            log.warn("Error cerrando conexión: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package trl.TRL.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de cargas y descargas de archivos (evidencias, documentos y reportes).
+ */
+@Component
+@RequiredArgsConstructor
+public class TransferMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public void registrarCarga(String tipo, long bytes, long nanos) {
+        Timer.builder("trl.upload.duration")
+                .description("Tiempo de copia del archivo subido al BlobStore")
+                .tag("tipo", tipo)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("trl.upload.bytes")
+                .baseUnit("bytes")
+                .tag("tipo", tipo)
+                .register(meterRegistry)
+                .increment(bytes);
+        if (nanos > 0) {
+            DistributionSummary.builder("trl.upload.throughput")
+                    .description("Velocidad de cada carga")
+                    .baseUnit("bytes_per_second")
+                    .tag("tipo", tipo)
+                    .register(meterRegistry)
+                    .record(bytes * 1e9 / nanos);
+        }
+    }
+
+    /**
+     * @param nanos duración hasta el último byte, o negativo si el envío quedó en manos de Tomcat
+     *              (sendfile) y no puede medirse; esas descargas se cuentan en trl.download.sendfile
+     */
+    public void registrarDescarga(int status, long bytes, long nanos) {
+        if (nanos >= 0) {
+            Timer.builder("trl.download.duration")
+                    .description("Latencia de las descargas de blobs, desde la validación hasta el último byte")
+                    .tag("status", String.valueOf(status))
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        } else {
+            Counter.builder("trl.download.sendfile")
+                    .description("Descargas cuyo cuerpo envía Tomcat con sendfile (fuera de trl.download.duration)")
+                    .tag("status", String.valueOf(status))
+                    .register(meterRegistry)
+                    .increment();
+        }
+        Counter.builder("trl.download.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+}
@@ -0,0 +1,125 @@
+package trl.TRL.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Cubos de tokens del limitador de Gemini contra la base real. Cada prueba parte de una fila
+ * recién inicializada y se revierte al terminar.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CuotaGeminiRepositoryTests {
+
+	private static final double RPM = 2;
+	private static final double TPM = 1000;
+
+	@Autowired
+	private CuotaGeminiRepository repository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void inicializarCuota() {
+		jdbcTemplate.update("DELETE FROM cuota_gemini");
+		assertThat(repository.inicializar(RPM, TPM)).isEqualTo(1);
+		// Una segunda inicialización (otro nodo que arranca) no repone los cubos
+		assertThat(repository.inicializar(RPM, TPM)).isZero();
+	}
+
+	@Test
+	void consumirDescuentaSolicitudesYTokens() {
+		assertThat(repository.consumir(RPM, TPM, 300)).containsExactly(1.0);
+		assertThat(repository.consumir(RPM, TPM, 300)).containsExactly(1.0);
+		// Se acabaron las solicitudes del minuto aunque queden tokens
+		assertThat(repository.consumir(RPM, TPM, 300)).isEmpty();
+	}
+
+	@Test
+	void consumirNoConcedeMasTokensDeLosQueQuedan() {
+		assertThat(repository.consumir(100, TPM, 800)).isNotEmpty();
+		assertThat(repository.consumir(100, TPM, 800)).isEmpty();
+		assertThat(valor("tokens")).isCloseTo(200, within(1.0));
+	}
+
+	@Test
+	void consumirReponeSegunElTiempoTranscurridoSinPasarDelCubo() {
+		repository.consumir(RPM, TPM, 1000);
+		repository.consumir(RPM, TPM, 0);
+		assertThat(repository.consumir(RPM, TPM, 100)).isEmpty();
+
+		jdbcTemplate.update("UPDATE cuota_gemini SET actualizado = actualizado - interval '10 minutes'");
+		assertThat(repository.consumir(RPM, TPM, 1000)).isNotEmpty();
+		// Diez minutos reponen como mucho un cubo
+		assertThat(valor("tokens")).isCloseTo(0, within(1.0));
+		assertThat(valor("solicitudes")).isCloseTo(RPM - 1, within(0.01));
+	}
+
+	@Test
+	void consumirReponeAlRitmoDelFactor() {
+		repository.consumir(RPM, TPM, 1000);
+		jdbcTemplate.update("UPDATE cuota_gemini SET factor = 0.5, actualizado = actualizado - interval '1 minute'");
+
+		// Con el factor a la mitad un minuto repone medio cubo
+		assertThat(repository.consumir(RPM, TPM, 600)).isEmpty();
+		assertThat(repository.consumir(RPM, TPM, 400)).containsExactly(0.5);
+	}
+
+	@Test
+	void frenarReduceElFactorUnaVezPorPausaYBloqueaElConsumo() {
+		assertThat(repository.frenar(0.1, 0.5, 30)).containsExactly(0.5);
+		assertThat(repository.consumir(RPM, TPM, 1)).isEmpty();
+
+		// Otro 429 de la misma ráfaga no vuelve a reducir
+		assertThat(repository.frenar(0.1, 0.5, 30)).containsExactly(0.5);
+
+		jdbcTemplate.update("UPDATE cuota_gemini SET pausa_hasta = clock_timestamp() - interval '1 second'");
+		assertThat(repository.frenar(0.1, 0.5, 30)).containsExactly(0.25);
+	}
+
+	@Test
+	void frenarNoAcumulaCreditoDuranteLaPausa() {
+		assertThat(repository.frenar(0.1, 0.5, 60)).containsExactly(0.5);
+		assertThat(valor("tokens")).isZero();
+		assertThat(valor("solicitudes")).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT actualizado = pausa_hasta FROM cuota_gemini WHERE id = 1",
+				Boolean.class)).isTrue();
+
+		// La pausa terminó hace un segundo: solo se repone ese segundo, no el minuto entero
+		jdbcTemplate.update("""
+				UPDATE cuota_gemini SET pausa_hasta = pausa_hasta - interval '61 seconds',
+				                        actualizado = actualizado - interval '61 seconds'
+				""");
+		assertThat(repository.consumir(100, TPM, 100)).isEmpty();
+
+		jdbcTemplate.update("UPDATE cuota_gemini SET actualizado = actualizado - interval '1 minute'");
+		assertThat(repository.consumir(100, TPM, 100)).containsExactly(0.5);
+	}
+
+	@Test
+	void frenarNoBajaDelFactorMinimo() {
+		jdbcTemplate.update("UPDATE cuota_gemini SET factor = 0.15");
+
+		assertThat(repository.frenar(0.1, 0.5, 30)).containsExactly(0.1);
+	}
+
+	@Test
+	void recuperarSumaElPasoHastaUno() {
+		jdbcTemplate.update("UPDATE cuota_gemini SET factor = 0.5");
+
+		assertThat(repository.recuperar(0.25)).containsExactly(0.75);
+		assertThat(repository.recuperar(0.5)).containsExactly(1.0);
+	}
+
+	private double valor(String columna) {
+		return jdbcTemplate.queryForObject("SELECT " + columna + " FROM cuota_gemini WHERE id = 1", Double.class);
+	}
+}
@@ -0,0 +1,170 @@
+package trl.TRL.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.jdbc.core.JdbcTemplate;
+import trl.TRL.dto.DocumentSummary;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reclamo de la cola persistente y reparto del resultado entre documentos con el mismo
+ * contenido, contra la base real. Cada prueba se revierte al terminar.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class DocumentRepositoryTests {
+
+	private static final String NODO = "nodo-prueba";
+
+	@Autowired
+	private DocumentRepository documentRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void vaciarCola() {
+		// Documentos que hayan quedado de otras ejecuciones no deben competir por el límite
+		jdbcTemplate.update("UPDATE documents SET status = 'FAILED' WHERE status IN ('PENDING', 'PROCESSING')");
+	}
+
+	@Test
+	void claimPendingReclamaUnaSolaCopiaPorContenido() {
+		Integer primero = documento("hash-a", "PENDING", null);
+		documento("hash-a", "PENDING", null);
+		Integer otro = documento("hash-b", "PENDING", null);
+		Integer sinHash = documento(null, "PENDING", null);
+
+		List<Integer> reclamados = documentRepository.claimPending(NODO, 10).stream()
+				.map(DocumentRepository.DocumentoReclamado::getId).toList();
+
+		assertThat(reclamados).containsExactlyInAnyOrder(primero, otro, sinHash);
+		assertThat(estado(primero)).isEqualTo("PROCESSING");
+		// La copia espera mientras su gemelo está en proceso
+		assertThat(documentRepository.claimPending(NODO, 10)).isEmpty();
+	}
+
+	@Test
+	void claimPendingRespetaElLimite() {
+		documento("hash-a", "PENDING", null);
+		documento("hash-b", "PENDING", null);
+		documento("hash-c", "PENDING", null);
+
+		assertThat(documentRepository.claimPending(NODO, 2)).hasSize(2);
+		assertThat(documentRepository.claimPending(NODO, 2)).hasSize(1);
+	}
+
+	@Test
+	void completeTwinsCopiaElInforme() {
+		Integer origen = documento("hash-a", "COMPLETED", "TRL ALCANZADO: TRL 4");
+		Integer copia = documento("hash-a", "PENDING", null);
+
+		assertThat(documentRepository.completeTwins(origen)).containsExactly(copia);
+		assertThat(estado(copia)).isEqualTo("COMPLETED");
+		assertThat(informe(copia)).isEqualTo("TRL ALCANZADO: TRL 4");
+	}
+
+	@Test
+	void completeTwinsNoCompletaSinInforme() {
+		Integer origen = documento("hash-a", "COMPLETED", null);
+		Integer copia = documento("hash-a", "PENDING", null);
+
+		assertThat(documentRepository.completeTwins(origen)).isEmpty();
+		assertThat(estado(copia)).isEqualTo("PENDING");
+	}
+
+	@Test
+	void completeFromTwinUsaSoloOrigenesConInforme() {
+		Integer conInforme = documento("hash-a", "COMPLETED", "TRL ALCANZADO: TRL 6");
+		documento("hash-a", "COMPLETED", null);
+		Integer reclamado = documento("hash-a", "PENDING", null);
+		documentRepository.claimPending(NODO, 10);
+
+		assertThat(documentRepository.completeFromTwin(reclamado, NODO)).isEqualTo(1);
+		assertThat(estado(reclamado)).isEqualTo("COMPLETED");
+		assertThat(informe(reclamado)).isEqualTo(informe(conInforme));
+
+		Integer sinOrigen = documento("hash-b", "PENDING", null);
+		documento("hash-b", "COMPLETED", null);
+		documentRepository.claimPending(NODO, 10);
+		assertThat(documentRepository.completeFromTwin(sinOrigen, NODO)).isZero();
+		assertThat(estado(sinOrigen)).isEqualTo("PROCESSING");
+	}
+
+	@Test
+	void saveAnalysisResultSoloAfectaADocumentosEnProceso() {
+		Integer enProceso = documento("hash-a", "PROCESSING", null);
+		Integer terminado = documento("hash-b", "COMPLETED", "anterior");
+
+		assertThat(documentRepository.saveAnalysisResult(enProceso, "TRL ALCANZADO: TRL 3")).isEqualTo(1);
+		assertThat(documentRepository.saveAnalysisResult(terminado, "nuevo")).isZero();
+		assertThat(informe(enProceso)).isEqualTo("TRL ALCANZADO: TRL 3");
+		assertThat(informe(terminado)).isEqualTo("anterior");
+	}
+
+	@Test
+	void releaseClaimedUncountedDevuelveElIntentoDelReclamo() {
+		Integer id = documento("hash-a", "PENDING", null);
+		documentRepository.claimPending(NODO, 10);
+		assertThat(intentos(id)).isEqualTo(1);
+
+		assertThat(documentRepository.releaseClaimedUncounted(NODO, id)).isEqualTo(1);
+		assertThat(estado(id)).isEqualTo("PENDING");
+		assertThat(intentos(id)).isZero();
+		// Solo libera reclamos propios en curso
+		assertThat(documentRepository.releaseClaimedUncounted(NODO, id)).isZero();
+	}
+
+	@Test
+	void buscarPaginaFiltraPorElNombreOriginal() {
+		Integer informe = conNombre("1718000000000_informe final.pdf", "informe final.pdf");
+		Integer porcentaje = conNombre("1718000000001_informe_100%.pdf", "informe_100%.pdf");
+		conNombre("1718000000002_anexo.pdf", "anexo.pdf");
+
+		assertThat(ids("informe")).containsExactlyInAnyOrder(informe, porcentaje);
+		// Los comodines de LIKE se buscan literalmente
+		assertThat(ids("informe_100%")).containsExactly(porcentaje);
+		// El prefijo de tiempo de filename no forma parte del nombre buscado
+		assertThat(ids("1718000000000")).isEmpty();
+	}
+
+	private List<Integer> ids(String prefijo) {
+		return documentRepository.buscarPagina(null, prefijo, null, null, 50, false, false).stream()
+				.map(DocumentSummary::getId).toList();
+	}
+
+	private Integer conNombre(String filename, String original) {
+		return jdbcTemplate.queryForObject("""
+				INSERT INTO documents (filename, original_filename, status, created_at)
+				VALUES (?, ?, 'COMPLETED', now())
+				RETURNING id
+				""", Integer.class, filename, original);
+	}
+
+	private Integer documento(String hash, String estado, String informe) {
+		return jdbcTemplate.queryForObject("""
+				INSERT INTO documents (filename, content_hash, analysis_model, prompt_version, status,
+				                       analysis_result, submitted_by, created_at)
+				VALUES ('prueba.pdf', ?, 'modelo', 'v1', ?, ?, 1, now())
+				RETURNING id
+				""", Integer.class, hash, estado, informe);
+	}
+
+	private String estado(Integer id) {
+		return jdbcTemplate.queryForObject("SELECT status FROM documents WHERE id = ?", String.class, id);
+	}
+
+	private Integer intentos(Integer id) {
+		return jdbcTemplate.queryForObject("SELECT attempts FROM documents WHERE id = ?", Integer.class, id);
+	}
+
+	private String informe(Integer id) {
+		return jdbcTemplate.queryForObject("SELECT analysis_result FROM documents WHERE id = ?", String.class, id);
+	}
+}
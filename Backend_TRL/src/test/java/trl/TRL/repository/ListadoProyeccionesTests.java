@@ -0,0 +1,61 @@
+package trl.TRL.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+		+ "trl.TRL.repository.ListadoProyeccionesTests$SqlCapturado")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ListadoProyeccionesTests {
+
+	@Autowired
+	private EvidenciaRepository evidenciaRepository;
+
+	@Autowired
+	private ReporteProyectoRepository reporteProyectoRepository;
+
+	@BeforeEach
+	void limpiar() {
+		SqlCapturado.SENTENCIAS.clear();
+	}
+
+	@Test
+	void listarEvidenciasNoSeleccionaColumnasDeArchivo() {
+		evidenciaRepository.listarPorProyecto(1);
+
+		assertThat(SqlCapturado.SENTENCIAS).singleElement().satisfies(sql -> {
+			assertThat(sql).contains("archivo_nombre");
+			assertThat(sql).doesNotContain("archivo_datos", "blob_key");
+		});
+	}
+
+	@Test
+	void listarReportesNoSeleccionaColumnasDeArchivo() {
+		reporteProyectoRepository.listarPorProyecto(1);
+
+		assertThat(SqlCapturado.SENTENCIAS).singleElement().satisfies(sql -> {
+			assertThat(sql).contains("nombre_archivo");
+			assertThat(sql).doesNotContain("archivo_datos", "blob_key");
+		});
+	}
+
+	public static class SqlCapturado implements StatementInspector {
+
+		static final List<String> SENTENCIAS = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			SENTENCIAS.add(sql.toLowerCase());
+			return sql;
+		}
+	}
+}
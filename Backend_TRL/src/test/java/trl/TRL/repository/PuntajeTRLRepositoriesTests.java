@@ -0,0 +1,192 @@
+package trl.TRL.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Consultas del puntaje TRL materializado contra la base real (ON CONFLICT, FILTER). Usa la
+ * matriz sembrada por init-db.sql; cada prueba se revierte al terminar.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PuntajeTRLRepositoriesTests {
+
+	@Autowired
+	private PuntajeProyectoCriterioRepository puntajeCriterioRepository;
+
+	@Autowired
+	private PuntajeProyectoNivelRepository puntajeNivelRepository;
+
+	@Autowired
+	private PuntajeTRLRecalculoRepository recalculoRepository;
+
+	@Autowired
+	private ProyectoRepository proyectoRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Integer idProyecto;
+
+	@BeforeEach
+	void crearProyecto() {
+		idProyecto = jdbcTemplate.queryForObject("""
+				INSERT INTO proyecto (nombreproyecto, tipoproyecto, responsable, tipologia, area_investigacion,
+				                      duracionmeses, departamento, carrera, linea_investigacion)
+				VALUES ('Prueba puntaje', 'Investigación', 'Responsable', 'Aplicada', 'Software', 12,
+				        'DCCO', 'Software', 'Ingeniería')
+				RETURNING idproyecto
+				""", Integer.class);
+	}
+
+	@Test
+	void ajustarEvidenciasActivasSumaElDeltaYNoBajaDeCero() {
+		assertThat(puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 1, 1)).isEqualTo(1);
+		assertThat(puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 1, 1)).isEqualTo(2);
+		assertThat(puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 1, -1)).isEqualTo(1);
+		assertThat(puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 1, -1)).isEqualTo(0);
+		assertThat(puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 1, -1)).isEqualTo(0);
+
+		// Un decremento sin fila previa crea el contador en cero
+		assertThat(puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 2, -1)).isEqualTo(0);
+		assertThat(contadores()).containsExactlyInAnyOrderEntriesOf(Map.of(1, 0, 2, 0));
+	}
+
+	@Test
+	void recalcularNivelDelCriterioSumaSoloLosCriteriosCumplidosDeEseNivel() {
+		puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 1, 1);
+		puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 2, 1);
+		// Criterio del nivel 2: no debe sumar al nivel 1
+		puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 6, 1);
+
+		puntajeNivelRepository.recalcularNivelDelCriterio(idProyecto, 1);
+		assertThat(puntajes()).containsExactlyInAnyOrderEntriesOf(Map.of(1, 35));
+
+		puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 2, -1);
+		puntajeNivelRepository.recalcularNivelDelCriterio(idProyecto, 2);
+		assertThat(puntajes()).containsExactlyInAnyOrderEntriesOf(Map.of(1, 20));
+	}
+
+	@Test
+	void recalculoCompletoCoincideConElIncremental() {
+		// {idcriterio, estado}: varias por criterio, inactivas, mayúsculas mezcladas y sin criterio
+		Object[][] evidencias = {
+				{ 1, "Activa" }, { 1, "activa" }, { 2, "Inactiva" }, { 3, "ACTIVA" }, { 6, "Activa" },
+				{ 7, "Inactiva" }, { 10, "Activa" }, { 12, "activa" }, { null, "Activa" } };
+
+		for (Object[] evidencia : evidencias) {
+			Integer idCriterio = (Integer) evidencia[0];
+			String estado = (String) evidencia[1];
+			jdbcTemplate.update("""
+					INSERT INTO evidencia (idproyecto, archivo_nombre, descripcion, fecha_carga, estadoevidencia, idcriterio)
+					VALUES (?, 'evidencia.pdf', 'Prueba', CURRENT_DATE, ?, ?)
+					""", idProyecto, estado, idCriterio);
+			// Lo mismo que hace PuntajeTRLService al registrar el alta
+			if (idCriterio != null && estado.equalsIgnoreCase("activa")
+					&& puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, idCriterio, 1) == 1) {
+				puntajeNivelRepository.recalcularNivelDelCriterio(idProyecto, idCriterio);
+			}
+		}
+		// Baja de una de las dos evidencias del criterio 1: sigue cumplido
+		puntajeCriterioRepository.ajustarEvidenciasActivas(idProyecto, 1, -1);
+
+		Map<Integer, Integer> contadoresIncrementales = sinCeros(contadores());
+		Map<Integer, Integer> puntajesIncrementales = sinCeros(puntajes());
+		jdbcTemplate.update("DELETE FROM evidencia WHERE idevidencia = (SELECT MIN(idevidencia) FROM evidencia "
+				+ "WHERE idproyecto = ? AND idcriterio = 1)", idProyecto);
+
+		proyectoRepository.bloquearParaPuntaje(idProyecto);
+		puntajeCriterioRepository.eliminarPorProyecto(idProyecto);
+		puntajeCriterioRepository.recontarPorProyecto(idProyecto);
+		puntajeNivelRepository.eliminarPorProyecto(idProyecto);
+		puntajeNivelRepository.recalcularNivelesPorProyecto(idProyecto);
+
+		assertThat(sinCeros(contadores())).isEqualTo(contadoresIncrementales)
+				.containsExactlyInAnyOrderEntriesOf(Map.of(1, 1, 3, 1, 6, 1, 10, 1, 12, 1));
+		assertThat(sinCeros(puntajes())).isEqualTo(puntajesIncrementales)
+				.containsExactlyInAnyOrderEntriesOf(Map.of(1, 30, 2, 20, 3, 15));
+		// El recálculo completo deja una fila por nivel, con cero en los que no tienen criterios cumplidos
+		assertThat(puntajes()).hasSize(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM niveltrl", Integer.class));
+	}
+
+	@Test
+	void bloquearParaPuntajeDevuelveVacioSiElProyectoNoExiste() {
+		assertThat(proyectoRepository.bloquearParaPuntaje(idProyecto)).contains(idProyecto);
+		assertThat(proyectoRepository.bloquearParaPuntaje(-1)).isEmpty();
+	}
+
+	@Test
+	void reclamarRecalculoSoloLoConcedeUnaVezPorCatalogo() {
+		jdbcTemplate.update("DELETE FROM puntaje_trl_recalculo");
+
+		assertThat(recalculoRepository.reclamar("etag-a", 30)).containsExactly("etag-a");
+		assertThat(recalculoRepository.reclamar("etag-a", 30)).isEmpty();
+
+		// Un reclamo sin completar y vencido se puede retomar
+		jdbcTemplate.update("UPDATE puntaje_trl_recalculo SET iniciado = now() - interval '1 hour'");
+		assertThat(recalculoRepository.reclamar("etag-a", 30)).containsExactly("etag-a");
+
+		assertThat(recalculoRepository.completar("etag-a")).isEqualTo(1);
+		assertThat(recalculoRepository.reclamar("etag-a", 30)).isEmpty();
+	}
+
+	@Test
+	void reclamarRecalculoVuelveARecalcularSiElCatalogoRegresaAUnaVersionAnterior() {
+		jdbcTemplate.update("DELETE FROM puntaje_trl_recalculo");
+		recalculoRepository.reclamar("etag-a", 30);
+		recalculoRepository.completar("etag-a");
+
+		assertThat(recalculoRepository.reclamar("etag-b", 30)).containsExactly("etag-b");
+		recalculoRepository.completar("etag-b");
+
+		// A -> B -> A: los puntajes son los de B, hay que recalcular A otra vez
+		assertThat(recalculoRepository.reclamar("etag-a", 30)).containsExactly("etag-a");
+		recalculoRepository.completar("etag-a");
+		assertThat(recalculoRepository.reclamar("etag-a", 30)).isEmpty();
+	}
+
+	@Test
+	void reclamarRecalculoNoEsperaAUnRecalculoDeOtraVersion() {
+		jdbcTemplate.update("DELETE FROM puntaje_trl_recalculo");
+		recalculoRepository.reclamar("etag-a", 30);
+		recalculoRepository.completar("etag-a");
+
+		// B quedó a medias (o sigue en curso) y el catálogo volvió a A
+		assertThat(recalculoRepository.reclamar("etag-b", 30)).containsExactly("etag-b");
+		assertThat(recalculoRepository.reclamar("etag-a", 30)).containsExactly("etag-a");
+
+		// El nodo de B termina tarde: no marca B como la última versión recalculada
+		assertThat(recalculoRepository.completar("etag-b")).isZero();
+		assertThat(recalculoRepository.completar("etag-a")).isEqualTo(1);
+		assertThat(recalculoRepository.reclamar("etag-a", 30)).isEmpty();
+	}
+
+	private Map<Integer, Integer> contadores() {
+		return mapa("SELECT idcriterio, evidencias_activas FROM puntaje_proyecto_criterio WHERE idproyecto = ?");
+	}
+
+	private Map<Integer, Integer> puntajes() {
+		return mapa("SELECT idnivel, puntaje FROM puntaje_proyecto_nivel WHERE idproyecto = ?");
+	}
+
+	private Map<Integer, Integer> mapa(String sql) {
+		List<int[]> filas = jdbcTemplate.query(sql, (rs, rowNum) -> new int[] { rs.getInt(1), rs.getInt(2) },
+				idProyecto);
+		return filas.stream().collect(Collectors.toMap(fila -> fila[0], fila -> fila[1]));
+	}
+
+	private static Map<Integer, Integer> sinCeros(Map<Integer, Integer> valores) {
+		return valores.entrySet().stream().filter(e -> e.getValue() != 0)
+				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+	}
+}
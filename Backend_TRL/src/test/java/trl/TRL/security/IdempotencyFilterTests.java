@@ -0,0 +1,234 @@
+package trl.TRL.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPart;
+import org.springframework.test.util.ReflectionTestUtils;
+import trl.TRL.model.ClaveIdempotencia;
+import trl.TRL.repository.ClaveIdempotenciaRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class IdempotencyFilterTests {
+
+	private static final String RUTA = "/api/proyectos/7/evidencias";
+	private static final String CUERPO = "{\"idevidencia\":3}";
+
+	private final ClaveIdempotenciaRepository repository = mock(ClaveIdempotenciaRepository.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private IdempotencyFilter filter;
+
+	@BeforeEach
+	void crearFiltro() {
+		filter = new IdempotencyFilter(repository, meterRegistry);
+		ReflectionTestUtils.setField(filter, "ttlHours", 24L);
+		ReflectionTestUtils.setField(filter, "enCursoTimeoutSeconds", 900L);
+		ReflectionTestUtils.setField(filter, "maxResponseBytes", 262144);
+		when(repository.completar(anyString(), anyInt(), anyString(), any())).thenReturn(1);
+	}
+
+	@Test
+	void laHuellaIgnoraElBoundaryYDependeDelContenido() throws Exception {
+		when(repository.reservar(anyString(), anyString(), anyLong())).thenReturn(1);
+
+		filter.doFilter(carga("boundary-uno", "contenido"), new MockHttpServletResponse(), creado());
+		filter.doFilter(carga("boundary-dos", "contenido"), new MockHttpServletResponse(), creado());
+		filter.doFilter(carga("boundary-uno", "otro contenido"), new MockHttpServletResponse(), creado());
+
+		ArgumentCaptor<String> claves = ArgumentCaptor.forClass(String.class);
+		ArgumentCaptor<String> huellas = ArgumentCaptor.forClass(String.class);
+		verify(repository, times(3)).reservar(claves.capture(), huellas.capture(), eq(24L * 3600));
+		assertThat(claves.getAllValues()).containsOnly(claves.getValue());
+		List<String> valores = huellas.getAllValues();
+		assertThat(valores.get(0)).isEqualTo(valores.get(1)).isNotEqualTo(valores.get(2));
+	}
+
+	@Test
+	void laPrimeraPeticionGuardaYDevuelveLaRespuesta() throws Exception {
+		when(repository.reservar(anyString(), anyString(), anyLong())).thenReturn(1);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(carga("boundary-uno", "contenido"), response, creado());
+
+		assertThat(response.getStatus()).isEqualTo(201);
+		assertThat(response.getContentAsString()).isEqualTo(CUERPO);
+		ArgumentCaptor<String> cabeceras = ArgumentCaptor.forClass(String.class);
+		verify(repository).completar(anyString(), eq(201), cabeceras.capture(),
+				eq(CUERPO.getBytes(StandardCharsets.UTF_8)));
+		assertThat(cabeceras.getValue()).contains(RUTA + "/3").contains("application/json");
+		verify(repository, never()).liberar(anyString());
+	}
+
+	@Test
+	void unReintentoRepiteLaRespuestaGuardadaSinEjecutarla() throws Exception {
+		registrada(ClaveIdempotencia.ESTADO_COMPLETADO, null);
+		FilterChain chain = mock(FilterChain.class);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(carga("boundary-dos", "contenido"), response, chain);
+
+		verifyNoInteractions(chain);
+		assertThat(response.getStatus()).isEqualTo(201);
+		assertThat(response.getHeader(HttpHeaders.LOCATION)).isEqualTo(RUTA + "/3");
+		assertThat(response.getContentType()).isEqualTo("application/json");
+		assertThat(response.getHeader(IdempotencyFilter.HEADER_REPLAYED)).isEqualTo("true");
+		assertThat(response.getContentAsString()).isEqualTo(CUERPO);
+		assertThat(meterRegistry.get("trl.idempotency.replayed").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void laMismaClaveConOtraPeticionDevuelve422() throws Exception {
+		registrada(ClaveIdempotencia.ESTADO_COMPLETADO, "otra-huella");
+		FilterChain chain = mock(FilterChain.class);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(carga("boundary-uno", "contenido"), response, chain);
+
+		verifyNoInteractions(chain);
+		assertThat(response.getStatus()).isEqualTo(422);
+		assertThat(response.getHeader(IdempotencyFilter.HEADER_REPLAYED)).isNull();
+	}
+
+	@Test
+	void mientrasLaPrimeraSigueEnCursoDevuelve409() throws Exception {
+		registrada(ClaveIdempotencia.ESTADO_EN_CURSO, null);
+		FilterChain chain = mock(FilterChain.class);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(carga("boundary-uno", "contenido"), response, chain);
+
+		verifyNoInteractions(chain);
+		assertThat(response.getStatus()).isEqualTo(409);
+		assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+		verify(repository, never()).liberar(anyString());
+	}
+
+	@Test
+	void unaReservaAbandonadaSeRetomaYSeEjecuta() throws Exception {
+		when(repository.retomar(anyString(), anyString(), eq(900L))).thenReturn(1);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(carga("boundary-uno", "contenido"), response, creado());
+
+		assertThat(response.getStatus()).isEqualTo(201);
+		verify(repository).completar(anyString(), eq(201), anyString(), any());
+		verify(repository, never()).findById(anyString());
+	}
+
+	@Test
+	void lasRespuestasQueInvitanAReintentarLiberanLaClave() throws Exception {
+		when(repository.reservar(anyString(), anyString(), anyLong())).thenReturn(1);
+
+		for (int codigo : new int[] { 500, 503, 409, 429 }) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			filter.doFilter(carga("boundary-uno", "contenido"), response, (req, res) ->
+					((HttpServletResponse) res).setStatus(codigo));
+			assertThat(response.getStatus()).isEqualTo(codigo);
+		}
+
+		verify(repository, times(4)).liberar(anyString());
+		verify(repository, never()).completar(anyString(), anyInt(), anyString(), any());
+	}
+
+	@Test
+	void unErrorDelClienteSeGuardaComoRespuestaDefinitiva() throws Exception {
+		when(repository.reservar(anyString(), anyString(), anyLong())).thenReturn(1);
+
+		filter.doFilter(carga("boundary-uno", "contenido"), new MockHttpServletResponse(), (req, res) ->
+				((HttpServletResponse) res).setStatus(400));
+
+		verify(repository).completar(anyString(), eq(400), anyString(), any());
+		verify(repository, never()).liberar(anyString());
+	}
+
+	@Test
+	void unaExcepcionLiberaLaClave() {
+		when(repository.reservar(anyString(), anyString(), anyLong())).thenReturn(1);
+
+		assertThatThrownBy(() -> filter.doFilter(carga("boundary-uno", "contenido"), new MockHttpServletResponse(),
+				(req, res) -> {
+					throw new ServletException("fallo");
+				})).isInstanceOf(ServletException.class);
+
+		verify(repository).liberar(anyString());
+	}
+
+	@Test
+	void sinCabeceraNoIntervieneEnLaPeticion() throws Exception {
+		MockHttpServletRequest request = carga("boundary-uno", "contenido");
+		request.removeHeader(IdempotencyFilter.HEADER);
+		FilterChain chain = mock(FilterChain.class);
+
+		filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+		verify(chain).doFilter(any(), any());
+		verifyNoInteractions(repository);
+	}
+
+	/**
+	 * Simula una clave ya reservada. Con {@code huella} null la fila tiene la huella de la propia
+	 * petición, como un reintento idéntico.
+	 */
+	private void registrada(String estado, String huella) {
+		ClaveIdempotencia registro = new ClaveIdempotencia(null, huella, estado, null, null, null,
+				LocalDateTime.now(), LocalDateTime.now().plusHours(24));
+		if (ClaveIdempotencia.ESTADO_COMPLETADO.equals(estado)) {
+			registro.setCodigoEstado(201);
+			registro.setCabeceras("{\"Content-Type\":\"application/json\",\"Location\":\"" + RUTA + "/3\"}");
+			registro.setCuerpo(CUERPO.getBytes(StandardCharsets.UTF_8));
+		}
+		when(repository.reservar(anyString(), anyString(), anyLong())).thenAnswer(invocation -> {
+			registro.setClave(invocation.getArgument(0));
+			if (registro.getHuella() == null) {
+				registro.setHuella(invocation.getArgument(1));
+			}
+			return 0;
+		});
+		when(repository.findById(anyString())).thenAnswer(invocation -> Optional.of(registro));
+	}
+
+	private static MockHttpServletRequest carga(String boundary, String contenido) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", RUTA);
+		request.addHeader(IdempotencyFilter.HEADER, "clave-cliente");
+		request.setContentType("multipart/form-data; boundary=" + boundary);
+		request.addPart(new MockPart("archivo", "informe.pdf", contenido.getBytes(StandardCharsets.UTF_8)));
+		request.addPart(new MockPart("descripcion", "Prueba".getBytes(StandardCharsets.UTF_8)));
+		return request;
+	}
+
+	private static FilterChain creado() {
+		return (request, response) -> {
+			HttpServletResponse http = (HttpServletResponse) response;
+			http.setStatus(201);
+			http.setContentType("application/json");
+			http.setHeader(HttpHeaders.LOCATION, RUTA + "/3");
+			http.getWriter().write(CUERPO);
+		};
+	}
+}
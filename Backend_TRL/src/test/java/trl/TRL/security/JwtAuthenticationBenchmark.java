@@ -0,0 +1,82 @@
+package trl.TRL.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de autenticar una petición con JWT: verificación triple anterior frente a la verificación
+ * única con clave precalculada, con y sin caché de tokens verificados.
+ *
+ * Ejecutar con: mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark=trl.TRL.security.JwtAuthenticationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationBenchmark {
+
+	private static final String SECRET = "MI_NUEVO_SECRETO_SUPER_SEGURO_2025_ESPE_TRL_CRISTHOPHER_VILLAMARIN_1234567890";
+	private static final long EXPIRATION = 86_400_000L;
+
+	private JwtTokenProvider sinCache;
+	private JwtTokenProvider conCache;
+	private String token;
+
+	@Setup
+	public void setup() {
+		sinCache = new JwtTokenProvider(SECRET, EXPIRATION, 0, 300);
+		conCache = new JwtTokenProvider(SECRET, EXPIRATION, 10_000, 300);
+		token = sinCache.generateToken("investigador@espe.edu.ec", "USUARIO");
+	}
+
+	/**
+	 * Comportamiento anterior: validateToken + getCorreoFromToken + getRolFromToken, reconstruyendo
+	 * la clave HMAC y el parser en cada llamada.
+	 */
+	@Benchmark
+	public void antesTripleVerificacion(Blackhole blackhole) {
+		Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build().parseClaimsJws(token);
+		Claims correo = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build()
+				.parseClaimsJws(token).getBody();
+		Claims rol = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build()
+				.parseClaimsJws(token).getBody();
+		blackhole.consume(correo.getSubject());
+		blackhole.consume(rol.get("rol", String.class));
+	}
+
+	@Benchmark
+	public void despuesVerificacionUnica(Blackhole blackhole) {
+		blackhole.consume(sinCache.verify(token));
+	}
+
+	@Benchmark
+	public void despuesConCache(Blackhole blackhole) {
+		blackhole.consume(conCache.verify(token));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(JwtAuthenticationBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
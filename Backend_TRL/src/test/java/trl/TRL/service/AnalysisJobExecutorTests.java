@@ -0,0 +1,179 @@
+package trl.TRL.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Los trabajos se bloquean con latches para fijar cuántos workers quedan libres; con un solo
+ * worker libre el orden de inicio es exactamente el orden de despacho.
+ */
+class AnalysisJobExecutorTests {
+
+	private final List<String> iniciados = Collections.synchronizedList(new ArrayList<>());
+	private final List<CountDownLatch> bloqueos = new ArrayList<>();
+	private AnalysisJobExecutor executor;
+
+	@AfterEach
+	void detener() throws InterruptedException {
+		bloqueos.forEach(CountDownLatch::countDown);
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void intercalaLosTrabajosDeCadaUsuario() throws Exception {
+		executor = executor(2, 1, 0);
+		CountDownLatch bloqueo = bloquear(AnalysisLane.INTERACTIVE);
+		for (int i = 1; i <= 3; i++) {
+			registrar(AnalysisLane.INTERACTIVE, "ana", "ana-" + i);
+		}
+		for (int i = 1; i <= 3; i++) {
+			registrar(AnalysisLane.INTERACTIVE, "beto", "beto-" + i);
+		}
+
+		bloqueo.countDown();
+		esperarInicios(6);
+
+		assertThat(iniciados).containsExactly("ana-1", "beto-1", "ana-2", "beto-2", "ana-3", "beto-3");
+	}
+
+	@Test
+	void elCarrilDeLotesDejaUnWorkerParaLosInteractivos() throws Exception {
+		executor = executor(3, 0, 0);
+		for (int i = 0; i < 3; i++) {
+			bloquear(AnalysisLane.BATCH);
+		}
+
+		assertThat(executor.getStats().getLanes().get("lote").getMaxConcurrency()).isEqualTo(2);
+		assertThat(executor.getStats().getLanes().get("lote").getActive()).isEqualTo(2);
+		assertThat(executor.getStats().getLanes().get("lote").getQueued()).isEqualTo(1);
+		assertThat(executor.availableSlots(AnalysisLane.BATCH)).isZero();
+		assertThat(executor.availableSlots(AnalysisLane.INTERACTIVE)).isEqualTo(1);
+
+		registrar(AnalysisLane.INTERACTIVE, "ana", "documento");
+		esperarInicios(1);
+		assertThat(iniciados).containsExactly("documento");
+	}
+
+	@Test
+	void reparteElWorkerLibreSegunElPesoDeCadaCarril() throws Exception {
+		executor = executor(2, 2, 1);
+		// Uno de los dos workers queda ocupado toda la prueba; el otro se reparte entre carriles
+		bloquear(AnalysisLane.INTERACTIVE);
+		CountDownLatch bloqueo = bloquear(AnalysisLane.INTERACTIVE);
+		for (int i = 0; i < 8; i++) {
+			registrar(AnalysisLane.INTERACTIVE, "ana", "interactivo");
+			registrar(AnalysisLane.BATCH, "beto", "lote");
+		}
+
+		bloqueo.countDown();
+		esperarInicios(10);
+
+		List<String> primeros = new ArrayList<>(iniciados.subList(0, 10));
+		assertThat(primeros.stream().filter("interactivo"::equals).count()).isEqualTo(8);
+		assertThat(primeros.stream().filter("lote"::equals).count()).isEqualTo(2);
+	}
+
+	@Test
+	void shutdownTerminaLosTrabajosEnColaYRechazaLosNuevos() throws Exception {
+		executor = executor(2, 1, 0);
+		CountDownLatch bloqueo = bloquear(AnalysisLane.INTERACTIVE);
+		registrar(AnalysisLane.INTERACTIVE, "ana", "encolado-1");
+		registrar(AnalysisLane.INTERACTIVE, "beto", "encolado-2");
+
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread cierre = new Thread(() -> {
+			try {
+				executor.shutdown();
+			} catch (Throwable e) {
+				error.set(e);
+			}
+		});
+		cierre.start();
+		esperarCierre();
+
+		assertThatThrownBy(() -> registrar(AnalysisLane.INTERACTIVE, "ana", "tarde"))
+				.isInstanceOf(AnalysisQueueFullException.class);
+		assertThat(cierre.isAlive()).isTrue();
+
+		bloqueo.countDown();
+		cierre.join(5_000);
+		assertThat(cierre.isAlive()).isFalse();
+		assertThat(error.get()).isNull();
+		assertThat(iniciados).containsExactlyInAnyOrder("encolado-1", "encolado-2");
+		executor = null;
+	}
+
+	@Test
+	void rechazaConfiguracionesSinWorkerParaLosInteractivos() {
+		assertThatThrownBy(() -> executor(1, 0, 0))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("analysis.executor.workers");
+		assertThatThrownBy(() -> executor(3, 0, 3))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("batch.max-concurrency");
+	}
+
+	private static AnalysisJobExecutor executor(int workers, int maxInteractivos, int maxLotes) {
+		AnalysisJobExecutor executor = new AnalysisJobExecutor(new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(executor, "workers", workers);
+		ReflectionTestUtils.setField(executor, "queueCapacity", 50);
+		ReflectionTestUtils.setField(executor, "retryAfterSeconds", 30L);
+		ReflectionTestUtils.setField(executor, "shutdownTimeoutSeconds", 10L);
+		ReflectionTestUtils.setField(executor, "maxInteractivos", maxInteractivos);
+		ReflectionTestUtils.setField(executor, "maxLotes", maxLotes);
+		ReflectionTestUtils.setField(executor, "pesoInteractivo", 4.0);
+		ReflectionTestUtils.setField(executor, "pesoLotes", 1.0);
+		executor.init();
+		return executor;
+	}
+
+	/**
+	 * Encola un trabajo que ocupa su worker hasta que se libera el latch devuelto.
+	 */
+	private CountDownLatch bloquear(AnalysisLane carril) {
+		CountDownLatch bloqueo = new CountDownLatch(1);
+		bloqueos.add(bloqueo);
+		executor.submit(carril, "bloqueo", () -> {
+			try {
+				bloqueo.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		return bloqueo;
+	}
+
+	private void registrar(AnalysisLane carril, String usuario, String nombre) {
+		executor.submit(carril, usuario, () -> iniciados.add(nombre));
+	}
+
+	private void esperarInicios(int cantidad) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5_000;
+		while (iniciados.size() < cantidad && System.currentTimeMillis() < limite) {
+			Thread.sleep(10);
+		}
+		assertThat(iniciados).hasSizeGreaterThanOrEqualTo(cantidad);
+	}
+
+	private void esperarCierre() throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5_000;
+		while (!Boolean.TRUE.equals(ReflectionTestUtils.getField(executor, "cerrado"))
+				&& System.currentTimeMillis() < limite) {
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package trl.TRL.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.multipart.MultipartFile;
+import trl.TRL.model.Evidencia;
+import trl.TRL.model.Proyecto;
+import trl.TRL.model.Usuario;
+import trl.TRL.repository.CriterioRepository;
+import trl.TRL.repository.EvidenciaRepository;
+import trl.TRL.repository.ProyectoRepository;
+import trl.TRL.security.AuthenticatedUser;
+import trl.TRL.storage.BlobMigrationJob;
+import trl.TRL.storage.BlobReferencias;
+import trl.TRL.storage.FileSystemBlobStore;
+import trl.TRL.storage.TransferMetrics;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EvidenciaServiceTests {
+
+	private static final long FILE_SIZE = 64L * 1024 * 1024;
+	private static final int PARALLEL_UPLOADS = 8;
+
+	@TempDir
+	Path blobRoot;
+
+	@AfterEach
+	void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void subirEvidenciaStreamsLargeFilesWithoutGrowingTheHeap() throws Exception {
+		EvidenciaRepository evidenciaRepository = mock(EvidenciaRepository.class);
+		ProyectoRepository proyectoRepository = mock(ProyectoRepository.class);
+		// El almacén real: hash, archivo temporal y rename, como en producción
+		FileSystemBlobStore blobStore = new FileSystemBlobStore(blobRoot.toString());
+
+		Usuario usuario = new Usuario();
+		usuario.setIdUsuario(1);
+		usuario.setCorreo("investigador@espe.edu.ec");
+		Proyecto proyecto = new Proyecto();
+		proyecto.setIdProyecto(10);
+		proyecto.setUsuario(usuario);
+
+		when(proyectoRepository.findByIdProyectoAndUsuario_IdUsuario(10, 1)).thenReturn(Optional.of(proyecto));
+		List<Evidencia> guardadas = new CopyOnWriteArrayList<>();
+		when(evidenciaRepository.save(any(Evidencia.class))).thenAnswer(invocation -> {
+			Evidencia evidencia = invocation.getArgument(0);
+			evidencia.setIdEvidencia(100);
+			guardadas.add(evidencia);
+			return evidencia;
+		});
+
+		EvidenciaService service = new EvidenciaService(evidenciaRepository, proyectoRepository,
+				mock(CriterioRepository.class), mock(PuntajeTRLService.class), blobStore, mock(BlobReferencias.class),
+				mock(BlobMigrationJob.class),
+				new TransferMetrics(new SimpleMeterRegistry()));
+		AuthenticatedUser autenticado = new AuthenticatedUser(1, usuario.getCorreo(), "USUARIO", true);
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		long baseline = memory.getHeapMemoryUsage().getUsed();
+
+		AtomicBoolean sampling = new AtomicBoolean(true);
+		AtomicLong peak = new AtomicLong(baseline);
+		Thread sampler = new Thread(() -> {
+			while (sampling.get()) {
+				peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+				Thread.onSpinWait();
+			}
+		});
+		sampler.start();
+
+		ExecutorService pool = Executors.newFixedThreadPool(PARALLEL_UPLOADS);
+		try {
+			List<Future<?>> uploads = new ArrayList<>();
+			for (int i = 0; i < PARALLEL_UPLOADS; i++) {
+				// Contenido distinto por subida para que el almacén no las deduplique
+				byte relleno = (byte) ('a' + i);
+				uploads.add(pool.submit(() -> {
+					SecurityContextHolder.getContext().setAuthentication(
+							new TestingAuthenticationToken(autenticado, null));
+					return service.subirEvidencia(10, new GeneratedMultipartFile(FILE_SIZE, relleno), "Prototipo", "Activa",
+							null);
+				}));
+			}
+			for (Future<?> upload : uploads) {
+				upload.get();
+			}
+		} finally {
+			pool.shutdown();
+			sampling.set(false);
+			sampler.join();
+		}
+
+		// 8 x 64 MB materializados superarían con creces este margen
+		assertThat(peak.get() - baseline).isLessThan(FILE_SIZE);
+
+		assertThat(guardadas).hasSize(PARALLEL_UPLOADS);
+		List<String> esperados = new ArrayList<>();
+		for (int i = 0; i < PARALLEL_UPLOADS; i++) {
+			esperados.add(sha256(new GeneratedMultipartFile(FILE_SIZE, (byte) ('a' + i))));
+		}
+		assertThat(guardadas).extracting(Evidencia::getChecksum).containsExactlyInAnyOrderElementsOf(esperados);
+		for (Evidencia evidencia : guardadas) {
+			assertThat(evidencia.getTamanoBytes()).isEqualTo(FILE_SIZE);
+			assertThat(evidencia.getBlobKey()).isEqualTo(evidencia.getChecksum());
+			assertThat(blobStore.exists(evidencia.getBlobKey())).isTrue();
+			try (InputStream guardado = blobStore.open(evidencia.getBlobKey())) {
+				assertThat(sha256(guardado)).isEqualTo(evidencia.getChecksum());
+			}
+		}
+		// Sin archivos temporales olvidados
+		try (var temporales = Files.list(blobRoot.resolve("tmp"))) {
+			assertThat(temporales).isEmpty();
+		}
+	}
+
+	private static String sha256(GeneratedMultipartFile file) throws Exception {
+		return sha256(file.getInputStream());
+	}
+
+	private static String sha256(InputStream datos) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		try (InputStream in = datos;
+				OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+			in.transferTo(out);
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Multipart que genera su contenido al leerlo y falla si alguien intenta cargarlo completo.
+	 */
+	private static class GeneratedMultipartFile implements MultipartFile {
+
+		private final long size;
+		private final byte relleno;
+
+		GeneratedMultipartFile(long size, byte relleno) {
+			this.size = size;
+			this.relleno = relleno;
+		}
+
+		@Override
+		public String getName() {
+			return "file";
+		}
+
+		@Override
+		public String getOriginalFilename() {
+			return "evidencia.pdf";
+		}
+
+		@Override
+		public String getContentType() {
+			return "application/pdf";
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		@Override
+		public long getSize() {
+			return size;
+		}
+
+		@Override
+		public byte[] getBytes() {
+			throw new AssertionError("La evidencia no debe cargarse completa en memoria");
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new InputStream() {
+				private long remaining = size;
+
+				@Override
+				public int read() {
+					if (remaining <= 0) {
+						return -1;
+					}
+					remaining--;
+					return relleno;
+				}
+
+				@Override
+				public int read(byte[] buffer, int offset, int length) {
+					if (remaining <= 0) {
+						return -1;
+					}
+					int chunk = (int) Math.min(length, remaining);
+					Arrays.fill(buffer, offset, offset + chunk, relleno);
+					remaining -= chunk;
+					return chunk;
+				}
+			};
+		}
+
+		@Override
+		public void transferTo(File dest) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
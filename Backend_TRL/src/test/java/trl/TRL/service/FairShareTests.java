@@ -0,0 +1,64 @@
+package trl.TRL.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FairShareTests {
+
+	@Test
+	void alternaEntreClavesDelMismoPeso() {
+		FairShare<String> turnos = new FairShare<>();
+		turnos.activar("a");
+		turnos.activar("b");
+
+		assertThat(turnos(turnos, List.of("a", "b"), Map.of(), 6)).containsExactly("a", "b", "a", "b", "a", "b");
+	}
+
+	@Test
+	void reparteLosTurnosSegunElPeso() {
+		FairShare<String> turnos = new FairShare<>();
+		turnos.activar("interactivo");
+		turnos.activar("lote");
+
+		List<String> elegidas = turnos(turnos, List.of("interactivo", "lote"), Map.of("interactivo", 4.0), 20);
+
+		assertThat(elegidas.stream().filter("interactivo"::equals).count()).isEqualTo(16);
+		assertThat(elegidas.stream().filter("lote"::equals).count()).isEqualTo(4);
+	}
+
+	@Test
+	void unaClaveInactivaNoAcumulaCredito() {
+		FairShare<String> turnos = new FairShare<>();
+		turnos.activar("a");
+		turnos.activar("b");
+		turnos(turnos, List.of("a", "b"), Map.of(), 2);
+		turnos.desactivar("b");
+
+		// "a" trabaja sola un buen rato; al volver, "b" no recupera esos turnos de golpe
+		turnos(turnos, List.of("a"), Map.of(), 10);
+		turnos.activar("b");
+
+		assertThat(turnos(turnos, List.of("a", "b"), Map.of(), 4)).containsExactly("b", "a", "b", "a");
+	}
+
+	@Test
+	void elegirSinCandidatosDevuelveNull() {
+		assertThat(new FairShare<String>().elegir(List.of())).isNull();
+	}
+
+	private static List<String> turnos(FairShare<String> turnos, List<String> candidatos, Map<String, Double> pesos,
+			int cantidad) {
+		List<String> elegidas = new ArrayList<>();
+		for (int i = 0; i < cantidad; i++) {
+			String clave = turnos.elegir(candidatos);
+			turnos.conceder(clave, pesos.getOrDefault(clave, 1.0));
+			elegidas.add(clave);
+		}
+		return elegidas;
+	}
+}
@@ -0,0 +1,120 @@
+package trl.TRL.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import trl.TRL.repository.CuotaGeminiRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class GeminiRateLimiterTests {
+
+	private final CuotaGeminiRepository repository = mock(CuotaGeminiRepository.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private GeminiRateLimiter limiter;
+
+	@BeforeEach
+	void crearLimitador() {
+		limiter = new GeminiRateLimiter(repository, meterRegistry);
+		ReflectionTestUtils.setField(limiter, "enabled", true);
+		ReflectionTestUtils.setField(limiter, "solicitudesPorMinuto", 15.0);
+		ReflectionTestUtils.setField(limiter, "tokensPorMinuto", 1000.0);
+		ReflectionTestUtils.setField(limiter, "factorMinimo", 0.1);
+		ReflectionTestUtils.setField(limiter, "pasoRecuperacion", 0.05);
+		ReflectionTestUtils.setField(limiter, "pausaSegundos", 30.0);
+		ReflectionTestUtils.setField(limiter, "esperaMaximaSegundos", 5L);
+		ReflectionTestUtils.setField(limiter, "intervaloConsultaMs", 1L);
+		limiter.registrarMetricas();
+	}
+
+	@Test
+	void adquirirReintentaHastaQueHayCuota() throws Exception {
+		when(repository.consumir(15.0, 1000.0, 200.0)).thenReturn(List.of(), List.of(), List.of(0.5));
+
+		assertThat(limiter.adquirir(200, () -> false)).isTrue();
+
+		verify(repository, times(3)).consumir(15.0, 1000.0, 200.0);
+		assertThat(meterRegistry.get("trl.gemini.limiter.factor").gauge().value()).isEqualTo(0.5);
+		assertThat(meterRegistry.get("trl.gemini.limiter.wait").tag("resultado", "concedido").timer().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void adquirirCobraComoMaximoElCuboCompleto() throws Exception {
+		when(repository.consumir(15.0, 1000.0, 1000.0)).thenReturn(List.of(1.0));
+
+		assertThat(limiter.adquirir(5000, () -> false)).isTrue();
+	}
+
+	@Test
+	void adquirirSeRindeAlAgotarLaEsperaMaxima() throws Exception {
+		ReflectionTestUtils.setField(limiter, "esperaMaximaSegundos", 0L);
+		when(repository.consumir(anyDouble(), anyDouble(), anyDouble())).thenReturn(List.of());
+
+		assertThat(limiter.adquirir(200, () -> false)).isFalse();
+		assertThat(meterRegistry.get("trl.gemini.limiter.wait").tag("resultado", "rechazado").timer().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void adquirirParaUnaEjecucionMarcaLaCuotaAgotadaSiNoLlegaATiempo() throws Exception {
+		ReflectionTestUtils.setField(limiter, "esperaMaximaSegundos", 0L);
+		when(repository.consumir(anyDouble(), anyDouble(), anyDouble())).thenReturn(List.of());
+		PythonExecution ejecucion = new PythonExecution("documento-1");
+
+		assertThat(limiter.adquirir(200, ejecucion)).isFalse();
+		assertThat(ejecucion.isQuotaExceeded()).isTrue();
+	}
+
+	@Test
+	void adquirirParaUnaEjecucionAbortadaNoConsultaLaCuota() throws Exception {
+		PythonExecution ejecucion = new PythonExecution("documento-2");
+		ejecucion.abort("Cancelado por el usuario");
+
+		assertThat(limiter.adquirir(200, ejecucion)).isFalse();
+		assertThat(ejecucion.isQuotaExceeded()).isFalse();
+		verify(repository, never()).consumir(anyDouble(), anyDouble(), anyDouble());
+	}
+
+	@Test
+	void deshabilitadoNoTocaLaBase() throws Exception {
+		ReflectionTestUtils.setField(limiter, "enabled", false);
+
+		assertThat(limiter.adquirir(200, () -> false)).isTrue();
+		limiter.reportarCuotaAgotada();
+		limiter.reportarExito();
+
+		verifyNoInteractions(repository);
+	}
+
+	@Test
+	void cuotaAgotadaFrenaYLasLlamadasExitosasRecuperan() {
+		when(repository.frenar(0.1, 0.5, 30.0)).thenReturn(List.of(0.5));
+		when(repository.recuperar(0.05)).thenReturn(List.of(0.55));
+
+		limiter.reportarCuotaAgotada();
+		assertThat(meterRegistry.get("trl.gemini.limiter.factor").gauge().value()).isEqualTo(0.5);
+		assertThat(meterRegistry.counter("trl.gemini.limiter.quota_exceeded").count()).isEqualTo(1);
+
+		limiter.reportarExito();
+		assertThat(meterRegistry.get("trl.gemini.limiter.factor").gauge().value()).isEqualTo(0.55);
+	}
+
+	@Test
+	void conElFactorCompletoElExitoNoConsultaLaBase() {
+		limiter.reportarExito();
+
+		verify(repository, never()).recuperar(anyDouble());
+	}
+}
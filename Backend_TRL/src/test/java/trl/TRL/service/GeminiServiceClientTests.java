@@ -0,0 +1,191 @@
+package trl.TRL.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * El microservicio-gemini se reemplaza por un HttpServer local que responde lo que cada prueba encola.
+ */
+class GeminiServiceClientTests {
+
+	private HttpServer server;
+	private final Deque<Respuesta> respuestas = new ArrayDeque<>();
+	private final AtomicInteger llamadasAnalizar = new AtomicInteger();
+	private final AtomicReference<String> ultimoCuerpo = new AtomicReference<>();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@TempDir
+	Path tempDir;
+
+	private record Respuesta(int codigo, String cuerpo) {
+	}
+
+	@BeforeEach
+	void iniciarStub() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/analizar", exchange -> {
+			llamadasAnalizar.incrementAndGet();
+			ultimoCuerpo.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.ISO_8859_1));
+			Respuesta respuesta;
+			synchronized (respuestas) {
+				respuesta = respuestas.isEmpty() ? new Respuesta(500, "{}") : respuestas.poll();
+			}
+			responder(exchange, respuesta);
+		});
+		server.createContext("/health", exchange -> responder(exchange, new Respuesta(200, "{\"status\":\"healthy\"}")));
+		server.start();
+	}
+
+	@AfterEach
+	void detenerStub() {
+		server.stop(0);
+	}
+
+	@Test
+	void analizarStreamsThePdfAndReturnsTheReport() throws Exception {
+		encolar(200, "{\"success\":true,\"table_text\":\"TRL ALCANZADO: TRL 5\",\"error\":null}");
+		GeminiServiceClient client = cliente(3, 5);
+
+		String informe = client.analizar(pdf("informe.pdf"), new PythonExecution("documento-1"));
+
+		assertThat(informe).isEqualTo("TRL ALCANZADO: TRL 5");
+		assertThat(ultimoCuerpo.get())
+				.contains("name=\"file\"; filename=\"informe.pdf\"")
+				.contains("Content-Type: application/pdf")
+				.contains("%PDF-1.4 contenido de prueba");
+	}
+
+	@Test
+	void analizarRetriesUnavailableResponses() throws Exception {
+		encolar(503, "");
+		encolar(502, "");
+		encolar(200, "{\"success\":true,\"table_text\":\"ok\",\"error\":null}");
+		GeminiServiceClient client = cliente(3, 5);
+
+		assertThat(client.analizar(pdf("a.pdf"), new PythonExecution("documento-2"))).isEqualTo("ok");
+		assertThat(llamadasAnalizar.get()).isEqualTo(3);
+		assertThat(meterRegistry.counter("trl.gemini.service.retries").count()).isEqualTo(2);
+	}
+
+	@Test
+	void analizarDoesNotRetryRejectedDocuments() throws Exception {
+		encolar(400, "{\"detail\":\"El archivo debe ser PDF\"}");
+		GeminiServiceClient client = cliente(3, 5);
+
+		assertThatThrownBy(() -> client.analizar(pdf("a.pdf"), new PythonExecution("documento-3")))
+				.isInstanceOfSatisfying(GeminiServiceException.class,
+						e -> assertThat(e.getTipo()).isEqualTo(GeminiServiceException.Tipo.RECHAZADO))
+				.hasMessageContaining("El archivo debe ser PDF");
+		assertThat(llamadasAnalizar.get()).isEqualTo(1);
+	}
+
+	@Test
+	void analizarReportsQuotaErrors() throws Exception {
+		encolar(200, "{\"success\":false,\"table_text\":null,"
+				+ "\"error\":\"Error en la API de Vertex AI: 429 RESOURCE_EXHAUSTED\"}");
+		GeminiServiceClient client = cliente(3, 5);
+
+		assertThatThrownBy(() -> client.analizar(pdf("a.pdf"), new PythonExecution("documento-4")))
+				.isInstanceOfSatisfying(GeminiServiceException.class,
+						e -> assertThat(e.getTipo()).isEqualTo(GeminiServiceException.Tipo.CUOTA));
+		assertThat(llamadasAnalizar.get()).isEqualTo(1);
+	}
+
+	@Test
+	void circuitOpensAfterConsecutiveFailuresAndFailsFast() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			encolar(503, "");
+		}
+		GeminiServiceClient client = cliente(2, 2);
+
+		assertThatThrownBy(() -> client.analizar(pdf("a.pdf"), new PythonExecution("documento-5")))
+				.isInstanceOfSatisfying(GeminiServiceException.class,
+						e -> assertThat(e.getTipo()).isEqualTo(GeminiServiceException.Tipo.NO_DISPONIBLE));
+		assertThat(client.getEstadoCircuito()).isEqualTo(CircuitBreaker.Estado.ABIERTO);
+
+		assertThat(client.disponible()).isFalse();
+		assertThatThrownBy(() -> client.analizar(pdf("a.pdf"), new PythonExecution("documento-6")))
+				.isInstanceOfSatisfying(GeminiServiceException.class, e -> {
+					assertThat(e.getTipo()).isEqualTo(GeminiServiceException.Tipo.NO_DISPONIBLE);
+					assertThat(e.isCircuitoAbierto()).isTrue();
+				})
+				.hasMessageContaining("circuito abierto");
+		assertThat(llamadasAnalizar.get()).isEqualTo(2);
+	}
+
+	@Test
+	void abortCancelsTheCallInFlight() throws Exception {
+		server.removeContext("/analizar");
+		server.createContext("/analizar", exchange -> {
+			try {
+				Thread.sleep(10_000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.close();
+		});
+		GeminiServiceClient client = cliente(3, 5);
+		PythonExecution ejecucion = new PythonExecution("documento-7");
+
+		Thread abortador = new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			ejecucion.abort("Cancelado por el usuario");
+		});
+		abortador.start();
+
+		long inicio = System.nanoTime();
+		assertThatThrownBy(() -> client.analizar(pdf("a.pdf"), ejecucion))
+				.isInstanceOfSatisfying(GeminiServiceException.class,
+						e -> assertThat(e.getTipo()).isEqualTo(GeminiServiceException.Tipo.ABORTADO));
+		assertThat(System.nanoTime() - inicio).isLessThan(5_000_000_000L);
+		assertThat(client.getEstadoCircuito()).isEqualTo(CircuitBreaker.Estado.CERRADO);
+		abortador.join();
+	}
+
+	private GeminiServiceClient cliente(int maxIntentos, int umbralFallos) {
+		return new GeminiServiceClient("http://127.0.0.1:" + server.getAddress().getPort(), 1000, 30, 2, 60,
+				maxIntentos, 1, 5, umbralFallos, 60, meterRegistry);
+	}
+
+	private void encolar(int codigo, String cuerpo) {
+		synchronized (respuestas) {
+			respuestas.add(new Respuesta(codigo, cuerpo));
+		}
+	}
+
+	private Path pdf(String nombre) throws IOException {
+		return Files.writeString(tempDir.resolve(nombre), "%PDF-1.4 contenido de prueba");
+	}
+
+	private static void responder(HttpExchange exchange, Respuesta respuesta) throws IOException {
+		byte[] cuerpo = respuesta.cuerpo().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(respuesta.codigo(), cuerpo.length == 0 ? -1 : cuerpo.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(cuerpo);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package trl.TRL.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import trl.TRL.diagnostics.JobTrace;
+import trl.TRL.repository.DocumentRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class MicroserviceDocumentAnalysisBackendTests {
+
+	private final GeminiServiceClient client = mock(GeminiServiceClient.class);
+	private final GeminiRateLimiter rateLimiter = mock(GeminiRateLimiter.class);
+	private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+	private final MicroserviceDocumentAnalysisBackend backend = new MicroserviceDocumentAnalysisBackend(client,
+			rateLimiter, documentRepository);
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void conElCircuitoAbiertoNoGastaCuota() throws Exception {
+		when(client.disponible()).thenReturn(false);
+		PythonExecution ejecucion = new PythonExecution("documento-1");
+
+		assertThat(backend.analizar(1, pdf(), mock(JobTrace.class), ejecucion)).isFalse();
+
+		assertThat(ejecucion.isCircuitOpen()).isTrue();
+		assertThat(ejecucion.isServiceUnavailable()).isTrue();
+		verifyNoInteractions(rateLimiter);
+	}
+
+	@Test
+	void unCircuitoQueSeAbreDuranteLaEsperaTampocoCuentaComoIntento() throws Exception {
+		when(client.disponible()).thenReturn(true);
+		when(rateLimiter.adquirir(anyDouble(), any(PythonExecution.class))).thenReturn(true);
+		when(client.analizar(any(), any())).thenThrow(new GeminiServiceException(
+				GeminiServiceException.Tipo.NO_DISPONIBLE, "circuito abierto", true));
+		PythonExecution ejecucion = new PythonExecution("documento-2");
+
+		assertThat(backend.analizar(2, pdf(), mock(JobTrace.class), ejecucion)).isFalse();
+
+		assertThat(ejecucion.isCircuitOpen()).isTrue();
+	}
+
+	@Test
+	void losFallosDelServicioCuentanComoIntento() throws Exception {
+		when(client.disponible()).thenReturn(true);
+		when(rateLimiter.adquirir(anyDouble(), any(PythonExecution.class))).thenReturn(true);
+		when(client.analizar(any(), any())).thenThrow(new GeminiServiceException(
+				GeminiServiceException.Tipo.NO_DISPONIBLE, "HTTP 503"));
+		PythonExecution ejecucion = new PythonExecution("documento-3");
+
+		assertThat(backend.analizar(3, pdf(), mock(JobTrace.class), ejecucion)).isFalse();
+
+		assertThat(ejecucion.isServiceUnavailable()).isTrue();
+		assertThat(ejecucion.isCircuitOpen()).isFalse();
+	}
+
+	@Test
+	void guardaElInformeEnElDocumento() throws Exception {
+		ReflectionTestUtils.setField(backend, "timeoutSeconds", 60L);
+		ReflectionTestUtils.setField(backend, "directorioResultados", tempDir.resolve("analysis"));
+		when(client.disponible()).thenReturn(true);
+		when(rateLimiter.adquirir(anyDouble(), any(PythonExecution.class))).thenReturn(true);
+		when(client.analizar(any(), any())).thenReturn("TRL ALCANZADO: TRL 5");
+
+		assertThat(backend.analizar(4, pdf(), mock(JobTrace.class), new PythonExecution("documento-4"))).isTrue();
+
+		verify(documentRepository).saveAnalysisResult(4, "TRL ALCANZADO: TRL 5");
+		verify(rateLimiter).reportarExito();
+		assertThat(tempDir.resolve("analysis").resolve("analisis_4.txt")).hasContent("TRL ALCANZADO: TRL 5");
+	}
+
+	private String pdf() throws Exception {
+		return Files.writeString(tempDir.resolve("a.pdf"), "%PDF-1.4").toString();
+	}
+}
@@ -0,0 +1,117 @@
+package trl.TRL.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import trl.TRL.repository.ProyectoRepository;
+import trl.TRL.repository.PuntajeProyectoCriterioRepository;
+import trl.TRL.repository.PuntajeProyectoNivelRepository;
+import trl.TRL.repository.PuntajeTRLRecalculoRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PuntajeTRLServiceTests {
+
+	private final PuntajeProyectoCriterioRepository puntajeCriterioRepository = mock(
+			PuntajeProyectoCriterioRepository.class);
+	private final PuntajeProyectoNivelRepository puntajeNivelRepository = mock(PuntajeProyectoNivelRepository.class);
+	private final PuntajeTRLRecalculoRepository recalculoRepository = mock(PuntajeTRLRecalculoRepository.class);
+	private final ProyectoRepository proyectoRepository = mock(ProyectoRepository.class);
+	private final CatalogoTRLService catalogoTRLService = mock(CatalogoTRLService.class);
+
+	private PuntajeTRLService service;
+
+	@BeforeEach
+	void crearServicio() {
+		service = new PuntajeTRLService(puntajeCriterioRepository, puntajeNivelRepository, recalculoRepository,
+				proyectoRepository, catalogoTRLService, mock(PlatformTransactionManager.class), 4);
+		ReflectionTestUtils.setField(service, "batchSize", 3);
+		ReflectionTestUtils.setField(service, "minutosAbandono", 30);
+	}
+
+	@AfterEach
+	void cerrarServicio() {
+		service.shutdown();
+	}
+
+	@Test
+	void registrarCambioEvidenciaSoloRecalculaElNivelCuandoCambiaElCumplimiento() {
+		when(puntajeCriterioRepository.ajustarEvidenciasActivas(1, 5, 1)).thenReturn(2);
+		when(puntajeCriterioRepository.ajustarEvidenciasActivas(1, 6, 1)).thenReturn(1);
+		when(puntajeCriterioRepository.ajustarEvidenciasActivas(1, 7, -1)).thenReturn(0);
+
+		service.registrarCambioEvidencia(1, null, false, 5, true);
+		verify(puntajeNivelRepository, never()).recalcularNivelDelCriterio(anyInt(), anyInt());
+
+		// Cambio de criterio: baja en el 7 (deja de cumplirse) y alta en el 6 (empieza a cumplirse)
+		service.registrarCambioEvidencia(1, 7, true, 6, true);
+		verify(proyectoRepository, times(2)).bloquearParaPuntaje(1);
+		verify(puntajeNivelRepository).recalcularNivelDelCriterio(1, 7);
+		verify(puntajeNivelRepository).recalcularNivelDelCriterio(1, 6);
+	}
+
+	@Test
+	void registrarCambioEvidenciaIgnoraCambiosQueNoAfectanAlPuntaje() {
+		service.registrarCambioEvidencia(1, 5, true, 5, true);
+		service.registrarCambioEvidencia(1, 5, false, 6, false);
+		service.registrarCambioEvidencia(1, null, true, null, true);
+
+		verify(proyectoRepository, never()).bloquearParaPuntaje(anyInt());
+	}
+
+	@Test
+	void recalcularTodosRecorreCadaProyectoAunqueAlgunoFalle() {
+		List<Integer> ids = IntStream.rangeClosed(1, 50).boxed().collect(Collectors.toList());
+		when(proyectoRepository.listarIds()).thenReturn(ids);
+		Set<Integer> recalculados = ConcurrentHashMap.newKeySet();
+		when(proyectoRepository.bloquearParaPuntaje(anyInt())).thenAnswer(invocation -> {
+			Integer id = invocation.getArgument(0);
+			if (id == 17) {
+				throw new IllegalStateException("Fallo simulado");
+			}
+			recalculados.add(id);
+			return Optional.of(id);
+		});
+
+		service.recalcularTodos();
+
+		assertThat(recalculados).hasSize(49).doesNotContain(17);
+		for (Integer id : recalculados) {
+			verify(puntajeCriterioRepository).recontarPorProyecto(id);
+			verify(puntajeNivelRepository).recalcularNivelesPorProyecto(id);
+		}
+	}
+
+	@Test
+	void soloRecalculaElNodoQueReclamaLaVersionDelCatalogo() {
+		when(catalogoTRLService.actual()).thenReturn(new CatalogoTRL(1, "etag-1", List.of(), List.of()));
+		when(proyectoRepository.listarIds()).thenReturn(List.of());
+		when(recalculoRepository.reclamar("etag-1", 30)).thenReturn(List.of("etag-1"), List.of());
+
+		service.solicitarRecalculo();
+		verify(recalculoRepository, timeout(5_000)).completar("etag-1");
+
+		// Otro evento con el mismo catálogo (por ejemplo, el arranque de otro nodo) no vuelve a recalcular
+		service.solicitarRecalculo();
+		verify(recalculoRepository, timeout(5_000).times(2)).reclamar(eq("etag-1"), anyInt());
+		verify(proyectoRepository, after(200).times(1)).listarIds();
+	}
+}
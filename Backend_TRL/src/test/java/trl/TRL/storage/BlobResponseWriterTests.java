@@ -0,0 +1,204 @@
+package trl.TRL.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Respuestas condicionales y por rangos sobre un FileSystemBlobStore real en un directorio temporal.
+ */
+class BlobResponseWriterTests {
+
+	private static final String CONTENIDO = "abcdefghijklmnopqrstuvwxyz";
+	private static final long MODIFICADO = 1_700_000_000_000L;
+
+	@TempDir
+	Path root;
+
+	private BlobResponseWriter writer;
+	private BlobDownload blob;
+	private String etag;
+
+	@BeforeEach
+	void guardarBlob() throws Exception {
+		FileSystemBlobStore blobStore = new FileSystemBlobStore(root.toString());
+		BlobRef ref = blobStore.put(new ByteArrayInputStream(CONTENIDO.getBytes(StandardCharsets.US_ASCII)));
+		writer = new BlobResponseWriter(blobStore, new TransferMetrics(new SimpleMeterRegistry()));
+		blob = new BlobDownload(ref.getKey(), ref.getSize(), ref.getChecksum(), "informe.pdf", "application/pdf",
+				MODIFICADO);
+		etag = "\"" + ref.getChecksum() + "\"";
+	}
+
+	@Test
+	void sinCabecerasDevuelveElArchivoCompleto() throws Exception {
+		MockHttpServletResponse response = escribir(get());
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsString()).isEqualTo(CONTENIDO);
+		assertThat(response.getContentLengthLong()).isEqualTo(26);
+		assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+		assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+		assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).contains("informe.pdf");
+	}
+
+	@Test
+	void ifNoneMatchConElMismoEtagDevuelve304SinCuerpo() throws Exception {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+		MockHttpServletResponse response = escribir(request);
+
+		assertThat(response.getStatus()).isEqualTo(304);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void ifNoneMatchConOtroEtagDevuelveElArchivo() throws Exception {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"otro\"");
+
+		assertThat(escribir(request).getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void rangoSimpleDevuelve206() throws Exception {
+		MockHttpServletResponse response = escribir(rango("bytes=2-5"));
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentAsString()).isEqualTo("cdef");
+		assertThat(response.getContentLengthLong()).isEqualTo(4);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/26");
+	}
+
+	@Test
+	void rangoSufijoDevuelveLosUltimosBytes() throws Exception {
+		MockHttpServletResponse response = escribir(rango("bytes=-3"));
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentAsString()).isEqualTo("xyz");
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 23-25/26");
+	}
+
+	@Test
+	void rangoAbiertoLlegaHastaElFinal() throws Exception {
+		MockHttpServletResponse response = escribir(rango("bytes=20-"));
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentAsString()).isEqualTo("uvwxyz");
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 20-25/26");
+	}
+
+	@Test
+	void rangoFueraDelArchivoDevuelve416() throws Exception {
+		MockHttpServletResponse response = escribir(rango("bytes=30-40"));
+
+		assertThat(response.getStatus()).isEqualTo(416);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */26");
+		assertThat(response.getContentAsByteArray()).isEmpty();
+
+		assertThat(escribir(rango("bytes=26-")).getStatus()).isEqualTo(416);
+	}
+
+	@Test
+	void rangoMalFormadoDevuelveElArchivoCompleto() throws Exception {
+		MockHttpServletResponse response = escribir(rango("bytes=abc"));
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsString()).isEqualTo(CONTENIDO);
+	}
+
+	@Test
+	void variosRangosDevuelvenElArchivoCompleto() throws Exception {
+		MockHttpServletResponse response = escribir(rango("bytes=0-1,5-6"));
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsString()).isEqualTo(CONTENIDO);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+	}
+
+	@Test
+	void ifRangeConElMismoEtagRespetaElRango() throws Exception {
+		MockHttpServletRequest request = rango("bytes=0-2");
+		request.addHeader(HttpHeaders.IF_RANGE, etag);
+
+		MockHttpServletResponse response = escribir(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentAsString()).isEqualTo("abc");
+	}
+
+	@Test
+	void ifRangeConOtroEtagDevuelveElArchivoCompleto() throws Exception {
+		MockHttpServletRequest request = rango("bytes=0-2");
+		request.addHeader(HttpHeaders.IF_RANGE, "\"version-anterior\"");
+
+		MockHttpServletResponse response = escribir(request);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsString()).isEqualTo(CONTENIDO);
+	}
+
+	@Test
+	void ifRangeConFechaAnteriorDevuelveElArchivoCompleto() throws Exception {
+		MockHttpServletRequest request = rango("bytes=0-2");
+		request.addHeader(HttpHeaders.IF_RANGE, MODIFICADO - 60_000);
+
+		assertThat(escribir(request).getStatus()).isEqualTo(200);
+
+		MockHttpServletRequest vigente = rango("bytes=0-2");
+		vigente.addHeader(HttpHeaders.IF_RANGE, MODIFICADO);
+		assertThat(escribir(vigente).getStatus()).isEqualTo(206);
+	}
+
+	@Test
+	void headDevuelveLasCabecerasSinCuerpo() throws Exception {
+		MockHttpServletRequest request = rango("bytes=0-9");
+		request.setMethod("HEAD");
+
+		MockHttpServletResponse response = escribir(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentLengthLong()).isEqualTo(10);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void conSendfileDelegaElCuerpoEnTomcat() throws Exception {
+		MockHttpServletRequest request = rango("bytes=4-7");
+		request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+		MockHttpServletResponse response = escribir(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+		assertThat((String) request.getAttribute("org.apache.tomcat.sendfile.filename")).endsWith(blob.getKey());
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(4L);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(8L);
+	}
+
+	private MockHttpServletResponse escribir(MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		writer.write(blob, request, response);
+		return response;
+	}
+
+	private static MockHttpServletRequest get() {
+		return new MockHttpServletRequest("GET", "/api/evidencias/1/archivo");
+	}
+
+	private static MockHttpServletRequest rango(String rango) {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.RANGE, rango);
+		return request;
+	}
+}
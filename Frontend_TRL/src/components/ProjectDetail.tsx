@@ -1,7 +1,8 @@
 import { useEffect, useState } from 'react';
 import { useNavigate, useParams } from 'react-router-dom';
-import { proyectoService, type ProyectoResponse } from '../services/proyectoService';
+import { proyectoService, type ProyectoResponse, type PuntajeTRL } from '../services/proyectoService';
 import { evidenciaService, type EvidenciaResponse } from '../services/evidenciaService';
+import { criterioService, type CriterioResponse } from '../services/criterioService';
 import './ProjectDetail.css';
 
 export default function ProjectDetail() {
@@ -9,6 +10,8 @@ export default function ProjectDetail() {
     const navigate = useNavigate();
     const [proyecto, setProyecto] = useState<ProyectoResponse | null>(null);
     const [evidencias, setEvidencias] = useState<EvidenciaResponse[]>([]);
+    const [criterios, setCriterios] = useState<CriterioResponse[]>([]);
+    const [puntaje, setPuntaje] = useState<PuntajeTRL | null>(null);
     const [loading, setLoading] = useState(true);
     const [loadingEvidencias, setLoadingEvidencias] = useState(false);
     const [error, setError] = useState('');
@@ -20,13 +23,18 @@ export default function ProjectDetail() {
     const [selectedFile, setSelectedFile] = useState<File | null>(null);
     const [descripcion, setDescripcion] = useState('');
     const [estadoEvidencia, setEstadoEvidencia] = useState('Activa');
+    const [idCriterio, setIdCriterio] = useState<number | null>(null);
     const [analyzing, setAnalyzing] = useState(false);
 
     useEffect(() => {
         if (id) {
             fetchProyecto(parseInt(id));
             fetchEvidencias(parseInt(id));
+            fetchPuntaje(parseInt(id));
         }
+        criterioService.getAll()
+            .then(setCriterios)
+            .catch((err) => console.error('Error al cargar criterios:', err));
     }, [id]);
 
     const handleAnalyzeProject = async () => {
@@ -35,8 +43,13 @@ export default function ProjectDetail() {
         setAnalyzing(true);
         setError('');
         try {
-            const message = await proyectoService.analizarProyecto(proyecto.idProyecto);
-            alert(message);
+            let job = await proyectoService.analizarProyecto(proyecto.idProyecto);
+            job = await proyectoService.esperarAnalisis(proyecto.idProyecto, job);
+            if (job.estado === 'COMPLETADO') {
+                alert(job.mensaje || 'Análisis completado');
+            } else {
+                setError(job.mensaje || 'Error al ejecutar el análisis');
+            }
         } catch (err: any) {
             setError(err.response?.data || 'Error al iniciar el análisis');
         } finally {
@@ -68,6 +81,18 @@ export default function ProjectDetail() {
         }
     };
 
+    const fetchPuntaje = async (projectId: number) => {
+        try {
+            const data = await proyectoService.getPuntajeTRL(projectId);
+            setPuntaje(data);
+        } catch (err: any) {
+            console.error('Error al cargar el puntaje TRL:', err);
+        }
+    };
+
+    const nombreCriterio = (idCriterio: number | null) =>
+        criterios.find((c) => c.idCriterio === idCriterio)?.nombreCriterio;
+
     const handleBack = () => {
         navigate('/usuario/mis-proyectos');
     };
@@ -104,16 +129,19 @@ export default function ProjectDetail() {
                 proyecto.idProyecto,
                 selectedFile,
                 descripcion,
-                estadoEvidencia
+                estadoEvidencia,
+                idCriterio
             );
             setUploadSuccess(true);
             setSelectedFile(null);
             setDescripcion('');
             setEstadoEvidencia('Activa');
+            setIdCriterio(null);
             setShowUploadForm(false);
 
-            // Recargar evidencias
+            // Recargar evidencias y puntaje
             fetchEvidencias(proyecto.idProyecto);
+            fetchPuntaje(proyecto.idProyecto);
 
             setTimeout(() => setUploadSuccess(false), 3000);
         } catch (err: any) {
@@ -129,6 +157,7 @@ export default function ProjectDetail() {
                 await evidenciaService.deleteEvidencia(idEvidencia);
                 if (proyecto) {
                     fetchEvidencias(proyecto.idProyecto);
+                    fetchPuntaje(proyecto.idProyecto);
                 }
             } catch (err: any) {
                 setUploadError(err.response?.data || 'Error al eliminar la evidencia');
@@ -279,6 +308,20 @@ export default function ProjectDetail() {
                         </div>
                     </div>
 
+                    {puntaje && (
+                        <div className="info-card info-card-full">
+                            <h2>Puntaje TRL: {puntaje.nivelAlcanzado > 0 ? `TRL ${puntaje.nivelAlcanzado}` : 'Sin nivel validado'}</h2>
+                            <div className="info-content">
+                                {puntaje.niveles.map((nivel) => (
+                                    <div key={nivel.idNivel} className="info-item">
+                                        <label>{nivel.nomNivel}{nivel.validado ? ' ✓' : ''}</label>
+                                        <p>{nivel.puntaje} pts (acumulado {nivel.puntajeAcumulado} / mínimo {nivel.puntajeMinimo})</p>
+                                    </div>
+                                ))}
+                            </div>
+                        </div>
+                    )}
+
                     {/* Sección de Evidencias */}
                     <div className="info-card info-card-full evidencias-section">
                         <div className="evidencias-header">
@@ -357,6 +400,23 @@ export default function ProjectDetail() {
                                     </select>
                                 </div>
 
+                                <div className="form-group">
+                                    <label htmlFor="idCriterio">Criterio TRL</label>
+                                    <select
+                                        id="idCriterio"
+                                        value={idCriterio ?? ''}
+                                        onChange={(e) => setIdCriterio(e.target.value ? parseInt(e.target.value) : null)}
+                                        disabled={uploading}
+                                    >
+                                        <option value="">Sin criterio</option>
+                                        {criterios.map((criterio) => (
+                                            <option key={criterio.idCriterio} value={criterio.idCriterio}>
+                                                {criterio.nombreNivel} - {criterio.nombreCriterio} ({criterio.puntajeCriterio} pts)
+                                            </option>
+                                        ))}
+                                    </select>
+                                </div>
+
                                 <div className="form-actions">
                                     <button
                                         type="button"
@@ -411,6 +471,9 @@ export default function ProjectDetail() {
                                             <div className="evidencia-info">
                                                 <h4>{evidencia.descripcion}</h4>
                                                 <p className="evidencia-filename">{evidencia.archivoNombre}</p>
+                                                {evidencia.idCriterio && (
+                                                    <p className="evidencia-filename">Criterio: {nombreCriterio(evidencia.idCriterio)}</p>
+                                                )}
                                                 <p className="evidencia-date">
                                                     Subido: {new Date(evidencia.fechaCarga).toLocaleDateString('es-ES')}
                                                 </p>
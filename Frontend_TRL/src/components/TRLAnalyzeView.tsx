@@ -1,6 +1,6 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
-import { trlService, type TRLDocument } from '../services/trlService';
+import { trlService, type TRLDocument, type AnalisisEvento } from '../services/trlService';
 import { authService } from '../services/authService';
 import './TRLAnalyzeView.css';
 
@@ -8,8 +8,10 @@ export default function TRLAnalyzeView() {
     const [file, setFile] = useState<File | null>(null);
     const [isAnalyzing, setIsAnalyzing] = useState(false);
     const [documents, setDocuments] = useState<TRLDocument[]>([]);
+    const [nextCursor, setNextCursor] = useState<string | null>(null);
     const [loadingDocs, setLoadingDocs] = useState(true);
     const [error, setError] = useState<string | null>(null);
+    const watchers = useRef(new Map<number, () => void>());
     const navigate = useNavigate();
 
     useEffect(() => {
@@ -20,11 +22,24 @@ export default function TRLAnalyzeView() {
         loadDocuments();
     }, [navigate]);
 
+    // Cerrar las conexiones SSE al salir de la vista
+    useEffect(() => {
+        const abiertos = watchers.current;
+        return () => {
+            abiertos.forEach((close) => close());
+            abiertos.clear();
+        };
+    }, []);
+
     const loadDocuments = async () => {
         try {
             setLoadingDocs(true);
-            const data = await trlService.getDocuments();
-            setDocuments(data.sort((a, b) => new Date(b.createdAt).getTime() - new Date(a.createdAt).getTime()));
+            const page = await trlService.getDocuments();
+            setDocuments(page.items);
+            setNextCursor(page.nextCursor);
+            page.items
+                .filter(doc => doc.status === 'PENDING' || doc.status === 'PROCESSING')
+                .forEach(doc => watchDocument(doc.id));
         } catch (err) {
             console.error('Error loading documents:', err);
         } finally {
@@ -32,6 +47,17 @@ export default function TRLAnalyzeView() {
         }
     };
 
+    const loadMoreDocuments = async () => {
+        if (!nextCursor) return;
+        try {
+            const page = await trlService.getDocuments({ cursor: nextCursor });
+            setDocuments(prev => [...prev, ...page.items]);
+            setNextCursor(page.nextCursor);
+        } catch (err) {
+            console.error('Error loading documents:', err);
+        }
+    };
+
     const handleFileChange = (e: React.ChangeEvent<HTMLInputElement>) => {
         if (e.target.files && e.target.files[0]) {
             setFile(e.target.files[0]);
@@ -45,12 +71,14 @@ export default function TRLAnalyzeView() {
         try {
             setIsAnalyzing(true);
             setError(null);
-            await trlService.analyzeDocument(file);
+            const doc = await trlService.analyzeDocument(file);
             // Re-cargar documentos para ver el nuevo en estado PENDING
             loadDocuments();
             setFile(null);
-            // Iniciar un loop de polling para actualizar el estado
-            startPolling();
+            // El backend avisa por SSE cada cambio de estado; no hace falta sondear la lista
+            if (doc.status !== 'COMPLETED' && doc.status !== 'FAILED') {
+                watchDocument(doc.id);
+            }
         } catch (err: any) {
             console.error('Error starting analysis:', err);
             setError('Error al iniciar el an\u00e1lisis. Por favor, intente de nuevo.');
@@ -59,20 +87,25 @@ export default function TRLAnalyzeView() {
         }
     };
 
-    const startPolling = () => {
-        const interval = setInterval(async () => {
-            const data = await trlService.getDocuments();
-            setDocuments(data.sort((a, b) => new Date(b.createdAt).getTime() - new Date(a.createdAt).getTime()));
-
-            // Si ya no hay ning\u00fan documento en PENDING, detener polling
-            const stillPending = data.some(doc => doc.status === 'PENDING');
-            if (!stillPending) {
-                clearInterval(interval);
+    const watchDocument = (id: number) => {
+        if (watchers.current.has(id)) return;
+        const close = trlService.watchDocument(id, (evento: AnalisisEvento) => {
+            setDocuments(prev => prev.map(doc => doc.id === id
+                ? { ...doc, status: evento.estado, errorMessage: evento.mensaje }
+                : doc));
+            if (evento.terminado) {
+                watchers.current.delete(id);
             }
-        }, 3000);
+        });
+        watchers.current.set(id, close);
+    };
 
-        // Limpiar despu\u00e9s de 2 minutos por seguridad
-        setTimeout(() => clearInterval(interval), 120000);
+    const cancelDocument = async (id: number) => {
+        try {
+            await trlService.cancelDocument(id);
+        } catch (err: any) {
+            setError(err.response?.data || 'No se pudo cancelar el an\u00e1lisis.');
+        }
     };
 
     return (
@@ -176,11 +209,21 @@ export default function TRLAnalyzeView() {
                                                     >
                                                         Ver Reporte
                                                     </button>
+                                                    {(doc.status === 'PENDING' || doc.status === 'PROCESSING') && (
+                                                        <button className="view-btn" onClick={() => cancelDocument(doc.id)}>
+                                                            Cancelar
+                                                        </button>
+                                                    )}
                                                 </td>
                                             </tr>
                                         ))}
                                     </tbody>
                                 </table>
+                                {nextCursor && (
+                                    <button className="view-btn" onClick={loadMoreDocuments}>
+                                        Cargar más
+                                    </button>
+                                )}
                             </div>
                         )}
                     </div>
@@ -7,6 +7,7 @@ export interface EvidenciaResponse {
     idEvidencia: number;
     idProyecto: number;
     nombreProyecto: string;
+    idCriterio: number | null;
     archivoNombre: string;
     descripcion: string;
     fechaCarga: string;
@@ -26,12 +27,18 @@ export const evidenciaService = {
         idProyecto: number,
         file: File,
         descripcion: string,
-        estadoEvidencia: string
+        estadoEvidencia: string,
+        idCriterio?: number | null,
+        // Reutilizar la misma clave al reintentar evita duplicar la evidencia
+        idempotencyKey: string = crypto.randomUUID()
     ): Promise<EvidenciaResponse> {
         const formData = new FormData();
         formData.append('file', file);
         formData.append('descripcion', descripcion);
         formData.append('estadoEvidencia', estadoEvidencia);
+        if (idCriterio) {
+            formData.append('idCriterio', String(idCriterio));
+        }
 
         const response = await axios.post(
             `${API_URL}/proyectos/${idProyecto}/evidencias`,
@@ -40,6 +47,7 @@ export const evidenciaService = {
                 headers: {
                     ...getAuthHeader(),
                     'Content-Type': 'multipart/form-data',
+                    'Idempotency-Key': idempotencyKey,
                 },
             }
         );
@@ -56,6 +64,16 @@ export const evidenciaService = {
         return response.data;
     },
 
+    async updateEvidencia(
+        idEvidencia: number,
+        evidencia: { descripcion: string; estadoEvidencia: string; idCriterio: number | null }
+    ): Promise<EvidenciaResponse> {
+        const response = await axios.put(`${API_URL}/evidencias/${idEvidencia}`, evidencia, {
+            headers: getAuthHeader(),
+        });
+        return response.data;
+    },
+
     async deleteEvidencia(idEvidencia: number): Promise<void> {
         await axios.delete(`${API_URL}/evidencias/${idEvidencia}`, {
             headers: getAuthHeader(),
@@ -30,6 +30,34 @@ export interface ProyectoResponse {
   lineaInvestigacion: string;
 }
 
+export interface AnalisisProyectoJob {
+  idJob: string;
+  idProyecto: number;
+  estado: 'PENDIENTE' | 'EN_PROCESO' | 'COMPLETADO' | 'FALLIDO';
+  mensaje: string | null;
+  fechaCreacion: string;
+  fechaInicio: string | null;
+  fechaFin: string | null;
+  version: number;
+}
+
+export interface PuntajeNivelTRL {
+  idNivel: number;
+  numNivel: number;
+  nomNivel: string;
+  puntaje: number;
+  puntajeAcumulado: number;
+  puntajeMinimo: number;
+  validado: boolean;
+}
+
+export interface PuntajeTRL {
+  idProyecto: number;
+  nivelAlcanzado: number;
+  puntajeTotal: number;
+  niveles: PuntajeNivelTRL[];
+}
+
 const getAuthHeader = () => {
   const user = authService.getCurrentUser();
   if (user?.token) {
@@ -73,10 +101,78 @@ export const proyectoService = {
     });
   },
 
-  async analizarProyecto(id: number): Promise<string> {
+  async getPuntajeTRL(id: number): Promise<PuntajeTRL> {
+    const response = await axios.get(`${API_URL}/${id}/puntaje-trl`, {
+      headers: getAuthHeader()
+    });
+    return response.data;
+  },
+
+  async analizarProyecto(id: number, idempotencyKey: string = crypto.randomUUID()): Promise<AnalisisProyectoJob> {
     const response = await axios.post(`${API_URL}/${id}/analizar`, {}, {
+      headers: { ...getAuthHeader(), 'Idempotency-Key': idempotencyKey }
+    });
+    return response.data;
+  },
+
+  async cancelarAnalisis(id: number, idJob: string): Promise<AnalisisProyectoJob> {
+    const response = await axios.post(`${API_URL}/${id}/analisis/${idJob}/cancel`, {}, {
       headers: getAuthHeader()
     });
     return response.data;
+  },
+
+  // Consulta condicional: si el ETag no cambió el backend responde 304 y se reutiliza el estado previo
+  async getEstadoAnalisis(id: number, previo: AnalisisProyectoJob): Promise<AnalisisProyectoJob> {
+    const response = await axios.get(`${API_URL}/${id}/analisis/${previo.idJob}`, {
+      headers: { ...getAuthHeader(), 'If-None-Match': `"${previo.idJob}-${previo.version}"` },
+      validateStatus: (status) => status === 200 || status === 304
+    });
+    return response.status === 304 ? previo : response.data;
+  },
+
+  // Espera el final del trabajo escuchando su stream SSE (fetch para poder enviar el token);
+  // onFase recibe cada fase. Si el stream no está disponible se vuelve a la consulta periódica.
+  async esperarAnalisis(id: number, job: AnalisisProyectoJob,
+    onFase?: (fase: string) => void): Promise<AnalisisProyectoJob> {
+    try {
+      const response = await fetch(`${API_URL}/${id}/analisis/${job.idJob}/events`, {
+        headers: { ...getAuthHeader(), Accept: 'text/event-stream' }
+      });
+      if (response.ok && response.body) {
+        const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+        let buffer = '';
+        for (;;) {
+          const { value, done } = await reader.read();
+          if (done) break;
+          buffer += value;
+          let fin;
+          while ((fin = buffer.indexOf('\n\n')) >= 0) {
+            const bloque = buffer.slice(0, fin);
+            buffer = buffer.slice(fin + 2);
+            const data = bloque.split('\n')
+              .filter((linea) => linea.startsWith('data:'))
+              .map((linea) => linea.slice(5))
+              .join('\n');
+            if (!data) continue;
+            const evento = JSON.parse(data);
+            if (evento.fase && onFase) onFase(evento.fase);
+            if (evento.terminado) {
+              reader.cancel();
+              return { ...job, estado: evento.estado, mensaje: evento.mensaje };
+            }
+          }
+        }
+      }
+    } catch (err) {
+      console.warn('Stream de progreso no disponible, se consulta el estado periódicamente', err);
+    }
+
+    let actual = job;
+    while (actual.estado === 'PENDIENTE' || actual.estado === 'EN_PROCESO') {
+      await new Promise((resolve) => setTimeout(resolve, 5000));
+      actual = await this.getEstadoAnalisis(id, actual);
+    }
+    return actual;
   }
 };
@@ -1,11 +1,11 @@
 import axios from 'axios';
+import { authService } from './authService';
 
 const API_URL = 'http://localhost:8081/api/trl';
 
 export interface TRLDocument {
     id: number;
     filename: string;
-    originalPath: string;
     fileType: string;
     fileSize: number;
     title: string | null;
@@ -19,28 +19,85 @@ export interface TRLDocument {
     updatedAt: string;
     processingStartedAt: string | null;
     processingCompletedAt: string | null;
-    metadataJson: string | null;
+    metadataJson?: string | null;
+    textContent?: string | null;
+    analysisResult?: string | null;
 }
 
+export interface TRLDocumentPage {
+    items: TRLDocument[];
+    nextCursor: string | null;
+}
+
+export interface TRLDocumentQuery {
+    status?: string;
+    filenamePrefix?: string;
+    cursor?: string;
+    limit?: number;
+    fields?: string[];
+}
+
+export interface AnalisisEvento {
+    tipo: string;
+    id: string;
+    estado: string;
+    fase: string | null;
+    mensaje: string | null;
+    terminado: boolean;
+    fecha: string;
+}
+
+// Opcional: /api/trl es público, pero con sesión la cola reparte los turnos por usuario
+const getAuthHeader = () => {
+    const user = authService.getCurrentUser();
+    if (user?.token) {
+        return { Authorization: `Bearer ${user.token}` };
+    }
+    return {};
+};
+
 export const trlService = {
-    async analyzeDocument(file: File): Promise<TRLDocument> {
+    // Reutilizar la misma clave al reintentar devuelve el documento ya creado
+    async analyzeDocument(file: File, idempotencyKey: string = crypto.randomUUID()): Promise<TRLDocument> {
         const formData = new FormData();
         formData.append('file', file);
         const response = await axios.post(`${API_URL}/analyze`, formData, {
             headers: {
+                ...getAuthHeader(),
                 'Content-Type': 'multipart/form-data',
+                'Idempotency-Key': idempotencyKey,
             },
         });
         return response.data;
     },
 
-    async getDocuments(): Promise<TRLDocument[]> {
-        const response = await axios.get(`${API_URL}/documents`);
+    async getDocuments(query: TRLDocumentQuery = {}): Promise<TRLDocumentPage> {
+        const response = await axios.get(`${API_URL}/documents`, {
+            params: { ...query, fields: query.fields?.join(',') },
+        });
         return response.data;
     },
 
     async getDocumentById(id: number): Promise<TRLDocument> {
         const response = await axios.get(`${API_URL}/documents/${id}`);
         return response.data;
+    },
+
+    // El estado final (FAILED) llega por watchDocument
+    async cancelDocument(id: number): Promise<void> {
+        await axios.post(`${API_URL}/documents/${id}/cancel`, null, { headers: getAuthHeader() });
+    },
+
+    // Progreso del análisis por SSE; devuelve una función para cerrar la conexión
+    watchDocument(id: number, onEvent: (evento: AnalisisEvento) => void): () => void {
+        const source = new EventSource(`${API_URL}/documents/${id}/events`);
+        source.addEventListener('estado', (e) => {
+            const evento: AnalisisEvento = JSON.parse((e as MessageEvent).data);
+            onEvent(evento);
+            if (evento.terminado) {
+                source.close();
+            }
+        });
+        return () => source.close();
     }
 };